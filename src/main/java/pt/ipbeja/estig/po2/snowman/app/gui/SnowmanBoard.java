@@ -1,10 +1,12 @@
 package pt.ipbeja.estig.po2.snowman.app.gui;
 
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
 import javafx.scene.control.TextArea;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -21,6 +23,7 @@ import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.HBox;
 import java.util.function.Consumer;
@@ -37,7 +40,10 @@ import java.time.LocalTime;
  * <p>
  * Key Features:
  * - Visual rendering of the board with images for snowballs, monster, blocks, snow, and snowmen.
- * - Keyboard controls: arrow keys to move, CTRL+Z for undo, CTRL+X for redo, R to restart.
+ * - Keyboard controls: arrow keys to move, CTRL+Z for undo, CTRL+X for redo, R to restart, H for a hint.
+ * - Hint button that asks the background hint engine for the next move, without freezing the window.
+ * - Click-to-move: clicking a cell walks the monster there along a shortest path that pushes no snowball.
+ * - Move scrubber to jump straight to any move of the current level's history.
  * - Movement log displayed in a non-editable TextArea.
  * - Save game state to a timestamped file in user's Documents/Snowman folder.
  * - Save and display leaderboard data.
@@ -50,7 +56,15 @@ public class SnowmanBoard extends VBox implements View {
     private final Button resetButton;
     private Button undoButton;
     private Button redoButton;
+    private Button hintButton;
+    private final HintEngine hintEngine;
+    private CompletableFuture<Hint> pendingHint;
+    private final Slider moveScrubber;
+    private final Label moveLabel;
+    private boolean syncingScrubber;
     private BoardModel boardModel;
+    private DeadlockDetector deadlockDetector;
+    private boolean levelLost;
     private final GridPane board;
     private final TextArea movementsLog;
     private final String playerName;
@@ -58,11 +72,25 @@ public class SnowmanBoard extends VBox implements View {
     private static final String LEADERBOARD_FILE = "leaderboard.txt";
     private int totalGameScore = 0;
 
+    /**
+     * Sum of the moves minus the par of the finished levels whose par is known, and how
+     * many such levels there were.
+     */
+    private int totalParDelta = 0;
+    private int parLevels = 0;
+
     // Images for game elements
     private final Image snowImage = new Image(getClass().getResourceAsStream("/images/snow.png"));
     private final Image blockImage = new Image(getClass().getResourceAsStream("/images/block.png"));
     private final Image snowmanImage = new Image(getClass().getResourceAsStream("/images/snowman.png"));
     private final Image monsterImage = new Image(getClass().getResourceAsStream("/images/monster.png"));
+    private final Image grassImage = new Image(getClass().getResourceAsStream("/images/grass.png"));
+    private final Image smallImage = new Image(getClass().getResourceAsStream("/images/snowball_small.png"));
+    private final Image midImage = new Image(getClass().getResourceAsStream("/images/snowball_mid.png"));
+    private final Image bigImage = new Image(getClass().getResourceAsStream("/images/snowball_big.png"));
+    private final Image midSmallImage = new Image(getClass().getResourceAsStream("/images/snowman_partial1.png"));
+    private final Image bigSmallImage = new Image(getClass().getResourceAsStream("/images/snowman_partial2.png"));
+    private final Image bigMidImage = new Image(getClass().getResourceAsStream("/images/snowman_partial3.png"));
 
     /**
      * Constructs a new SnowmanBoard GUI component.
@@ -73,6 +101,7 @@ public class SnowmanBoard extends VBox implements View {
      */
     public SnowmanBoard(BoardModel boardModel, Consumer<Void> onLevelComplete, String playerName) {
         this.boardModel = boardModel;
+        this.deadlockDetector = new DeadlockDetector(boardModel);
         this.onLevelComplete = onLevelComplete;
         this.board = new GridPane();
         this.movementsLog = new TextArea();
@@ -87,14 +116,26 @@ public class SnowmanBoard extends VBox implements View {
         configureUndoButton();
         configureRedoButton();
 
+        this.hintEngine = new HintEngine();
+        configureHintButton();
+
+        this.moveScrubber = new Slider();
+        this.moveLabel = new Label();
+        configureMoveScrubber();
+
         HBox controls = new HBox(10);
         controls.setAlignment(Pos.TOP_LEFT);
         controls.getChildren().add(resetButton);
         controls.getChildren().add(undoButton);
         controls.getChildren().add(redoButton);
+        controls.getChildren().add(hintButton);
+
+        HBox timeline = new HBox(10, moveScrubber, moveLabel);
+        timeline.setAlignment(Pos.CENTER_LEFT);
 
         setupBoard();
-        this.getChildren().addAll(board, controls, movementsLog);
+        syncMoveScrubber();
+        this.getChildren().addAll(board, controls, timeline, movementsLog);
 
         this.setOnKeyPressed(this::handleKeyPress);
         this.setFocusTraversable(true);
@@ -126,6 +167,68 @@ public class SnowmanBoard extends VBox implements View {
         });
     }
 
+    /**
+     * Configures the Hint button and its action handler.
+     */
+    private void configureHintButton() {
+        this.hintButton = new Button("Hint(H)");
+        this.hintButton.setOnAction(e -> {
+            requestHint();
+            this.requestFocus();
+        });
+    }
+
+    /**
+     * Asks the hint engine for the next move of the current position. The search runs in
+     * the background and the answer is logged when it arrives, unless the board changed
+     * in the meantime, in which case {@link #updateBoard()} already asked again.
+     */
+    private void requestHint() {
+        movementsLog.appendText("Looking for a hint...\n");
+        CompletableFuture<Hint> hint = hintEngine.requestHint(boardModel);
+        pendingHint = hint;
+        hint.thenAccept(result -> Platform.runLater(() -> {
+            if (pendingHint == hint) {
+                pendingHint = null;
+                movementsLog.appendText("Hint: " + result + "\n");
+            }
+        }));
+    }
+
+    /**
+     * Configures the move scrubber, which jumps straight to any move of the history.
+     * Dragging it only changes the board position; the moves after it stay available for redo.
+     */
+    private void configureMoveScrubber() {
+        this.moveScrubber.setMin(0);
+        this.moveScrubber.setBlockIncrement(1);
+        this.moveScrubber.setMajorTickUnit(1);
+        this.moveScrubber.setMinorTickCount(0);
+        this.moveScrubber.setSnapToTicks(true);
+        this.moveScrubber.setFocusTraversable(false);
+        this.moveScrubber.valueProperty().addListener((observable, oldValue, newValue) -> {
+            int target = (int) Math.round(newValue.doubleValue());
+            if (syncingScrubber || target == boardModel.getMoveIndex()) {
+                return;
+            }
+            boardModel.seekMove(target);
+            movementsLog.appendText("Jumped to move " + target + "\n");
+            updateBoard();
+        });
+    }
+
+    /**
+     * Updates the move scrubber range and position to match the board's move history.
+     */
+    private void syncMoveScrubber() {
+        syncingScrubber = true;
+        moveScrubber.setMax(Math.max(1, boardModel.getMoveCount()));
+        moveScrubber.setValue(boardModel.getMoveIndex());
+        moveScrubber.setDisable(boardModel.getMoveCount() == 0);
+        moveLabel.setText("Move " + boardModel.getMoveIndex() + "/" + boardModel.getMoveCount());
+        syncingScrubber = false;
+    }
+
     /**
      * Loads a new game level by resetting the board model and UI components,
      * and preserving total game score across levels.
@@ -133,9 +236,28 @@ public class SnowmanBoard extends VBox implements View {
      * @param newBoard The new BoardModel instance for the new level.
      */
     public void loadNewLevel(BoardModel newBoard) {
+        loadNewLevel(newBoard, new DeadlockDetector(newBoard));
+    }
+
+    /**
+     * Loads a new game level whose deadlock analysis was already done, for instance in
+     * the background while the previous level was played.
+     *
+     * @param newBoard         The new BoardModel instance for the new level.
+     * @param deadlockDetector The detector of the new level's layout.
+     */
+    public void loadNewLevel(BoardModel newBoard, DeadlockDetector deadlockDetector) {
         this.totalGameScore += this.score;
+        if (boardModel.getPar() >= 0) {
+            this.totalParDelta += this.score - boardModel.getPar();
+            this.parLevels++;
+        }
         this.score = 0;
+        this.hintEngine.cancel();
+        this.pendingHint = null;
         this.boardModel = newBoard;
+        this.deadlockDetector = deadlockDetector;
+        this.levelLost = false;
         this.movementsLog.clear();
         updateBoard();
         this.requestFocus();
@@ -170,6 +292,7 @@ public class SnowmanBoard extends VBox implements View {
      * - CTRL+Z for undo
      * - CTRL+X for redo
      * - R key to restart the level
+     * - H key for a hint
      *
      * @param event The KeyEvent captured.
      */
@@ -180,6 +303,12 @@ public class SnowmanBoard extends VBox implements View {
             return;
         }
 
+        if (event.getCode() == KeyCode.H) {
+            requestHint();
+            event.consume();
+            return;
+        }
+
         if (event.isControlDown() && event.getCode() == KeyCode.Z) {
             if (boardModel.undo()) {
                 movementsLog.appendText("Movement undone\n");
@@ -223,18 +352,66 @@ public class SnowmanBoard extends VBox implements View {
         event.consume();
     }
 
+    /**
+     * Walks the monster to a clicked cell. The whole walk is played on the model first and
+     * the board is redrawn once at the end, instead of once per step.
+     *
+     * @param row The row of the clicked cell.
+     * @param col The column of the clicked cell.
+     */
+    private void walkTo(int row, int col) {
+        int fromRow = boardModel.getMonster().getRow();
+        int fromCol = boardModel.getMonster().getCol();
+
+        int moves = boardModel.walkTo(row, col);
+        if (moves > 0) {
+            this.score += moves;
+            logMovement(fromRow, fromCol, boardModel.getMonster().getRow(), boardModel.getMonster().getCol());
+            movementsLog.appendText(String.format("Walked %d moves%n", moves));
+            updateBoard();
+        }
+        this.requestFocus();
+    }
+
     /**
      * Updates the board UI to reflect the current game state.
-     * Also triggers the level complete callback if the level is finished.
+     * Also triggers the level complete callback if the level is finished,
+     * or warns the player once when the level can no longer be completed.
+     * A hint still being searched for is restarted for the new position.
      */
     @Override
     public void updateBoard() {
         setupBoard();
+        syncMoveScrubber();
+        if (pendingHint != null) {
+            requestHint();
+        }
         if (boardModel.isLevelComplete()) {
             onLevelComplete.accept(null);
+        } else {
+            checkLevelLost();
         }
     }
 
+    /**
+     * Warns the player when the last move made the level impossible to complete, for
+     * example by pushing the only usable SMALL snowball into a corner. The warning is
+     * shown again only after the player undid their way back out of the lost position.
+     */
+    private void checkLevelLost() {
+        boolean lost = deadlockDetector.isLost(boardModel);
+        if (lost && !levelLost) {
+            movementsLog.appendText("Level lost: no snowman can be built any more\n");
+
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("Level Lost");
+            alert.setHeaderText("This level can no longer be completed.");
+            alert.setContentText("Undo the last moves (CTRL+Z) or restart the level (R).");
+            alert.show();
+        }
+        levelLost = lost;
+    }
+
     /**
      * Sets up the visual representation of the game board grid,
      * including column and row labels and cell contents.
@@ -289,24 +466,18 @@ public class SnowmanBoard extends VBox implements View {
             Snowball snowball = boardModel.snowballInPosition(row, col);
             if (snowball != null) {
                 switch (snowball.getType()) {
-                    case SMALL ->
-                            imageView.setImage(new Image(getClass().getResourceAsStream("/images/snowball_small.png")));
-                    case MID ->
-                            imageView.setImage(new Image(getClass().getResourceAsStream("/images/snowball_mid.png")));
-                    case BIG ->
-                            imageView.setImage(new Image(getClass().getResourceAsStream("/images/snowball_big.png")));
-                    case MID_SMALL ->
-                            imageView.setImage(new Image(getClass().getResourceAsStream("/images/snowman_partial1.png")));
-                    case BIG_SMALL ->
-                            imageView.setImage(new Image(getClass().getResourceAsStream("/images/snowman_partial2.png")));
-                    case BIG_MID ->
-                            imageView.setImage(new Image(getClass().getResourceAsStream("/images/snowman_partial3.png")));
+                    case SMALL -> imageView.setImage(smallImage);
+                    case MID -> imageView.setImage(midImage);
+                    case BIG -> imageView.setImage(bigImage);
+                    case MID_SMALL -> imageView.setImage(midSmallImage);
+                    case BIG_SMALL -> imageView.setImage(bigSmallImage);
+                    case BIG_MID -> imageView.setImage(bigMidImage);
                     case COMPLETE -> imageView.setImage(snowmanImage);
                 }
             } else {
                 PositionContent content = boardModel.getPositionContent(row, col);
                 switch (content) {
-                    case NO_SNOW -> imageView.setImage(new Image(getClass().getResourceAsStream("/images/grass.png")));
+                    case NO_SNOW -> imageView.setImage(grassImage);
                     case SNOW -> imageView.setImage(snowImage);
                     case BLOCK -> imageView.setImage(blockImage);
                     case SNOWMAN -> imageView.setImage(snowmanImage);
@@ -315,6 +486,7 @@ public class SnowmanBoard extends VBox implements View {
         }
 
         cell.setGraphic(imageView);
+        cell.setOnMouseClicked(e -> walkTo(row, col));
         return cell;
     }
 
@@ -573,7 +745,9 @@ public class SnowmanBoard extends VBox implements View {
      * Appends the player's score entry to the leaderboard file.
      * Creates the file if it does not exist.
 
-     * The entry format is: playerName | finalScore | timestamp
+     * The entry format is: playerName | finalScore | delta vs par | timestamp
+     * The delta is the number of moves above the par of the levels played, counting only
+     * levels with a known par, or "n/a" if none of them has one.
      *
      * @param filePath the path to the leaderboard file
      * @throws IOException if writing to the file fails
@@ -584,24 +758,34 @@ public class SnowmanBoard extends VBox implements View {
         }
 
         int finalScore = totalGameScore + score;
+        int parDelta = totalParDelta;
+        int levelsWithPar = parLevels;
+        if (boardModel.getPar() >= 0) {
+            parDelta += score - boardModel.getPar();
+            levelsWithPar++;
+        }
+        String parColumn = levelsWithPar == 0 ? "n/a" : String.format("%+d", parDelta);
 
         String dateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"));
 
-        String scoreEntry = String.format("%-3s | %4d | %s%n",
-                playerName, finalScore, dateTime);
+        String scoreEntry = String.format("%-3s | %4d | %4s | %s%n",
+                playerName, finalScore, parColumn, dateTime);
 
         Files.write(filePath, scoreEntry.getBytes(),
                 StandardOpenOption.APPEND);
     }
 
     /**
-     * Logs player movements in (row, col) format where col is a letter
+     * Logs player movements in (row, col) format where col is a letter.
+     * Flags the move when it leads back to a position the player has already been in.
      */
     private void logMovement(int fromRow, int fromCol, int toRow, int toCol) {
         String timestamp = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
         String fromPos = formatPosition(fromRow, fromCol);
         String toPos = formatPosition(toRow, toCol);
-        movementsLog.appendText(String.format("[%s] %s -> %s%n", timestamp, fromPos, toPos));
+        int visits = boardModel.getRepetitionCount();
+        String repeated = visits > 1 ? String.format(" (position repeated x%d)", visits) : "";
+        movementsLog.appendText(String.format("[%s] %s -> %s%s%n", timestamp, fromPos, toPos, repeated));
     }
 
     /**
@@ -18,6 +18,11 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The main JavaFX application class for the Snowman game.
@@ -32,6 +37,7 @@ import java.util.Optional;
  * >Initializes the game board and user interface components.</li>
  * >Sets up the SnowmanBoard for gameplay and handles level completion events.</li>
  * >Displays the leaderboard on the right side of the window.</li>
+ * >Prepares the next level in the background, so moving on to it is instant.</li>
  * >Plays background audio during gameplay.</li>
  * <p>
  * Extends {@link Application} to launch the JavaFX GUI.
@@ -48,6 +54,15 @@ public class SnowmanGUI extends Application {
     private VBox leaderboardPanel;
     private ListView<String> leaderboardListView;
 
+    /**
+     * Prepares the next level on a background thread while the current one is played:
+     * the level manager keeps the prepared board, and this class keeps a reference to it
+     * and its deadlock analysis.
+     */
+    private ExecutorService prefetcher;
+    private CompletableFuture<BoardModel> nextBoard;
+    private CompletableFuture<DeadlockDetector> nextDetector;
+
     /**
      * The main entry point for the JavaFX application.
      * Initializes the game window, game components, and user interface.
@@ -64,12 +79,21 @@ public class SnowmanGUI extends Application {
         }
 
         this.audioPlayer = new GameAudio();
-        this.levelManager = new LevelManager();
-        this.boardModel = createInitialBoard();
+        List<String> args = getParameters().getRaw();
+        if (args.isEmpty() || !openLevelPack(Paths.get(args.get(0)))) {
+            this.levelManager = new LevelManager();
+            this.boardModel = createInitialBoard();
+        }
 
         createLeaderboardPanel();
 
         this.snowmanBoard = new SnowmanBoard(boardModel, this::handleLevelComplete, playerName);
+        this.prefetcher = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "snowman-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prefetchNextLevel();
 
         BorderPane root = new BorderPane();
         root.setCenter(snowmanBoard);
@@ -88,6 +112,30 @@ public class SnowmanGUI extends Application {
         stage.show();
     }
 
+    /**
+     * Loads the levels of a level pack file given on the command line, and its first level.
+     * <p>
+     * If the pack cannot be read, shows the error so the game can start with the
+     * predefined levels instead.
+     *
+     * @param pack The level pack file.
+     * @return {@code true} if the pack was loaded; {@code false} otherwise.
+     */
+    private boolean openLevelPack(Path pack) {
+        try {
+            this.levelManager = new LevelManager(pack);
+            this.boardModel = levelManager.getCurrentLevel();
+            return true;
+        } catch (IOException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Level Pack");
+            alert.setHeaderText("Unable to load " + pack.getFileName());
+            alert.setContentText(e.getMessage() + "\nThe predefined levels will be played instead.");
+            alert.showAndWait();
+            return false;
+        }
+    }
+
     /**
      * Creates the initial game board configuration.
      * <p>
@@ -140,11 +188,12 @@ public class SnowmanGUI extends Application {
             Optional<ButtonType> result = alert.showAndWait();
 
             if (result.isPresent() && result.get() == ButtonType.OK) {
-                // Player chose to continue
+                // Player chose to continue; the level was prepared while this one was played
                 this.boardModel = levelManager.loadNextLevel();
-                snowmanBoard.loadNewLevel(boardModel);
+                snowmanBoard.loadNewLevel(boardModel, preparedDetector());
                 Stage stage = (Stage) snowmanBoard.getScene().getWindow();
                 stage.setTitle("Snowman Game - Level " + (levelManager.getCurrentLevelIndex() + 1));
+                prefetchNextLevel();
             } else {
                 // Player chose NOT to continue — save and show thank-you message
                 snowmanBoard.saveGameToFile();
@@ -171,6 +220,53 @@ public class SnowmanGUI extends Application {
         }
     }
 
+    /**
+     * Starts preparing the level after the current one in the background: reading and
+     * decoding it, building its board, and analysing its dead squares.
+     */
+    private void prefetchNextLevel() {
+        nextBoard = null;
+        nextDetector = null;
+        if (!levelManager.hasNextLevel()) {
+            return;
+        }
+        nextBoard = levelManager.prefetchNextLevel(prefetcher);
+        nextDetector = nextBoard.thenApplyAsync(DeadlockDetector::new, prefetcher);
+    }
+
+    /**
+     * Returns the deadlock analysis of the level that was just loaded. When the board is
+     * the one prepared in the background, its analysis is already done or under way on
+     * the background thread, and it is waited for, so the board is never read by both
+     * threads at once; otherwise the board is analysed here.
+     *
+     * @return The detector of the current board.
+     */
+    private DeadlockDetector preparedDetector() {
+        CompletableFuture<BoardModel> board = nextBoard;
+        CompletableFuture<DeadlockDetector> detector = nextDetector;
+        nextBoard = null;
+        nextDetector = null;
+        if (board != null && board.isDone() && !board.isCompletedExceptionally() && board.join() == boardModel) {
+            try {
+                return detector.join();
+            } catch (CompletionException | CancellationException e) {
+                e.printStackTrace();
+            }
+        }
+        return new DeadlockDetector(boardModel);
+    }
+
+    /**
+     * Stops the background thread that prepares the next level.
+     */
+    @Override
+    public void stop() {
+        if (prefetcher != null) {
+            prefetcher.shutdownNow();
+        }
+    }
+
     /**
      * Prompts the user to enter their name before starting the game.
      * <p>
@@ -244,8 +340,8 @@ public class SnowmanGUI extends Application {
             List<String> scores = Files.readAllLines(leaderboardPath);
             leaderboardListView.getItems().clear();
 
-            leaderboardListView.getItems().add(String.format("%-3s | %-4s | %-10s", "USER", "SCORE", "DATE"));
-            leaderboardListView.getItems().add("--------------------------");
+            leaderboardListView.getItems().add(String.format("%-3s | %-4s | %-4s | %-10s", "USER", "SCORE", "PAR", "DATE"));
+            leaderboardListView.getItems().add("---------------------------------");
 
             scores.forEach(score -> leaderboardListView.getItems().add(score));
 
@@ -259,9 +355,10 @@ public class SnowmanGUI extends Application {
     /**
      * Main entry point for launching the Snowman GUI application.
      *
-     * @param args command-line arguments (not used).
+     * @param args command-line arguments: optionally, the path of a level pack file to
+     *             play instead of the predefined levels.
      */
     public static void main(String[] args) {
-        launch();
+        launch(args);
     }
 }
\ No newline at end of file
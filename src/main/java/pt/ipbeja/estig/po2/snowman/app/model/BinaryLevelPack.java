@@ -0,0 +1,268 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The BinaryLevelPack class reads and writes level packs in a compact binary format,
+ * made for packs of thousands of levels.
+ * <p>
+ * The file starts with a 16-byte header (magic number, version, number of levels and a
+ * reserved word) and an index with the offset of every level, followed by the levels. Each
+ * level takes a 12-byte record head (number, par, rows, columns, snowmen required, monster
+ * row and column, number of snowballs), its cells packed four to a byte, two bits each
+ * holding the ordinal of their {@link PositionContent}, and three bytes per snowball (row,
+ * column and type). A 6x6 level with three snowballs takes 30 bytes.
+ * <p>
+ * The file is read through {@link FileChannel#map}, so opening a pack only checks its
+ * header: the operating system pages the file in as levels are read, and a level is only
+ * decoded when {@link #read} or the {@link #levels()} view asks for it. Opening time and
+ * heap use do not depend on the size of the pack. A pack can hold up to 2 GB.
+ * <p>
+ * Key Responsibilities:
+ * - Write levels in the binary format.
+ * - Map a pack and decode single levels on demand.
+ * - Convert a text level pack to the binary format ({@link #main}).
+ * <p>
+ * Threading: Instances are immutable and can be read from several threads; the mapped
+ * file is only read through absolute positions.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public final class BinaryLevelPack {
+
+    private static final int MAGIC = 0x534E504B; // "SNPK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_HEAD_BYTES = 12;
+    private static final int SNOWBALL_BYTES = 3;
+
+    /**
+     * Offsets of the fields of a record head.
+     */
+    private static final int NUMBER = 0;
+    private static final int PAR = 4;
+    private static final int ROWS = 6;
+    private static final int COLS = 7;
+    private static final int SNOWMEN = 8;
+    private static final int MONSTER_ROW = 9;
+    private static final int MONSTER_COL = 10;
+    private static final int SNOWBALLS = 11;
+
+    private static final PositionContent[] CONTENTS = PositionContent.values();
+    private static final SnowballType[] TYPES = SnowballType.values();
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    private BinaryLevelPack(MappedByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * Maps a binary level pack.
+     *
+     * @param file The pack.
+     * @return The mapped pack.
+     * @throws IOException if the file cannot be mapped or is not a binary level pack.
+     */
+    public static BinaryLevelPack open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException("Not a binary level pack: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int size = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || size < 0
+                    || HEADER_BYTES + 4L * size > length) {
+                throw new IOException("Not a binary level pack: " + file);
+            }
+            return new BinaryLevelPack(buffer, size);
+        }
+    }
+
+    /**
+     * Tells whether a file starts like a binary level pack.
+     *
+     * @param file The file.
+     * @return true if the file starts with the magic number of the format.
+     * @throws IOException if the file cannot be read.
+     */
+    public static boolean isBinaryPack(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) > 0) {
+                // Read the first four bytes
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * @return Number of levels in the pack.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decodes one level of the pack.
+     *
+     * @param index Position of the level in the pack, from 0.
+     * @return A new level.
+     * @throws IndexOutOfBoundsException if there is no level at that position.
+     * @throws IllegalStateException     if the record of the level is corrupt.
+     */
+    public Level read(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("No level " + index + " in a pack of " + size);
+        }
+        try {
+            return decode(buffer.getInt(HEADER_BYTES + 4 * index));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalStateException("Corrupt record of level " + index, e);
+        }
+    }
+
+    /**
+     * Returns the levels of the pack as a list that decodes each level when it is read.
+     *
+     * @return An unmodifiable view of the pack.
+     */
+    public List<Level> levels() {
+        return new LevelList();
+    }
+
+    private Level decode(int offset) {
+        int rows = buffer.get(offset + ROWS) & 0xFF;
+        int cols = buffer.get(offset + COLS) & 0xFF;
+        int cells = offset + RECORD_HEAD_BYTES;
+        List<List<PositionContent>> board = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            List<PositionContent> contents = new ArrayList<>(cols);
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                contents.add(CONTENTS[buffer.get(cells + (cell >>> 2)) >>> ((cell & 3) * 2) & 3]);
+            }
+            board.add(contents);
+        }
+        int count = buffer.get(offset + SNOWBALLS) & 0xFF;
+        int position = cells + (rows * cols + 3) / 4;
+        List<Snowball> snowballs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++, position += SNOWBALL_BYTES) {
+            snowballs.add(new Snowball(buffer.get(position) & 0xFF, buffer.get(position + 1) & 0xFF,
+                    TYPES[buffer.get(position + 2)]));
+        }
+        return new Level(board, buffer.get(offset + MONSTER_ROW) & 0xFF, buffer.get(offset + MONSTER_COL) & 0xFF,
+                snowballs, buffer.getInt(offset + NUMBER), buffer.get(offset + SNOWMEN) & 0xFF,
+                buffer.getShort(offset + PAR));
+    }
+
+    /**
+     * Writes levels as a binary level pack.
+     *
+     * @param levels The levels, in pack order; each has at most 255 rows, columns,
+     *               snowballs and snowmen.
+     * @param file   The file to write, replaced if it exists.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(List<Level> levels, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer index = ByteBuffer.allocate(HEADER_BYTES + 4 * levels.size());
+            index.putInt(MAGIC).putInt(VERSION).putInt(levels.size()).putInt(0);
+            long position = index.capacity();
+            for (Level level : levels) {
+                if (position > Integer.MAX_VALUE) {
+                    throw new IOException("A binary level pack holds at most 2 GB");
+                }
+                index.putInt((int) position);
+                ByteBuffer record = encode(level);
+                while (record.hasRemaining()) {
+                    position += channel.write(record, position);
+                }
+            }
+            index.flip();
+            for (long written = 0; index.hasRemaining(); ) {
+                written += channel.write(index, written);
+            }
+        }
+    }
+
+    private static ByteBuffer encode(Level level) {
+        List<Snowball> snowballs = level.getSnowballs();
+        int rows = level.getRows();
+        int cols = level.getCols();
+        if (rows > 255 || cols > 255 || snowballs.size() > 255 || level.getRequiredSnowmen() > 255) {
+            throw new IllegalArgumentException("Level " + level.getLevelNumber() + " is too large for a binary pack");
+        }
+        int cellBytes = (rows * cols + 3) / 4;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEAD_BYTES + cellBytes + SNOWBALL_BYTES * snowballs.size());
+        record.putInt(NUMBER, level.getLevelNumber());
+        record.putShort(PAR, (short) level.getPar());
+        record.put(ROWS, (byte) rows);
+        record.put(COLS, (byte) cols);
+        record.put(SNOWMEN, (byte) level.getRequiredSnowmen());
+        record.put(MONSTER_ROW, (byte) level.getMonsterStartRow());
+        record.put(MONSTER_COL, (byte) level.getMonsterStartCol());
+        record.put(SNOWBALLS, (byte) snowballs.size());
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                int at = RECORD_HEAD_BYTES + (cell >>> 2);
+                record.put(at, (byte) (record.get(at) | level.getContent(row, col).ordinal() << ((cell & 3) * 2)));
+            }
+        }
+        int position = RECORD_HEAD_BYTES + cellBytes;
+        for (Snowball snowball : snowballs) {
+            record.put(position++, (byte) snowball.getRow());
+            record.put(position++, (byte) snowball.getCol());
+            record.put(position++, (byte) snowball.getType().ordinal());
+        }
+        return record;
+    }
+
+    /**
+     * Converts a text level pack to a binary one.
+     *
+     * @param args The text pack and the binary pack to write.
+     * @throws IOException if a pack cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BinaryLevelPack <text pack> <binary pack>");
+            return;
+        }
+        List<Level> levels = new LevelManager(Paths.get(args[0])).getLevels();
+        write(levels, Paths.get(args[1]));
+        System.out.println("Wrote " + levels.size() + " levels to " + args[1]);
+    }
+
+    /**
+     * Read-only list view of the pack that decodes a level on every read.
+     */
+    private final class LevelList extends AbstractList<Level> implements RandomAccess {
+
+        @Override
+        public Level get(int index) {
+            return read(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The BitGrid class runs flood fills and breadth-first searches over the cells of a board
+ * stored as bitsets, one bit per cell in row-major order.
+ * <p>
+ * Every step of a search advances a whole frontier at once with a few shifts and masks
+ * per 64 cells: shifting by one bit moves it one column and shifting by the number of
+ * columns moves it one row, while column masks stop cells from wrapping around the board
+ * edges. This is much cheaper than visiting the cells one at a time with a queue.
+ * <p>
+ * Key Responsibilities:
+ * - Compute the region of cells reachable from a cell through free cells.
+ * - Compute the distance layers of a breadth-first search and rebuild shortest paths.
+ * <p>
+ * Threading: Instances are immutable and can be shared; the bitsets passed to and
+ * returned by them belong to the caller.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class BitGrid {
+
+    private final int rows;
+    private final int cols;
+    private final int cells;
+    private final int words;
+
+    /**
+     * Cells that may move one column to the right or to the left without leaving their row.
+     */
+    private final long[] notLastCol;
+    private final long[] notFirstCol;
+
+    /**
+     * Creates the bitset geometry of a board size.
+     *
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     */
+    BitGrid(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = rows * cols;
+        this.words = (cells + 63) >>> 6;
+        this.notLastCol = newSet();
+        this.notFirstCol = newSet();
+        for (int i = 0; i < cells; i++) {
+            if (i % cols != cols - 1) {
+                set(notLastCol, i);
+            }
+            if (i % cols != 0) {
+                set(notFirstCol, i);
+            }
+        }
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return An empty bitset of this size.
+     */
+    long[] newSet() {
+        return new long[words];
+    }
+
+    static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * @return The lowest cell of a bitset, or -1 if it is empty.
+     */
+    static int first(long[] bits) {
+        for (int w = 0; w < bits.length; w++) {
+            if (bits[w] != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(bits[w]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes into {@code out} the cells next to any cell of {@code from}, restricted to
+     * {@code free}; {@code from} itself is not included.
+     */
+    private void neighbours(long[] from, long[] free, long[] out) {
+        long carryRight = 0;
+        for (int w = 0; w < words; w++) {
+            long right = from[w] & notLastCol[w];
+            out[w] = right << 1 | carryRight;
+            carryRight = right >>> 63;
+        }
+        long carryLeft = 0;
+        for (int w = words - 1; w >= 0; w--) {
+            long left = from[w] & notFirstCol[w];
+            out[w] |= left >>> 1 | carryLeft;
+            carryLeft = left << 63;
+        }
+        // Rows: shift by the number of columns, across word boundaries
+        int wordShift = cols >>> 6;
+        int bitShift = cols & 63;
+        for (int w = words - 1; w >= 0; w--) {
+            int source = w - wordShift;
+            if (source >= 0) {
+                long down = from[source] << bitShift;
+                if (bitShift != 0 && source > 0) {
+                    down |= from[source - 1] >>> (64 - bitShift);
+                }
+                out[w] |= down;
+            }
+        }
+        for (int w = 0; w < words; w++) {
+            int source = w + wordShift;
+            if (source < words) {
+                long up = from[source] >>> bitShift;
+                if (bitShift != 0 && source + 1 < words) {
+                    up |= from[source + 1] << (64 - bitShift);
+                }
+                out[w] |= up;
+            }
+        }
+        for (int w = 0; w < words; w++) {
+            out[w] &= free[w];
+        }
+    }
+
+    /**
+     * Computes the cells reachable from a cell by steps through free cells.
+     *
+     * @param free  The cells that can be walked on.
+     * @param start The starting cell, included in the result even if it is not free.
+     * @return The reachable region.
+     */
+    long[] flood(long[] free, int start) {
+        long[] region = newSet();
+        set(region, start);
+        long[] frontier = region.clone();
+        long[] next = newSet();
+        while (true) {
+            neighbours(frontier, free, next);
+            boolean grew = false;
+            for (int w = 0; w < words; w++) {
+                next[w] &= ~region[w];
+                region[w] |= next[w];
+                grew |= next[w] != 0;
+            }
+            if (!grew) {
+                return region;
+            }
+            long[] swap = frontier;
+            frontier = next;
+            next = swap;
+        }
+    }
+
+    /**
+     * Runs a breadth-first search from a cell through free cells.
+     *
+     * @param free  The cells that can be walked on.
+     * @param start The starting cell.
+     * @return The distance layers: layer k holds the cells exactly k steps away.
+     */
+    List<long[]> layers(long[] free, int start) {
+        List<long[]> layers = new ArrayList<>();
+        long[] seen = newSet();
+        set(seen, start);
+        long[] frontier = seen.clone();
+        while (true) {
+            layers.add(frontier);
+            long[] next = newSet();
+            neighbours(frontier, free, next);
+            boolean grew = false;
+            for (int w = 0; w < words; w++) {
+                next[w] &= ~seen[w];
+                seen[w] |= next[w];
+                grew |= next[w] != 0;
+            }
+            if (!grew) {
+                return layers;
+            }
+            frontier = next;
+        }
+    }
+
+    /**
+     * Rebuilds a shortest path from the distance layers of a search.
+     * <p>
+     * When cells to prefer are given, a forward pass over the layers first counts, for
+     * every cell, the fewest cells outside {@code prefer} that a shortest path to it enters.
+     * The backward pass then only steps back to a cell whose count leads to the target's,
+     * so among the shortest paths it returns one that enters the fewest such cells.
+     *
+     * @param layers The layers returned by {@link #layers}.
+     * @param target The cell to reach.
+     * @param prefer Cells to step on when several shortest paths exist, or null.
+     * @return The directions of the path, first step first, or null if the target was not
+     *         reached.
+     */
+    Direction[] path(List<long[]> layers, int target, long[] prefer) {
+        int distance = -1;
+        for (int k = 0; k < layers.size(); k++) {
+            if (get(layers.get(k), target)) {
+                distance = k;
+                break;
+            }
+        }
+        if (distance < 0) {
+            return null;
+        }
+        int[] cost = prefer == null ? null : costs(layers, distance, prefer);
+        Direction[] path = new Direction[distance];
+        int cell = target;
+        for (int k = distance - 1; k >= 0; k--) {
+            long[] layer = layers.get(k);
+            Direction chosen = null;
+            int chosenCell = -1;
+            for (Direction direction : Direction.values()) {
+                // The previous cell is one step against the direction of the move
+                int previous = step(cell, direction, -1);
+                if (previous < 0 || !get(layer, previous)) {
+                    continue;
+                }
+                if (chosen == null || cost != null && cost[previous] < cost[chosenCell]) {
+                    chosen = direction;
+                    chosenCell = previous;
+                }
+            }
+            path[k] = chosen;
+            cell = chosenCell;
+        }
+        return path;
+    }
+
+    /**
+     * Counts, for every cell of the first {@code distance + 1} layers, the fewest cells
+     * outside {@code prefer} entered by a shortest path to it.
+     */
+    private int[] costs(List<long[]> layers, int distance, long[] prefer) {
+        int[] cost = new int[cells];
+        for (int k = 1; k <= distance; k++) {
+            long[] previousLayer = layers.get(k - 1);
+            long[] layer = layers.get(k);
+            for (int w = 0; w < words; w++) {
+                for (long bits = layer[w]; bits != 0; bits &= bits - 1) {
+                    int cell = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    int best = Integer.MAX_VALUE;
+                    for (Direction direction : Direction.values()) {
+                        int previous = step(cell, direction, -1);
+                        if (previous >= 0 && get(previousLayer, previous)) {
+                            best = Math.min(best, cost[previous]);
+                        }
+                    }
+                    cost[cell] = best + (get(prefer, cell) ? 0 : 1);
+                }
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * @return The cell {@code sign} steps away in a direction, or -1 outside the board.
+     */
+    int step(int cell, Direction direction, int sign) {
+        int row = cell / cols + sign * direction.getDeltaRow();
+        int col = cell % cols + sign * direction.getDeltaCol();
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return -1;
+        }
+        return row * cols + col;
+    }
+
+    /**
+     * @return The number of cells in a bitset.
+     */
+    static int count(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
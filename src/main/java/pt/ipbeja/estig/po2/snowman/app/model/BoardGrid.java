@@ -0,0 +1,267 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The BoardGrid class is the packed storage engine behind the cells of a {@link BoardModel}.
+ * <p>
+ * Every cell is stored as the ordinal of its {@link PositionContent} in a single row-major
+ * {@code byte[]}, so reading or writing a cell is one array access instead of two boxed list
+ * lookups, and a full copy of the grid is a single {@link System#arraycopy}.
+ * <p>
+ * Key Responsibilities:
+ * - Store the content of every cell of the board in a compact, cache-friendly array.
+ * - Translate (row, col) coordinates into flat cell indexes and back.
+ * - Provide cheap copies of the cells for snapshots and level resets.
+ * - Expose a live {@code List<List<PositionContent>>} view for code written against the old layout.
+ * <p>
+ * Threading: This class is not thread-safe and should be accessed from a single thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class BoardGrid {
+
+    /**
+     * Cached copy of {@link PositionContent#values()} to decode cells without allocating.
+     */
+    static final PositionContent[] CONTENTS = PositionContent.values();
+
+    /**
+     * Packed value of a blocked cell.
+     */
+    static final byte BLOCK = (byte) PositionContent.BLOCK.ordinal();
+
+    /**
+     * Number of rows and columns of the grid.
+     */
+    private final int rows;
+    private final int cols;
+
+    /**
+     * Row-major cell contents, one {@link PositionContent} ordinal per cell.
+     */
+    private final byte[] cells;
+
+    /**
+     * Live list view over the packed cells, created once and shared by every caller.
+     */
+    private final List<List<PositionContent>> listView;
+
+    /**
+     * Receives the writes made through the list view, so the owner of the grid can keep
+     * anything derived from the cells in sync. Writes straight to the grid by default.
+     */
+    private CellWriter writer = this::set;
+
+    /**
+     * Builds a packed grid from a nested list layout.
+     *
+     * @param board The board layout, one list per row.
+     */
+    BoardGrid(List<List<PositionContent>> board) {
+        this(board.size(), board.isEmpty() ? 0 : board.get(0).size());
+        for (int row = 0; row < rows; row++) {
+            List<PositionContent> line = board.get(row);
+            for (int col = 0; col < cols; col++) {
+                cells[row * cols + col] = (byte) line.get(col).ordinal();
+            }
+        }
+    }
+
+    /**
+     * Builds an empty grid (every cell {@link PositionContent#NO_SNOW}) with the given size.
+     *
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     */
+    BoardGrid(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = new byte[rows * cols];
+        List<List<PositionContent>> rowViews = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            rowViews.add(new RowView(row));
+        }
+        this.listView = Collections.unmodifiableList(rowViews);
+    }
+
+    /**
+     * @return Number of rows in the grid.
+     */
+    int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return Number of columns in the grid.
+     */
+    int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return Total number of cells in the grid.
+     */
+    int size() {
+        return cells.length;
+    }
+
+    /**
+     * Checks whether a coordinate lies inside the grid.
+     *
+     * @param row Row index.
+     * @param col Column index.
+     * @return true if the coordinate is inside the grid; false otherwise.
+     */
+    boolean contains(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    /**
+     * Converts a coordinate into its flat cell index.
+     *
+     * @param row Row index.
+     * @param col Column index.
+     * @return The row-major index of the cell.
+     */
+    int index(int row, int col) {
+        return row * cols + col;
+    }
+
+    /**
+     * Reads the packed value of a cell.
+     *
+     * @param index Flat cell index.
+     * @return The ordinal of the cell's {@link PositionContent}.
+     */
+    byte getPacked(int index) {
+        return cells[index];
+    }
+
+    /**
+     * Writes the packed value of a cell.
+     *
+     * @param index  Flat cell index.
+     * @param packed The ordinal of the new {@link PositionContent}.
+     */
+    void setPacked(int index, byte packed) {
+        cells[index] = packed;
+    }
+
+    /**
+     * Reads the content of a cell.
+     *
+     * @param row Row index.
+     * @param col Column index.
+     * @return Content of the cell.
+     * @throws IndexOutOfBoundsException if indices are out of range.
+     */
+    PositionContent get(int row, int col) {
+        checkBounds(row, col);
+        return CONTENTS[cells[row * cols + col]];
+    }
+
+    /**
+     * Writes the content of a cell.
+     *
+     * @param row     Row index.
+     * @param col     Column index.
+     * @param content New content of the cell.
+     * @throws IndexOutOfBoundsException if indices are out of range.
+     */
+    void set(int row, int col, PositionContent content) {
+        checkBounds(row, col);
+        cells[row * cols + col] = (byte) content.ordinal();
+    }
+
+    /**
+     * @return A fresh copy of the packed cells.
+     */
+    byte[] copyCells() {
+        return cells.clone();
+    }
+
+    /**
+     * Copies the packed cells into an existing array.
+     *
+     * @param target Array of at least {@link #size()} bytes.
+     */
+    void copyCellsTo(byte[] target) {
+        System.arraycopy(cells, 0, target, 0, cells.length);
+    }
+
+    /**
+     * Overwrites every cell with a previously copied set of packed cells.
+     *
+     * @param source Array produced by {@link #copyCells()} on a grid of the same size.
+     */
+    void restoreCells(byte[] source) {
+        System.arraycopy(source, 0, cells, 0, cells.length);
+    }
+
+    /**
+     * Returns a live view of the grid as a list of rows. Writes through the row lists
+     * ({@code getBoard().get(r).set(c, content)}) update the packed cells directly.
+     *
+     * @return The list view of the grid.
+     */
+    List<List<PositionContent>> asList() {
+        return listView;
+    }
+
+    /**
+     * Routes the writes made through {@link #asList()} to another writer.
+     *
+     * @param writer The writer that applies list view writes.
+     */
+    void setWriter(CellWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Throws if a coordinate is outside the grid.
+     */
+    private void checkBounds(int row, int col) {
+        if (!contains(row, col)) {
+            throw new IndexOutOfBoundsException("Row or column is out of bounds");
+        }
+    }
+
+    /**
+     * Applies a write made through the list view of the grid.
+     */
+    interface CellWriter {
+        void write(int row, int col, PositionContent content);
+    }
+
+    /**
+     * Fixed-size, write-through list view of a single row of the grid.
+     */
+    private final class RowView extends AbstractList<PositionContent> {
+        private final int row;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public PositionContent get(int col) {
+            return BoardGrid.this.get(row, col);
+        }
+
+        @Override
+        public PositionContent set(int col, PositionContent content) {
+            PositionContent previous = BoardGrid.this.get(row, col);
+            writer.write(row, col, content);
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return cols;
+        }
+    }
+}
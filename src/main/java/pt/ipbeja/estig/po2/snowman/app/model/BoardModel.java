@@ -1,8 +1,9 @@
 package pt.ipbeja.estig.po2.snowman.app.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * The BoardModel class represents the core game logic and state management for the Snowman game.
@@ -16,7 +17,8 @@ import java.util.Stack;
  * - Tracking game completion state
  * <p>
  * Design patterns used:
- * - Memento Pattern: for undo/redo functionality
+ * - Command Pattern: per-move deltas ({@link MoveDelta}) for undo/redo functionality
+ * - Memento Pattern: periodic keyframes ({@link GameState}) to jump to any move
  * - Observer Pattern: notifies view of state changes
  * <p>
  * Threading: This class is not thread-safe and should be accessed from a single thread.
@@ -28,24 +30,41 @@ public class BoardModel {
 
     /**
      * Core game state components:
-     * - board: 2D grid representing the game board
+     * - grid: packed row-major storage of the board cells
      * - monster: Player-controlled character
-     * - snowballs: Collection of movable snowballs
-     * - history/redoHistory: Stacks for undo/redo functionality
+     * - store: Struct-of-arrays storage of the snowballs, indexed by slot
+     * - snowballs: List view of the snowballs in the store
+     * - snowballAt: Occupancy index holding the slot of the snowball on each cell, or NO_SNOWBALL
+     * - timeline: Per-move deltas and keyframes for undo/redo and seeking
+     * - recording: Delta of the move currently being played, or null outside moveMonster
+     * - zobrist/hash: Keys and incrementally updated Zobrist hash of the cells and snowballs
+     * - visits: How many times each state hash was reached by a move in this session
+     * - snowmanCount: Number of SNOWMAN cells, kept up to date by every cell write
+     * - requiredSnowmen: Number of snowmen needed to complete the level
+     * - par: Optimal number of moves of the level, or -1 if it is not known
      */
-    private final List<List<PositionContent>> board;
+    private final BoardGrid grid;
     private final Monster monster;
-    private final List<Snowball> snowballs;
-    private final Stack<GameState> history;
-    private final Stack<GameState> redoHistory;
+    private final SnowballStore store;
+    private final SnowballList snowballs;
+    private final int[] snowballAt;
+    private final MoveTimeline timeline;
+    private MoveDelta recording;
+    private final ZobristKeys zobrist;
+    private long hash;
+    private final LongIntHashMap visits;
+    private int snowmanCount;
+    private int requiredSnowmen = 1;
+    private int par = -1;
+    private BitGrid walkGrid;
     
     /**
      * Initial state storage for level reset functionality:
-     * - initialBoard: Starting board configuration
+     * - initialCells: Starting board configuration, packed like the grid
      * - initialMonsterPosition: Starting monster position
      * - initialSnowballs: Starting snowball configurations
      */
-    private final List<List<PositionContent>> initialBoard;
+    private final byte[] initialCells;
     private final int initialMonsterRow;
     private final int initialMonsterCol;
     private final List<Snowball> initialSnowballs;
@@ -93,37 +112,52 @@ public class BoardModel {
 
     /**
      * Implementation considerations:
-     * 1. Performance: O(1) for most operations, O(n) for board state copies
-     * 2. Memory usage: Scales with board size and history depth
+     * 1. Performance: O(1) for most operations, board state copies are a single array copy
+     * 2. Memory usage: History scales with the number of changes made, not with the board size
      * 3. Extensibility: Designed for easy addition of new game mechanics
      * <p>
      * Known limitations:
      * 1. Maximum board size restricted to 10x10
      * 2. No support for concurrent modifications
-     * 3. Memory consumption increases with undo history
+     * 3. Memory consumption increases with undo history (a few ints per move) up to its
+     *    budget, after which older moves are spilled to a temporary file
      */
+    private static final int NO_SNOWBALL = -1;
+    static final SnowballType[] SNOWBALL_TYPES = SnowballType.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final byte SNOWMAN = (byte) PositionContent.SNOWMAN.ordinal();
+    private static final byte SNOW = (byte) PositionContent.SNOW.ordinal();
+    private static final byte BLOCK = (byte) PositionContent.BLOCK.ordinal();
     private static final int MIN_BOARD_SIZE = 3;
     private static final int MAX_BOARD_SIZE = 10;
 
     /**
      * Constructs a new BoardModel with the provided initial configuration.
+     * <p>
+     * The board layout is copied into packed storage, so later changes must go through
+     * {@link #setPositionContent} (or the live view returned by {@link #getBoard()}).
      *
      * @param board     The initial game board layout.
      * @param monster   The monster object in the game.
      * @param snowballs The list of snowballs present on the board.
      */
     public BoardModel(List<List<PositionContent>> board, Monster monster, List<Snowball> snowballs) {
-        this.board = board;
+        this.grid = new BoardGrid(board);
+        this.grid.setWriter(this::setPositionContent);
+        this.zobrist = ZobristKeys.forCells(grid.size());
+        this.visits = new LongIntHashMap();
+        this.hash = hashCells(); // Snowballs add their terms as they are attached below
+        this.snowmanCount = countSnowmen();
         this.monster = monster;
-        this.snowballs = snowballs;
-        this.history = new Stack<>();
-        this.redoHistory = new Stack<>();
+        this.snowballAt = new int[grid.size()];
+        Arrays.fill(this.snowballAt, NO_SNOWBALL);
+        this.store = new SnowballStore();
+        this.snowballs = new SnowballList(this, store);
+        this.snowballs.addAll(snowballs);
+        this.timeline = new MoveTimeline();
 
         // Store initial board state
-        this.initialBoard = new ArrayList<>();
-        for (List<PositionContent> row : board) {
-            this.initialBoard.add(new ArrayList<>(row));
-        }
+        this.initialCells = grid.copyCells();
 
         this.initialMonsterRow = monster.getRow();
         this.initialMonsterCol = monster.getCol();
@@ -133,20 +167,23 @@ public class BoardModel {
         for (Snowball snowball : snowballs) {
             this.initialSnowballs.add(new Snowball(snowball.getRow(), snowball.getCol(), snowball.getType()));
         }
+
+        // The starting position counts as the first visit of its state
+        visits.add(stateHash(), 1);
     }
 
     /**
      * @return Number of rows in the board.
      */
     public int getRows() {
-        return board.size();
+        return grid.getRows();
     }
 
     /**
      * @return Number of columns in the board.
      */
     public int getCols() {
-        return board.isEmpty() ? 0 : board.get(0).size();
+        return grid.getCols();
     }
 
     /**
@@ -157,6 +194,9 @@ public class BoardModel {
     }
 
     /**
+     * Returns the snowballs currently on the board. Snowballs added to or removed from
+     * this list are attached to or detached from the board's occupancy index.
+     *
      * @return The list of snowballs currently on the board.
      */
     public List<Snowball> getSnowballs() {
@@ -164,10 +204,20 @@ public class BoardModel {
     }
 
     /**
+     * Returns a live list view of the board layout, kept for callers written against the
+     * nested-list representation. Writes through the row lists update the packed cells.
+     *
      * @return The current board layout.
      */
     public List<List<PositionContent>> getBoard() {
-        return this.board;
+        return grid.asList();
+    }
+
+    /**
+     * @return The packed cell storage backing this board.
+     */
+    BoardGrid getGrid() {
+        return grid;
     }
 
     /**
@@ -179,10 +229,7 @@ public class BoardModel {
      * @throws IndexOutOfBoundsException if indices are out of range.
      */
     public PositionContent getPositionContent(int row, int col) {
-        if (row < 0 || row >= board.size() || col < 0 || col >= board.get(row).size()) {
-            throw new IndexOutOfBoundsException("Row or column is out of bounds");
-        }
-        return board.get(row).get(col);
+        return grid.get(row, col);
     }
 
     /**
@@ -193,7 +240,73 @@ public class BoardModel {
      * @param content New content for the position.
      */
     public void setPositionContent(int row, int col, PositionContent content) {
-        this.board.get(row).set(col, content);
+        byte previous = (byte) grid.get(row, col).ordinal();
+        int index = grid.index(row, col);
+        writeCell(index, (byte) content.ordinal());
+        if (recording != null && previous != content.ordinal()) {
+            recording.record(MoveDelta.CELL, index, previous, content.ordinal());
+        }
+    }
+
+    /**
+     * Writes the packed content of a cell, keeping the state hash and the snowman count up to date.
+     *
+     * @param index  Flat cell index.
+     * @param packed Packed content to write.
+     */
+    private void writeCell(int index, byte packed) {
+        byte previous = grid.getPacked(index);
+        if (previous != packed) {
+            hash ^= zobrist.cell(index, previous) ^ zobrist.cell(index, packed);
+            if (previous == SNOWMAN) snowmanCount--;
+            if (packed == SNOWMAN) snowmanCount++;
+            grid.setPacked(index, packed);
+        }
+    }
+
+    /**
+     * Returns the 64-bit Zobrist hash of the current state: cell contents, snowball
+     * positions and types, and the monster position. Equal states always have equal
+     * hashes, on any board of the same size. Costs O(1).
+     *
+     * @return The hash of the current state.
+     */
+    public long stateHash() {
+        return hash ^ zobrist.monster(grid.index(monster.getRow(), monster.getCol()));
+    }
+
+    /**
+     * Returns how many times the current state has been reached by a move (or by the
+     * start of the level) in this session. A value above 1 means the player is going in
+     * circles.
+     *
+     * @return Number of visits of the current state.
+     */
+    public int getRepetitionCount() {
+        return visits.get(stateHash());
+    }
+
+    /**
+     * @return Number of distinct states reached in this session.
+     */
+    public int getDistinctStateCount() {
+        return visits.size();
+    }
+
+    /**
+     * Computes from scratch the hash of the cells and snowballs, without the monster.
+     */
+    private long hashCells() {
+        long value = 0;
+        for (int i = 0; i < grid.size(); i++) {
+            value ^= zobrist.cell(i, grid.getPacked(i));
+        }
+        for (int i = 0; snowballAt != null && i < snowballAt.length; i++) {
+            if (snowballAt[i] != NO_SNOWBALL) {
+                value ^= zobrist.snowball(i, store.type(snowballAt[i]));
+            }
+        }
+        return value;
     }
 
     /**
@@ -204,10 +317,10 @@ public class BoardModel {
      * @return true if the position is valid; false otherwise.
      */
     public boolean validPosition(int row, int col) {
-        if (row < 0 || row >= board.size() || col < 0 || col >= board.get(0).size()) {
+        if (!grid.contains(row, col)) {
             return false;
         }
-        return board.get(row).get(col) != PositionContent.BLOCK;
+        return grid.getPacked(grid.index(row, col)) != BoardGrid.BLOCK;
     }
 
     /**
@@ -218,95 +331,504 @@ public class BoardModel {
      * @return Snowball at the position or null if none is found.
      */
     public Snowball snowballInPosition(int row, int col) {
-        for (Snowball snowball : snowballs) {
-            if (snowball.getRow() == row && snowball.getCol() == col) {
-                return snowball;
-            }
+        if (!grid.contains(row, col)) {
+            return null;
         }
-        return null;
+        int slot = snowballAt[grid.index(row, col)];
+        return slot == NO_SNOWBALL ? null : store.handle(slot);
     }
 
     /**
-     * Moves the monster in the given direction and saves state for undo.
+     * @return The struct-of-arrays storage of the snowballs of this board.
+     */
+    SnowballStore getSnowballStore() {
+        return store;
+    }
+
+    /**
+     * Puts a snowball on this board: binds it to a slot of the store, inserts the slot in the
+     * list order and records it in the occupancy index. A snowball that left this board
+     * gets its old slot back if no other snowball took it in the meantime.
      *
-     * @param direction Direction to move.
-     * @return true if the monster moved; false otherwise.
+     * @param snowball  The snowball being added to the board.
+     * @param listIndex Position of the snowball in the snowball list.
+     * @throws IllegalStateException if the snowball is already on a board.
      */
-    public boolean moveMonster(Direction direction) {
-        saveState(); // Save current state
-        boolean moved = monster.move(direction, this);
-        if (!moved) {
-            history.pop(); // Discard state if move failed
+    void attachSnowball(Snowball snowball, int listIndex) {
+        if (snowball.owner != null) {
+            throw new IllegalStateException("Snowball already belongs to a board");
+        }
+        int slot = snowball.id;
+        if (slot >= 0 && store.isFree(slot) && slot < store.slotCount() && store.handle(slot) == snowball) {
+            store.claim(slot);
+        } else {
+            slot = store.allocate();
+        }
+        store.bind(slot, snowball, snowball.getRow(), snowball.getCol(), snowball.getType().ordinal());
+        snowball.owner = this;
+        snowball.id = slot;
+        insertSlot(slot, listIndex);
+    }
+
+    /**
+     * Takes the snowball at a position of the list off this board. The snowball keeps its
+     * last position and type, and its slot goes back to the free-list.
+     *
+     * @param listIndex Position of the snowball in the snowball list.
+     */
+    void detachSnowball(int listIndex) {
+        int slot = store.slotAt(listIndex);
+        int index = grid.index(store.row(slot), store.col(slot));
+        if (recording != null) {
+            recording.record(MoveDelta.SNOWBALL_REMOVE, slot, listIndex, packSnowball(index, store.type(slot)));
+        }
+        store.removeAt(listIndex);
+        vacate(slot);
+        store.handle(slot).unbind(store.row(slot), store.col(slot), SNOWBALL_TYPES[store.type(slot)]);
+        store.release(slot);
+    }
+
+    /**
+     * Inserts a live slot into the list order and the occupancy index.
+     */
+    private void insertSlot(int slot, int listIndex) {
+        store.insert(listIndex, slot);
+        occupy(slot);
+        if (recording != null) {
+            int index = grid.index(store.row(slot), store.col(slot));
+            recording.record(MoveDelta.SNOWBALL_ADD, slot, listIndex, packSnowball(index, store.type(slot)));
         }
-        return moved;
     }
 
     /**
-     * Saves the current state of the game for undo purposes.
+     * Packs a cell index and a type ordinal into one journal operand.
      */
-    private void saveState() {
-        history.push(new GameState(this));
-        redoHistory.clear(); // Clear redo history
+    private static int packSnowball(int index, int type) {
+        return index * 8 + type;
     }
 
     /**
-     * Undoes the last move and restores the previous state.
+     * Moves an attached snowball to a new position, updating the occupancy index.
      *
-     * @return true if undo was successful; false otherwise.
+     * @param slot Slot of the snowball being moved.
+     * @param row  New row of the snowball.
+     * @param col  New column of the snowball.
      */
-    public boolean undo() {
-        if (history.isEmpty()) return false;
+    void relocateSnowball(int slot, int row, int col) {
+        if (recording != null) {
+            recording.record(MoveDelta.SNOWBALL_MOVE, slot,
+                    grid.index(store.row(slot), store.col(slot)), grid.index(row, col));
+        }
+        vacate(slot);
+        store.setPosition(slot, row, col);
+        occupy(slot);
+    }
 
-        GameState currentState = new GameState(this);
-        GameState previousState = history.pop();
-        redoHistory.push(currentState);
+    /**
+     * Changes the type of an attached snowball, updating the state hash and recording
+     * the change in the move being played.
+     *
+     * @param slot Slot of the snowball whose type changes.
+     * @param type The new type.
+     */
+    void changeSnowballType(int slot, SnowballType type) {
+        int previous = store.type(slot);
+        if (previous == type.ordinal()) {
+            return;
+        }
+        int row = store.row(slot);
+        int col = store.col(slot);
+        if (grid.contains(row, col) && snowballAt[grid.index(row, col)] == slot) {
+            int index = grid.index(row, col);
+            hash ^= zobrist.snowball(index, previous) ^ zobrist.snowball(index, type.ordinal());
+        }
+        store.setType(slot, type.ordinal());
+        if (recording != null) {
+            recording.record(MoveDelta.SNOWBALL_TYPE, slot, previous, type.ordinal());
+        }
+    }
+
+    /**
+     * Marks the snowball's cell as occupied by it.
+     */
+    private void occupy(int slot) {
+        int row = store.row(slot);
+        int col = store.col(slot);
+        if (grid.contains(row, col)) {
+            int index = grid.index(row, col);
+            snowballAt[index] = slot;
+            hash ^= zobrist.snowball(index, store.type(slot));
+        }
+    }
 
-        // Restore board state
-        for (int i = 0; i < board.size(); i++) {
-            for (int j = 0; j < board.get(i).size(); j++) {
-                board.get(i).set(j, previousState.getBoardState().get(i).get(j));
+    /**
+     * Clears the snowball's cell if the index still points to it.
+     */
+    private void vacate(int slot) {
+        int row = store.row(slot);
+        int col = store.col(slot);
+        if (grid.contains(row, col)) {
+            int index = grid.index(row, col);
+            if (snowballAt[index] == slot) {
+                snowballAt[index] = NO_SNOWBALL;
+                hash ^= zobrist.snowball(index, store.type(slot));
             }
         }
+    }
 
-        // Restore monster state
-        monster.setRow(previousState.getMonsterState().getRow());
-        monster.setCol(previousState.getMonsterState().getCol());
+    /**
+     * Predicts what moving the monster in the given direction would do, following the
+     * same rules as {@link Monster#move} and {@link Snowball#move}, without changing
+     * the board or allocating.
+     *
+     * @param direction Direction to probe.
+     * @return The outcome of the move, or {@link MoveOutcome#BLOCKED} if it is illegal.
+     */
+    public MoveOutcome previewMove(Direction direction) {
+        int row = monster.getRow() + direction.getDeltaRow();
+        int col = monster.getCol() + direction.getDeltaCol();
+        if (!validPosition(row, col)) {
+            return MoveOutcome.BLOCKED;
+        }
+        int slot = snowballAt[grid.index(row, col)];
+        if (slot == NO_SNOWBALL) {
+            return MoveOutcome.STEP;
+        }
 
-        // Restore snowballs
-        snowballs.clear();
-        snowballs.addAll(previousState.getSnowballsState());
+        SnowballType type = SNOWBALL_TYPES[store.type(slot)];
+        int nextRow = row + direction.getDeltaRow();
+        int nextCol = col + direction.getDeltaCol();
+        if (!Snowball.canRoll(type) || !validPosition(nextRow, nextCol)) {
+            return MoveOutcome.BLOCKED;
+        }
+        int otherId = snowballAt[grid.index(nextRow, nextCol)];
+        if (otherId != NO_SNOWBALL) {
+            SnowballType combined = Snowball.calculateCombinedType(type, SNOWBALL_TYPES[store.type(otherId)]);
+            if (combined == null) {
+                return MoveOutcome.BLOCKED;
+            }
+            return combined == SnowballType.COMPLETE ? MoveOutcome.COMPLETE_SNOWMAN : MoveOutcome.COMBINE;
+        }
+        if (grid.getPacked(grid.index(nextRow, nextCol)) == SNOW && type != SnowballType.BIG) {
+            return MoveOutcome.PUSH_AND_GROW;
+        }
+        return MoveOutcome.PUSH;
+    }
+
+    /**
+     * Checks whether the monster can move in the given direction, without changing the board.
+     *
+     * @param direction Direction to probe.
+     * @return true if {@link #moveMonster(Direction)} would succeed; false otherwise.
+     */
+    public boolean canMove(Direction direction) {
+        return previewMove(direction) != MoveOutcome.BLOCKED;
+    }
+
+    /**
+     * Computes the legal moves as a bit mask, without changing the board or allocating.
+     * Bit {@code 1 << direction.ordinal()} is set for every legal direction.
+     *
+     * @return The mask of legal directions.
+     */
+    public int legalMoveMask() {
+        int mask = 0;
+        for (Direction direction : DIRECTIONS) {
+            if (canMove(direction)) {
+                mask |= 1 << direction.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return The directions the monster can currently move in.
+     */
+    public EnumSet<Direction> legalMoves() {
+        EnumSet<Direction> moves = EnumSet.noneOf(Direction.class);
+        int mask = legalMoveMask();
+        for (Direction direction : DIRECTIONS) {
+            if ((mask & (1 << direction.ordinal())) != 0) {
+                moves.add(direction);
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Finds a shortest walk of the monster to a cell that pushes no snowball.
+     * <p>
+     * The search is a breadth-first search over bitsets of the walkable cells (not blocked
+     * and without a snowball), which advances a whole distance layer per step. Among the
+     * shortest walks, one that enters the fewest snow cells is chosen, since walking on
+     * snow clears it.
+     *
+     * @param row The row of the target cell.
+     * @param col The column of the target cell.
+     * @return The directions of the walk, first step first; empty if the monster is already
+     *         there, or null if the cell cannot be reached without pushing a snowball.
+     */
+    public List<Direction> findPath(int row, int col) {
+        if (!grid.contains(row, col)) {
+            return null;
+        }
+        if (walkGrid == null) {
+            walkGrid = new BitGrid(grid.getRows(), grid.getCols());
+        }
+        long[] free = walkGrid.newSet();
+        long[] bare = walkGrid.newSet();
+        for (int i = 0; i < grid.size(); i++) {
+            byte content = grid.getPacked(i);
+            if (content != BLOCK && snowballAt[i] == NO_SNOWBALL) {
+                BitGrid.set(free, i);
+            }
+            if (content != SNOW) {
+                BitGrid.set(bare, i);
+            }
+        }
+        int target = grid.index(row, col);
+        if (!BitGrid.get(free, target)) {
+            return null;
+        }
+        List<long[]> layers = walkGrid.layers(free, grid.index(monster.getRow(), monster.getCol()));
+        Direction[] path = walkGrid.path(layers, target, bare);
+        return path == null ? null : List.of(path);
+    }
 
+    /**
+     * Walks the monster to a cell along {@link #findPath}, as a batch of ordinary moves:
+     * each step is recorded in the history and can be undone on its own.
+     *
+     * @param row The row of the target cell.
+     * @param col The column of the target cell.
+     * @return The number of moves made; 0 if the monster is already there or the cell
+     *         cannot be reached without pushing a snowball.
+     */
+    public int walkTo(int row, int col) {
+        List<Direction> path = findPath(row, col);
+        if (path == null) {
+            return 0;
+        }
+        int moves = 0;
+        for (Direction direction : path) {
+            if (!moveMonster(direction)) {
+                break;
+            }
+            moves++;
+        }
+        return moves;
+    }
+
+    /**
+     * Moves the monster in the given direction and records the changes for undo.
+     * <p>
+     * Once the history has warmed up, a move allocates nothing: the delta and keyframe
+     * objects are recycled from the timeline's pools, snowballs are combined in place and
+     * every lookup goes through primitive arrays.
+     *
+     * @param direction Direction to move.
+     * @return true if the monster moved; false otherwise.
+     */
+    public boolean moveMonster(Direction direction) {
+        if (!canMove(direction)) {
+            return false; // Rejected up front, without recording anything
+        }
+        timeline.beforeMove(this);
+        int from = grid.index(monster.getRow(), monster.getCol());
+        MoveDelta delta = timeline.obtainDelta();
+        recording = delta;
+        boolean moved;
+        try {
+            moved = monster.move(direction, this);
+        } finally {
+            recording = null;
+        }
+        if (!moved) {
+            timeline.recycle(delta); // A failed move changes nothing, so there is nothing to keep
+            return false;
+        }
+        delta.record(MoveDelta.MONSTER, 0, from, grid.index(monster.getRow(), monster.getCol()));
+        timeline.append(delta); // Also discards the undone moves
+        visits.add(stateHash(), 1);
         return true;
     }
 
     /**
-     * Redoes the last undone move and restores the future state.
+     * Undoes the last move by reverting only the changes it made.
+     *
+     * @return true if undo was successful; false otherwise.
+     */
+    public boolean undo() {
+        return timeline.undo(this);
+    }
+
+    /**
+     * Redoes the last undone move by replaying the changes it made.
      *
      * @return true if redo was successful; false otherwise.
      */
     public boolean redo() {
-        if (redoHistory.isEmpty()) return false;
+        return timeline.redo(this);
+    }
+
+    /**
+     * @return Total number of moves in the history, including undone moves that can be redone.
+     */
+    public int getMoveCount() {
+        return timeline.size();
+    }
+
+    /**
+     * @return Number of moves currently applied, i.e. the position in the move history.
+     */
+    public int getMoveIndex() {
+        return timeline.position();
+    }
+
+    /**
+     * Jumps to the state after the given number of moves of the history.
+     * <p>
+     * Costs about one keyframe restore plus at most {@link MoveTimeline#KEYFRAME_INTERVAL}
+     * replayed moves, however long the history is. Moves after the target stay available
+     * for redo.
+     *
+     * @param moveIndex Position to jump to, between 0 and {@link #getMoveCount()}.
+     * @throws IndexOutOfBoundsException if the index is outside the history.
+     */
+    public void seekMove(int moveIndex) {
+        timeline.seek(this, moveIndex);
+    }
+
+    /**
+     * Sets how much heap the move history may use. Older moves beyond the budget are
+     * spilled to a temporary file and read back when undoing or seeking that far.
+     *
+     * @param bytes The history memory budget, in bytes.
+     * @throws IllegalArgumentException if the budget is negative.
+     */
+    public void setHistoryMemoryBudget(long bytes) {
+        timeline.setMemoryBudget(bytes);
+    }
 
-        GameState currentState = new GameState(this);
-        GameState redoState = redoHistory.pop();
-        history.push(currentState);
+    /**
+     * @return Approximate number of heap bytes used by the move history.
+     */
+    public long getHistoryMemoryBytes() {
+        return timeline.memoryBytes();
+    }
 
-        // Restore board state
-        for (int i = 0; i < board.size(); i++) {
-            for (int j = 0; j < board.get(i).size(); j++) {
-                board.get(i).set(j, redoState.getBoardState().get(i).get(j));
+    /**
+     * @return Number of bytes of move history spilled to disk.
+     */
+    public long getHistorySpilledBytes() {
+        return timeline.spilledBytes();
+    }
+
+    /**
+     * Restores a full keyframe of the board, putting the snowballs back in the same
+     * slots that the move deltas refer to.
+     *
+     * @param state The keyframe to restore.
+     */
+    void restoreKeyframe(GameState state) {
+        grid.restoreCells(state.getCells());
+        monster.setRow(state.getMonsterState().getRow());
+        monster.setCol(state.getMonsterState().getCol());
+
+        // Release the handles of the snowballs on the board, then swap in the saved arrays
+        for (int i = 0; i < store.size(); i++) {
+            int slot = store.slotAt(i);
+            store.handle(slot).unbind(store.row(slot), store.col(slot), SNOWBALL_TYPES[store.type(slot)]);
+        }
+        store.restore(state.getSnowballIds(), state.getSnowballRows(), state.getSnowballCols(),
+                state.getSnowballTypes());
+        Arrays.fill(snowballAt, NO_SNOWBALL);
+        for (int i = 0; i < store.size(); i++) {
+            int slot = store.slotAt(i);
+            Snowball handle = store.handle(slot);
+            if (handle == null) {
+                handle = new Snowball(store.row(slot), store.col(slot), SNOWBALL_TYPES[store.type(slot)]);
+                store.bind(slot, handle, store.row(slot), store.col(slot), store.type(slot));
             }
+            handle.owner = this;
+            handle.id = slot;
+            snowballAt[grid.index(store.row(slot), store.col(slot))] = slot;
         }
+        hash = hashCells();
+        snowmanCount = countSnowmen();
+    }
 
-        // Restore monster state
-        monster.setRow(redoState.getMonsterState().getRow());
-        monster.setCol(redoState.getMonsterState().getCol());
+    /**
+     * Restores the packed content of a cell while undoing or redoing a move.
+     *
+     * @param index  Flat cell index.
+     * @param packed Packed content to write.
+     */
+    void restoreCell(int index, byte packed) {
+        writeCell(index, packed);
+    }
 
-        // Restore snowballs
-        snowballs.clear();
-        snowballs.addAll(redoState.getSnowballsState());
+    /**
+     * Moves a snowball back or forth while undoing or redoing a move.
+     *
+     * @param slot  Slot of the snowball.
+     * @param index Flat index of the cell to place it on.
+     */
+    void restoreSnowballPosition(int slot, int index) {
+        relocateSnowball(slot, index / grid.getCols(), index % grid.getCols());
+    }
 
-        return true;
+    /**
+     * Restores the type of a snowball while undoing or redoing a move.
+     *
+     * @param slot Slot of the snowball.
+     * @param type Ordinal of the type to restore.
+     */
+    void restoreSnowballType(int slot, int type) {
+        changeSnowballType(slot, SNOWBALL_TYPES[type]);
+    }
+
+    /**
+     * Puts a snowball back on the board in the slot the move history refers to, while
+     * undoing or redoing a move. The slot's handle is reused when it still has one.
+     *
+     * @param slot      Slot of the snowball.
+     * @param listIndex Position to insert it at in the snowball list.
+     * @param packed    Cell index and type ordinal, as packed in the journal.
+     */
+    void restoreSnowball(int slot, int listIndex, int packed) {
+        int index = packed / 8;
+        int row = index / grid.getCols();
+        int col = index % grid.getCols();
+        int type = packed % 8;
+        Snowball handle = slot < store.slotCount() ? store.handle(slot) : null;
+        if (handle == null || handle.owner != null) {
+            handle = new Snowball(row, col, SNOWBALL_TYPES[type]);
+        }
+        store.claim(slot);
+        store.bind(slot, handle, row, col, type);
+        handle.owner = this;
+        handle.id = slot;
+        insertSlot(slot, listIndex);
+    }
+
+    /**
+     * Takes a snowball off the board while undoing or redoing a move.
+     *
+     * @param listIndex Position of the snowball in the snowball list.
+     */
+    void discardSnowball(int listIndex) {
+        detachSnowball(listIndex);
+    }
+
+    /**
+     * Places the monster back or forth while undoing or redoing a move.
+     *
+     * @param index Flat index of the cell to place it on.
+     */
+    void restoreMonster(int index) {
+        monster.setRow(index / grid.getCols());
+        monster.setCol(index % grid.getCols());
     }
 
     /**
@@ -314,15 +836,10 @@ public class BoardModel {
      * Clears the undo/redo history and restores the initial board, monster, and snowballs.
      */
     public void resetLevel() {
-        history.clear();
-        redoHistory.clear();
+        timeline.clear();
 
         // Restore initial board
-        for (int i = 0; i < board.size(); i++) {
-            for (int j = 0; j < board.get(i).size(); j++) {
-                board.get(i).set(j, initialBoard.get(i).get(j));
-            }
-        }
+        grid.restoreCells(initialCells);
 
         // Restore monster
         monster.setRow(initialMonsterRow);
@@ -333,22 +850,83 @@ public class BoardModel {
         for (Snowball snowball : initialSnowballs) {
             snowballs.add(new Snowball(snowball.getRow(), snowball.getCol(), snowball.getType()));
         }
+        hash = hashCells();
+        snowmanCount = countSnowmen();
+
+        // A reset starts a new session of the level
+        visits.clear();
+        visits.add(stateHash(), 1);
     }
 
     /**
      * Checks whether the level is complete.
-     * A level is considered complete if at least one snowman exists on the board.
+     * A level is considered complete once the board holds the required number of snowmen
+     * (one by default). Costs O(1), as the snowman count is maintained incrementally.
      *
      * @return true if the level is complete; false otherwise.
      */
     public boolean isLevelComplete() {
-        for (int row = 0; row < getRows(); row++) {
-            for (int col = 0; col < getCols(); col++) {
-                if (getPositionContent(row, col) == PositionContent.SNOWMAN) {
-                    return true;
-                }
+        return snowmanCount >= requiredSnowmen;
+    }
+
+    /**
+     * @return Number of complete snowmen currently on the board.
+     */
+    public int getSnowmanCount() {
+        return snowmanCount;
+    }
+
+    /**
+     * @return Number of snowmen needed to complete the level.
+     */
+    public int getRequiredSnowmen() {
+        return requiredSnowmen;
+    }
+
+    /**
+     * Sets how many snowmen are needed to complete the level.
+     *
+     * @param requiredSnowmen Number of snowmen, at least 1.
+     * @throws IllegalArgumentException if the number is lower than 1.
+     */
+    public void setRequiredSnowmen(int requiredSnowmen) {
+        if (requiredSnowmen < 1) {
+            throw new IllegalArgumentException("A level needs at least one snowman");
+        }
+        this.requiredSnowmen = requiredSnowmen;
+    }
+
+    /**
+     * @return Optimal number of moves of the level from its starting position, or -1 if it
+     *         is not known.
+     */
+    public int getPar() {
+        return par;
+    }
+
+    /**
+     * Sets the optimal number of moves of the level.
+     *
+     * @param par Number of moves, or -1 if it is not known.
+     * @throws IllegalArgumentException if the number is lower than -1.
+     */
+    public void setPar(int par) {
+        if (par < -1) {
+            throw new IllegalArgumentException("The par must be a number of moves or -1");
+        }
+        this.par = par;
+    }
+
+    /**
+     * Counts the SNOWMAN cells with a full scan, after bulk restores of the cells.
+     */
+    private int countSnowmen() {
+        int count = 0;
+        for (int i = 0; i < grid.size(); i++) {
+            if (grid.getPacked(i) == SNOWMAN) {
+                count++;
             }
         }
-        return false;
+        return count;
     }
 }
\ No newline at end of file
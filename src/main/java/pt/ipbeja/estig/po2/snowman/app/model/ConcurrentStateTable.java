@@ -0,0 +1,115 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ConcurrentStateTable class is the transposition table of the parallel solver.
+ * <p>
+ * The table is split into lock-striped segments, each one a {@link StateTable} guarded by
+ * its own lock. A state always goes to the segment selected by its hash, so threads that
+ * add different states rarely wait for each other. A node is identified by its segment and
+ * its number inside that segment, packed into one int, and parent links may point into any
+ * segment.
+ * <p>
+ * Key Responsibilities:
+ * - Add a state only if no thread has added it before, atomically.
+ * - Count the nodes of all segments, so searches can stop at a state limit.
+ * - Rebuild the move sequence to any node across segments.
+ * <p>
+ * Threading: This class is thread-safe. Searches keep the states they still have to
+ * expand in their own frontier, so the table is only read to rebuild the solution.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class ConcurrentStateTable {
+
+    /**
+     * Number of segments, a power of two, and the bits of a node id that select one.
+     */
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    private final StateTable[] segments;
+    private final AtomicInteger size;
+
+    /**
+     * Creates an empty table.
+     */
+    ConcurrentStateTable() {
+        this.segments = new StateTable[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new StateTable();
+        }
+        this.size = new AtomicInteger();
+    }
+
+    /**
+     * @return Number of nodes in the table.
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Adds a state unless it is already in the table.
+     *
+     * @param state  The state, which must not be modified afterwards.
+     * @param hash   The hash of the state.
+     * @param parent Node the state was reached from, or {@link StateTable#NONE} for the root.
+     * @param move   Ordinal of the direction that reached the state from its parent.
+     * @param depth  Number of moves from the root.
+     * @return The id of the new node, or {@link StateTable#NONE} if the state was present.
+     */
+    int addIfAbsent(byte[] state, long hash, int parent, int move, int depth) {
+        int index = (int) (LongIntHashMap.mix(hash) >>> (64 - SEGMENT_BITS));
+        StateTable segment = segments[index];
+        int local;
+        synchronized (segment) {
+            if (segment.find(state, hash) != StateTable.NONE) {
+                return StateTable.NONE;
+            }
+            local = segment.add(state, hash, parent, move, depth);
+        }
+        size.incrementAndGet();
+        return local << SEGMENT_BITS | index;
+    }
+
+    int depth(int node) {
+        StateTable segment = segments[node & (SEGMENTS - 1)];
+        synchronized (segment) {
+            return segment.depth(node >>> SEGMENT_BITS);
+        }
+    }
+
+    /**
+     * @return Bytes held by all the segments, approximately.
+     */
+    long memoryBytes() {
+        long bytes = 0;
+        for (StateTable segment : segments) {
+            synchronized (segment) {
+                bytes += segment.memoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Rebuilds the moves from the root to a node.
+     *
+     * @param node The last node of the path.
+     * @return The direction ordinals of the moves, first move first.
+     */
+    int[] pathTo(int node) {
+        int[] path = new int[depth(node)];
+        for (int i = path.length - 1; i >= 0; i--) {
+            StateTable segment = segments[node & (SEGMENTS - 1)];
+            synchronized (segment) {
+                int local = node >>> SEGMENT_BITS;
+                path[i] = segment.move(local);
+                node = segment.parent(local);
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,117 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+/**
+ * The DeadlockDetector class tells when a level can no longer be completed.
+ * <p>
+ * When it is created, it computes the dead squares of the board layout: the cells where a
+ * SMALL, MID or BIG snowball can never be pushed again, because a block or the board edge
+ * closes it along both the row and the column, like a corner. Blocks never move, so this
+ * only depends on the layout and is computed once per level.
+ * <p>
+ * At run time it also finds frozen snowballs, closed on both axes by blocks, edges or
+ * snowballs that can neither roll nor combine (MID_SMALL and BIG_SMALL), and checks
+ * whether the snowballs that can still take part in a snowman are enough to build the
+ * missing ones. A snowman always needs a BIG and a MID snowball combined into a BIG_MID
+ * and a movable SMALL one pushed onto it, and snowballs never shrink.
+ * <p>
+ * Key Responsibilities:
+ * - Precompute the dead squares of a board layout.
+ * - Detect frozen snowballs on a board.
+ * - Detect boards where the level is lost, for the player and for the solvers.
+ * <p>
+ * Threading: Instances are immutable and can be shared between threads; the boards passed
+ * to them must not be modified during a call.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class DeadlockDetector {
+
+    private final SearchSpace space;
+
+    /**
+     * Dead squares of the layout, indexed by cell.
+     */
+    private final boolean[] deadSquares;
+
+    /**
+     * Creates the detector of a level.
+     *
+     * @param level The level whose layout is analysed.
+     */
+    public DeadlockDetector(Level level) {
+        this(level.createBoardModel());
+    }
+
+    /**
+     * Creates the detector of a board. Only its size, its blocks and its number of
+     * required snowmen are used, so the detector stays valid for every later state of
+     * the same board.
+     *
+     * @param board The board whose layout is analysed.
+     */
+    public DeadlockDetector(BoardModel board) {
+        this.space = new SearchSpace(board);
+        this.deadSquares = new boolean[space.cells()];
+        for (int i = 0; i < deadSquares.length; i++) {
+            deadSquares[i] = !space.isMovable(i)
+                    && board.getPositionContent(i / space.getCols(), i % space.getCols()) != PositionContent.BLOCK;
+        }
+    }
+
+    /**
+     * Checks whether a cell is a dead square.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return true if a snowball on the cell can never be pushed; false for blocks.
+     */
+    public boolean isDeadSquare(int row, int col) {
+        checkBounds(row, col);
+        return deadSquares[row * space.getCols() + col];
+    }
+
+    /**
+     * @return Number of dead squares of the layout, blocks excluded.
+     */
+    public int getDeadSquareCount() {
+        int count = 0;
+        for (boolean dead : deadSquares) {
+            if (dead) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the snowball on a cell of a board can never be pushed again.
+     *
+     * @param board A board with the layout of this detector.
+     * @param row   The row of the cell.
+     * @param col   The column of the cell.
+     * @return true if there is a snowball on the cell and it is frozen; false otherwise.
+     */
+    public boolean isFrozen(BoardModel board, int row, int col) {
+        checkBounds(row, col);
+        byte[] state = space.encode(board);
+        int index = row * space.getCols() + col;
+        return SearchSpace.ball(state, index) >= 0 && !space.canMove(state, index);
+    }
+
+    /**
+     * Checks whether a board can no longer reach the number of snowmen its level needs,
+     * whatever the player does next.
+     *
+     * @param board A board with the layout of this detector.
+     * @return true if the level is lost; false if it is complete or may still be completed.
+     */
+    public boolean isLost(BoardModel board) {
+        return space.estimate(space.encode(board)) == Integer.MAX_VALUE;
+    }
+
+    private void checkBounds(int row, int col) {
+        if (row < 0 || row >= space.getRows() || col < 0 || col >= space.getCols()) {
+            throw new IndexOutOfBoundsException("Row or column is out of bounds");
+        }
+    }
+}
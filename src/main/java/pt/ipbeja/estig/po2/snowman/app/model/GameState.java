@@ -6,7 +6,8 @@ import java.util.List;
 /**
  * The GameState class represents a snapshot of the game's state at a specific point in time.
  * <p>
- * This class is utilized for features like undo, redo, and level resetting. It captures and stores
+ * This class is used as the keyframe of the move timeline, which restores it when jumping to
+ * a move far from the current one instead of stepping through every delta. It captures and stores
  * critical aspects of the game state, including the board layout, the monster's position, and
  * the states of all snowballs on the board. By creating deep copies of these elements, the
  * GameState class ensures immutability and independence from the current game state.
@@ -21,7 +22,8 @@ import java.util.List;
  * - Optimized for repeated operations like state saving, retrieval, and comparison
  * <p>
  * Thread-Safety Note:
- * - Instances of GameState are immutable and inherently thread-safe.
+ * - Published instances of GameState are never modified and are safe to read from any thread;
+ *   only the move timeline refills the keyframes it owns, through {@link #capture}.
  * - However, concurrent access to the BoardModel instance used to create snapshots should be synchronized externally.
  *
  *  @author Ângelo Dias(24288), Edgar Brito(22895)
@@ -29,9 +31,14 @@ import java.util.List;
 public class GameState {
 
     /**
-     * A deep copy of the board grid at the time of snapshot
+     * A copy of the packed board cells at the time of snapshot
      */
-    private final List<List<PositionContent>> boardState;
+    private byte[] cells;
+
+    /**
+     * Number of columns of the snapshot board, needed to unpack the cells
+     */
+    private final int cols;
 
     /**
      * A snapshot of the monster's position and state
@@ -39,9 +46,16 @@ public class GameState {
     private final Monster monsterState;
 
     /**
-     * A deep copy of the list of snowballs' positions and types
+     * The store slots of the snowballs on the board, in list order
+     */
+    private int[] snowballIds;
+
+    /**
+     * Copies of the snowball store arrays: rows, columns and type ordinals, indexed by slot
      */
-    private final List<Snowball> snowballsState;
+    private int[] snowballRows;
+    private int[] snowballCols;
+    private byte[] snowballTypes;
 
     /**
      * Constructs a new GameState by taking a snapshot of the current game state.
@@ -53,33 +67,143 @@ public class GameState {
      * @param board The {@link BoardModel} instance representing the current game state
      */
     public GameState(BoardModel board) {
-        // Deep copy of the board layout
-        this.boardState = new ArrayList<>();
-        for (List<PositionContent> row : board.getBoard()) {
-            this.boardState.add(new ArrayList<>(row));
+        this.cols = board.getCols();
+        this.monsterState = new Monster(board.getMonster().getRow(), board.getMonster().getCol());
+        capture(board);
+    }
+
+    /**
+     * Overwrites this snapshot with the current state of a board of the same size.
+     * <p>
+     * Only used by the move timeline to recycle keyframes it no longer needs: the arrays
+     * are reused when they have the right length, so refilling a keyframe of a board whose
+     * snowball count did not change allocates nothing.
+     *
+     * @param board The board to capture, with the same number of columns as this snapshot.
+     */
+    void capture(BoardModel board) {
+        // Copy of the packed board layout
+        BoardGrid grid = board.getGrid();
+        if (cells == null || cells.length != grid.size()) {
+            cells = new byte[grid.size()];
         }
+        grid.copyCellsTo(cells);
 
-        // Deep copy of the monster's position
-        this.monsterState = new Monster(board.getMonster().getRow(), board.getMonster().getCol());
+        // Copy of the monster's position
+        monsterState.setRow(board.getMonster().getRow());
+        monsterState.setCol(board.getMonster().getCol());
+
+        // Copy of the snowball store arrays
+        SnowballStore store = board.getSnowballStore();
+        if (snowballIds == null || snowballIds.length != store.size()) {
+            snowballIds = new int[store.size()];
+        }
+        int slots = store.slotCount();
+        if (snowballRows == null || snowballRows.length != slots) {
+            snowballRows = new int[slots];
+            snowballCols = new int[slots];
+            snowballTypes = new byte[slots];
+        }
+        store.copyOrderTo(snowballIds);
+        store.copySlotsTo(snowballRows, snowballCols, snowballTypes);
+    }
 
-        // Deep copy of the snowballs
-        this.snowballsState = new ArrayList<>();
-        for (Snowball snowball : board.getSnowballs()) {
-            this.snowballsState.add(
-                    new Snowball(snowball.getRow(), snowball.getCol(), snowball.getType())
-            );
+    /**
+     * Recreates a snapshot from a record produced by {@link #toRecord()}.
+     *
+     * @param record The serialized snapshot.
+     */
+    GameState(int[] record) {
+        this.cols = record[0];
+        this.monsterState = new Monster(record[1], record[2]);
+        int count = record[3];
+        int slots = 0;
+        for (int i = 0; i < count; i++) {
+            slots = Math.max(slots, record[4 + 4 * i] + 1);
+        }
+        this.snowballIds = new int[count];
+        this.snowballRows = new int[slots];
+        this.snowballCols = new int[slots];
+        this.snowballTypes = new byte[slots];
+        int next = 4;
+        for (int i = 0; i < count; i++, next += 4) {
+            int slot = record[next];
+            this.snowballIds[i] = slot;
+            this.snowballRows[slot] = record[next + 1];
+            this.snowballCols[slot] = record[next + 2];
+            this.snowballTypes[slot] = (byte) record[next + 3];
+        }
+        this.cells = new byte[record[next++]];
+        for (int i = 0; i < cells.length; i++) {
+            this.cells[i] = (byte) record[next + i];
+        }
+    }
+
+    /**
+     * Serializes this snapshot as an int record, suitable for spilling to disk.
+     * Layout: cols, monster row, monster col, snowball count, (id, row, col, type) per snowball,
+     * cell count, then one int per cell.
+     *
+     * @return The serialized snapshot.
+     */
+    int[] toRecord() {
+        int[] record = new int[5 + 4 * snowballIds.length + cells.length];
+        record[0] = cols;
+        record[1] = monsterState.getRow();
+        record[2] = monsterState.getCol();
+        record[3] = snowballIds.length;
+        int next = 4;
+        for (int i = 0; i < snowballIds.length; i++, next += 4) {
+            int slot = snowballIds[i];
+            record[next] = slot;
+            record[next + 1] = snowballRows[slot];
+            record[next + 2] = snowballCols[slot];
+            record[next + 3] = snowballTypes[slot];
+        }
+        record[next++] = cells.length;
+        for (int i = 0; i < cells.length; i++) {
+            record[next + i] = cells[i];
         }
+        return record;
     }
 
     /**
-     * Retrieves the saved board layout for this snapshot.
+     * @return Approximate heap footprint of this snapshot, in bytes.
+     */
+    long estimatedBytes() {
+        return 64 + 16 + cells.length + 16 + 4L * snowballIds.length
+                + 48 + 9L * snowballTypes.length;
+    }
+
+    /**
+     * Retrieves the saved board layout for this snapshot as nested lists.
+     * <p>
+     * The lists are decoded from the packed cells on every call; prefer the packed
+     * form inside the model.
      *
      * @return A deep copy of the board state at the time of this snapshot
      */
     public List<List<PositionContent>> getBoardState() {
+        List<List<PositionContent>> boardState = new ArrayList<>();
+        for (int start = 0; start < cells.length; start += cols) {
+            List<PositionContent> row = new ArrayList<>(cols);
+            for (int col = 0; col < cols; col++) {
+                row.add(BoardGrid.CONTENTS[cells[start + col]]);
+            }
+            boardState.add(row);
+        }
         return boardState;
     }
 
+    /**
+     * Retrieves the saved board layout in packed form.
+     *
+     * @return The packed cells at the time of this snapshot
+     */
+    byte[] getCells() {
+        return cells;
+    }
+
     /**
      * Retrieves the saved position and state of the monster for this snapshot.
      *
@@ -91,12 +215,50 @@ public class GameState {
 
     /**
      * Retrieves the saved list of all snowballs for this snapshot.
+     * <p>
+     * The snowballs are decoded from the saved store arrays on every call.
      *
      * @return A deep copy of all snowballs at the time of this snapshot
      */
     public List<Snowball> getSnowballsState() {
+        List<Snowball> snowballsState = new ArrayList<>(snowballIds.length);
+        for (int slot : snowballIds) {
+            snowballsState.add(new Snowball(snowballRows[slot], snowballCols[slot],
+                    BoardModel.SNOWBALL_TYPES[snowballTypes[slot]]));
+        }
         return snowballsState;
     }
 
+    /**
+     * Retrieves the store slots of the saved snowballs, so a restore can put back the same
+     * snowballs the move deltas refer to.
+     *
+     * @return The snowball slots, in list order
+     */
+    int[] getSnowballIds() {
+        return snowballIds;
+    }
+
+    /**
+     * @return The saved snowball rows, indexed by slot
+     */
+    int[] getSnowballRows() {
+        return snowballRows;
+    }
+
+    /**
+     * @return The saved snowball columns, indexed by slot
+     */
+    int[] getSnowballCols() {
+        return snowballCols;
+    }
+
+    /**
+     * @return The saved snowball type ordinals, indexed by slot
+     */
+    byte[] getSnowballTypes() {
+        return snowballTypes;
+    }
+
 
 }
\ No newline at end of file
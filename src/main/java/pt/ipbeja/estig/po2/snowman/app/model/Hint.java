@@ -0,0 +1,92 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+/**
+ * The Hint class is the answer of the {@link HintEngine}: the move it suggests to the player.
+ * <p>
+ * A hint either belongs to a complete solution, in which case it also tells how many moves
+ * are left to complete the level, or is only the best first move the engine found within
+ * its time budget. A board whose level is lost, or that is already complete, gets a hint
+ * without a direction, and so does a search that ran out of time before finding a first
+ * move worth suggesting.
+ * <p>
+ * Instances are immutable and thread-safe.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public final class Hint {
+
+    private final Direction direction;
+    private final int movesToGoal;
+    private final boolean lost;
+    private final boolean cached;
+
+    /**
+     * Creates a hint.
+     *
+     * @param direction   The suggested move, or null if there is none.
+     * @param movesToGoal Moves left to complete the level along a solution, or -1 if the
+     *                    hint is not part of a known solution.
+     * @param lost        Whether the level was proven impossible to complete.
+     * @param cached      Whether the hint was answered from the cache.
+     */
+    Hint(Direction direction, int movesToGoal, boolean lost, boolean cached) {
+        this.direction = direction;
+        this.movesToGoal = movesToGoal;
+        this.lost = lost;
+        this.cached = cached;
+    }
+
+    /**
+     * @return The suggested move, or null if there is no move to suggest.
+     */
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return true if the suggested move is the first move of a complete solution.
+     */
+    public boolean isSolution() {
+        return movesToGoal >= 0;
+    }
+
+    /**
+     * @return Moves left to complete the level along the solution, or -1 if the hint is
+     *         not part of a known solution.
+     */
+    public int getMovesToGoal() {
+        return movesToGoal;
+    }
+
+    /**
+     * @return true if the level can no longer be completed from this position.
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    /**
+     * @return true if the hint came from the cache, without searching.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * @return A copy of this hint marked as answered from the cache.
+     */
+    Hint fromCache() {
+        return cached ? this : new Hint(direction, movesToGoal, lost, true);
+    }
+
+    @Override
+    public String toString() {
+        if (direction == null) {
+            if (lost) {
+                return "No move to suggest, the level is lost";
+            }
+            return isSolution() ? "No move to suggest" : "No move found in time";
+        }
+        return isSolution() ? direction + " (" + movesToGoal + " moves to go)" : direction + " (best guess)";
+    }
+}
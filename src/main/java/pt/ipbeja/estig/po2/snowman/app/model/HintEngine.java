@@ -0,0 +1,256 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The HintEngine class suggests the next move to the player.
+ * <p>
+ * A hint request takes a snapshot of the board on the calling thread, which only costs a
+ * copy of the cells, and runs an A* {@link Solver} on that snapshot in a background thread
+ * for at most a configurable number of milliseconds. If the search completes the level in
+ * time, the hint is the first move of an optimal solution; otherwise it is the first move
+ * towards the most promising state the search reached. The caller gets a
+ * {@link CompletableFuture} and is never blocked.
+ * <p>
+ * Only one search runs at a time: a new request, or {@link #cancel()}, cancels the search
+ * that was running. Final answers are kept in a bounded cache keyed by board state: every
+ * state along a solution is cached with its own next move, so a player who follows the
+ * hints gets every next hint instantly, and a lost state is cached as lost. Best guesses of
+ * searches that ran out of time are not cached, so asking again searches again, under the
+ * budget in force at that time. The cache keys are canonical forms
+ * ({@link Symmetry}), so a state also gets the hint of any rotation or reflection of it,
+ * with the direction turned back.
+ * <p>
+ * Key Responsibilities:
+ * - Run hint searches in the background under a time budget.
+ * - Cancel the running search when the board changes.
+ * - Cache the hints of the states already analysed.
+ * <p>
+ * Threading: All public methods are thread-safe and return immediately. The futures are
+ * completed on the engine's background thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class HintEngine implements AutoCloseable {
+
+    /**
+     * Default time budget of a hint search, in milliseconds.
+     */
+    public static final long DEFAULT_BUDGET_MILLIS = 500;
+
+    /**
+     * Maximum number of cached hints; the least recently used ones are dropped first.
+     */
+    private static final int CACHE_SIZE = 4096;
+
+    private final ExecutorService executor;
+    private final Map<StateKey, Hint> cache;
+    private long budgetMillis;
+
+    /**
+     * The search that is running and the future it will complete, or null.
+     */
+    private Solver running;
+    private CompletableFuture<Hint> pending;
+
+    /**
+     * Creates a hint engine with its own background thread.
+     */
+    public HintEngine() {
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "snowman-hint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StateKey, Hint> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        this.budgetMillis = DEFAULT_BUDGET_MILLIS;
+    }
+
+    /**
+     * Sets the time budget of the next searches.
+     *
+     * @param millis The budget in milliseconds, at least 1.
+     */
+    public synchronized void setBudgetMillis(long millis) {
+        if (millis < 1) {
+            throw new IllegalArgumentException("The hint budget must be positive");
+        }
+        this.budgetMillis = millis;
+    }
+
+    /**
+     * @return The time budget of a search, in milliseconds.
+     */
+    public synchronized long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /**
+     * Requests a hint for the current state of a board, cancelling the previous request.
+     * The board is only read during this call.
+     *
+     * @param board The board the player is playing.
+     * @return A future completed with the hint, already completed if the state was
+     *         analysed before, or cancelled if a later request or {@link #cancel()} comes
+     *         first.
+     */
+    public synchronized CompletableFuture<Hint> requestHint(BoardModel board) {
+        cancel();
+        SearchSpace space = new SearchSpace(board);
+        byte[] state = space.encode(board);
+        Hint cached = lookup(space, state);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        Solver solver = new Solver(Solver.Strategy.A_STAR);
+        solver.setTimeLimitMillis(budgetMillis);
+        CompletableFuture<Hint> future = new CompletableFuture<>();
+        running = solver;
+        pending = future;
+        executor.execute(() -> search(space, state, solver, future));
+        return future;
+    }
+
+    /**
+     * Cancels the running search, if any, and its future.
+     */
+    public synchronized void cancel() {
+        if (running != null) {
+            running.cancel();
+            pending.cancel(false);
+            running = null;
+            pending = null;
+        }
+    }
+
+    /**
+     * @return Number of states whose hint is cached.
+     */
+    public synchronized int getCachedCount() {
+        return cache.size();
+    }
+
+    /**
+     * Cancels the running search and stops the background thread.
+     */
+    @Override
+    public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs a hint search on the background thread.
+     */
+    private void search(SearchSpace space, byte[] state, Solver solver, CompletableFuture<Hint> future) {
+        if (future.isDone()) {
+            return; // Cancelled while waiting for the thread
+        }
+        SolverResult result = solver.solve(space, state);
+        if (result.getStatus() == SolverResult.Status.CANCELLED) {
+            return;
+        }
+        List<Direction> moves = result.getMoves();
+        Hint hint;
+        synchronized (this) {
+            if (result.isSolved()) {
+                cacheSolution(space, state, moves);
+                hint = new Hint(moves.isEmpty() ? null : moves.get(0), moves.size(), false, false);
+            } else if (result.getStatus() == SolverResult.Status.UNSOLVABLE) {
+                hint = new Hint(null, -1, true, false);
+                store(space, state, hint);
+            } else {
+                // Interrupted searches give their best guess, which a longer search may beat
+                hint = new Hint(moves.isEmpty() ? null : moves.get(0), -1, false, false);
+            }
+            if (pending == future) {
+                running = null;
+                pending = null;
+            }
+        }
+        future.complete(hint);
+    }
+
+    /**
+     * Caches every state along a solution with the move that follows it.
+     */
+    private void cacheSolution(SearchSpace space, byte[] state, List<Direction> moves) {
+        long hash = space.hash(state);
+        for (int i = 0; i <= moves.size(); i++) {
+            Direction next = i < moves.size() ? moves.get(i) : null;
+            store(space, state, new Hint(next, moves.size() - i, false, false));
+            if (next != null) {
+                byte[] child = new byte[state.length];
+                hash = space.apply(state, hash, next, child);
+                state = child;
+            }
+        }
+    }
+
+    /**
+     * Caches the hint of a state under its canonical form, with the direction as seen on it.
+     */
+    private void store(SearchSpace space, byte[] state, Hint hint) {
+        Symmetry symmetry = space.symmetry();
+        int s = symmetry.canonicalSymmetry(state);
+        if (s == 0) {
+            cache.put(new StateKey(state, space.hash(state)), hint);
+            return;
+        }
+        byte[] key = symmetry.apply(state, s);
+        Direction direction = hint.getDirection() == null ? null : symmetry.map(s, hint.getDirection());
+        Hint canonical = new Hint(direction, hint.getMovesToGoal(), hint.isLost(), false);
+        cache.put(new StateKey(key, space.hash(key)), canonical);
+    }
+
+    /**
+     * @return The cached hint of a state, turned back from its canonical form and marked as
+     *         cached, or null if the state was not analysed.
+     */
+    private Hint lookup(SearchSpace space, byte[] state) {
+        Symmetry symmetry = space.symmetry();
+        int s = symmetry.canonicalSymmetry(state);
+        byte[] key = s == 0 ? state : symmetry.apply(state, s);
+        Hint hint = cache.get(new StateKey(key, space.hash(key)));
+        if (hint == null || s == 0 || hint.getDirection() == null) {
+            return hint == null ? null : hint.fromCache();
+        }
+        return new Hint(symmetry.unmap(s, hint.getDirection()), hint.getMovesToGoal(), false, true);
+    }
+
+    /**
+     * Cache key: a full search state, compared by content, with its Zobrist hash.
+     */
+    private static final class StateKey {
+
+        private final byte[] state;
+        private final long hash;
+
+        StateKey(byte[] state, long hash) {
+            this.state = state;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StateKey key && key.hash == hash && Arrays.equals(key.state, state);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * The IdaSearch class runs the iterative-deepening A* search of the {@link Solver}.
+ * <p>
+ * Each iteration is a depth-first search that cuts every line whose depth plus estimate
+ * ({@link SearchSpace#estimate}) exceeds a threshold; the next iteration raises the
+ * threshold to the smallest value that was cut. Since the estimate never overestimates,
+ * the first solution found is a shortest one. The search only keeps the current line,
+ * one state per move, so its memory does not grow with the number of states it visits.
+ * <p>
+ * Depth-first search on its own visits the same state again through every move order that
+ * reaches it. A {@link TranspositionTable} of the states seen removes most of those repeats:
+ * it lives outside the heap, has a fixed number of entries, each holding a state's key with
+ * the iteration and the depth at which it was last reached, and drops old entries when it is
+ * full. A state found in the table at the same or a smaller depth of the same iteration is
+ * skipped, since its moves were already searched with at least as much room left, or it is
+ * an ancestor of the current line. Dropping an entry only forgets a state, so the table
+ * never costs optimality. Each entry also keeps the most promising move from its state,
+ * the one whose line was cut at the lowest cost, and the next iteration tries that move
+ * first, which finds the solution earlier in the last iteration.
+ * With a {@link Symmetry}, the keys are those of canonical forms, so a state is also skipped
+ * when a rotation or reflection of it was reached; the line itself keeps the real states.
+ * <p>
+ * Key Responsibilities:
+ * - Find a shortest solution in memory bounded by the table size and the solution length.
+ * - Skip repeated states, and order moves, through a fixed-size off-heap table.
+ * - Report the nodes expanded and the peak memory of the search.
+ * <p>
+ * Threading: An instance runs a single search on the calling thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class IdaSearch {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Returned by an iteration that found a solution.
+     */
+    private static final int FOUND = -1;
+
+    private final SearchSpace space;
+    private final int stateLength;
+    private final Symmetry symmetry;
+
+    private final TranspositionTable table;
+
+    /**
+     * The current line: the state after each move and the moves themselves.
+     */
+    private byte[][] line;
+    private int[] moves;
+
+    private Solver solver;
+    private long start;
+    private long expanded;
+    private int iteration;
+    private int solutionLength;
+    private SolverResult.Status interruption;
+
+    /**
+     * The moves towards the state with the lowest estimate seen so far.
+     */
+    private int[] bestMoves;
+    private int bestEstimate;
+
+    /**
+     * Creates the search of a state.
+     *
+     * @param space      The search space of the board.
+     * @param root       The state to solve from; it is not modified.
+     * @param maxStates  The largest number of states the table may hold.
+     * @param tableBytes The largest number of bytes the table may take.
+     * @param symmetry   The symmetries to reduce the stored states by, or null.
+     */
+    IdaSearch(SearchSpace space, byte[] root, int maxStates, long tableBytes, Symmetry symmetry) {
+        this.space = space;
+        this.stateLength = space.stateLength();
+        this.symmetry = symmetry;
+        long bytes = Math.max((long) maxStates * TranspositionTable.ENTRY_BYTES, TranspositionTable.MIN_BYTES);
+        this.table = new TranspositionTable(Math.min(bytes, tableBytes));
+        this.line = new byte[64][];
+        this.moves = new int[64];
+        line[0] = root.clone();
+        this.bestMoves = new int[0];
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @param solver The solver that runs the search, for its limits and strategy.
+     * @param start  Value of {@link System#nanoTime()} when the solve started.
+     * @return The result of the search.
+     */
+    SolverResult run(Solver solver, long start) {
+        this.solver = solver;
+        this.start = start;
+        int threshold = space.estimate(line[0]);
+        bestEstimate = threshold;
+        long rootHash = space.hash(line[0]);
+        int rootSymmetry = keySymmetry(line[0]);
+        long rootKey = key(line[0], rootHash, rootSymmetry);
+        while (threshold != Integer.MAX_VALUE) {
+            iteration++;
+            visit(rootKey, 0);
+            int next = search(rootHash, rootKey, rootSymmetry, 0, threshold);
+            if (next == FOUND) {
+                return result(SolverResult.Status.SOLVED, Arrays.copyOf(moves, solutionLength));
+            }
+            if (interruption != null) {
+                return result(interruption, bestMoves);
+            }
+            threshold = next;
+        }
+        return result(SolverResult.Status.UNSOLVABLE, null);
+    }
+
+    /**
+     * Searches below the state at a depth of the current line.
+     *
+     * @param key      The table key of the state.
+     * @param symmetry The symmetry that maps the state to the canonical form of its key.
+     * @return {@link #FOUND} if a solution was found, otherwise the smallest depth plus
+     *         estimate that exceeded the threshold, or {@link Integer#MAX_VALUE} if none did
+     *         or the search was interrupted.
+     */
+    private int search(long hash, long key, int symmetry, int depth, int threshold) {
+        byte[] state = line[depth];
+        if (space.isGoal(state)) {
+            solutionLength = depth;
+            return FOUND;
+        }
+        if (expanded % Solver.CLOCK_INTERVAL == 0) {
+            interruption = solver.interruption(start);
+            if (interruption != null) {
+                return Integer.MAX_VALUE;
+            }
+        }
+        expanded++;
+        if (depth + 1 == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        int preferred = preferredMove(key, symmetry);
+        int least = Integer.MAX_VALUE;
+        int bestMove = TranspositionTable.NONE;
+        for (int i = -1; i < DIRECTIONS.length; i++) {
+            // The preferred move first, then the others in order
+            if (i == -1 ? preferred == TranspositionTable.NONE : i == preferred) {
+                continue;
+            }
+            Direction direction = DIRECTIONS[i == -1 ? preferred : i];
+            if (space.preview(state, direction) == MoveOutcome.BLOCKED) {
+                continue;
+            }
+            byte[] child = line[depth + 1];
+            if (child == null) {
+                child = new byte[stateLength];
+                line[depth + 1] = child;
+            }
+            long childHash = space.apply(state, hash, direction, child);
+            int estimate = space.estimate(child);
+            if (estimate == Integer.MAX_VALUE) {
+                continue; // Dead end: no snowman can be built any more
+            }
+            moves[depth] = direction.ordinal();
+            if (estimate < bestEstimate) {
+                bestEstimate = estimate;
+                bestMoves = Arrays.copyOf(moves, depth + 1);
+            }
+            int cost = depth + 1 + estimate;
+            if (cost > threshold) {
+                if (cost < least) {
+                    least = cost;
+                    bestMove = direction.ordinal();
+                }
+                continue;
+            }
+            int childSymmetry = keySymmetry(child);
+            long childKey = key(child, childHash, childSymmetry);
+            if (!visit(childKey, depth + 1)) {
+                continue; // Already searched with as much room, or on the current line
+            }
+            int found = search(childHash, childKey, childSymmetry, depth + 1, threshold);
+            if (found == FOUND) {
+                return FOUND;
+            }
+            if (interruption != null) {
+                return Integer.MAX_VALUE;
+            }
+            if (found < least) {
+                least = found;
+                bestMove = direction.ordinal();
+            }
+        }
+        recordMove(key, symmetry, bestMove);
+        return least;
+    }
+
+    /**
+     * Records that a state was reached at a depth of this iteration.
+     *
+     * @return false if the table shows the state was reached at the same or a smaller
+     *         depth of this iteration, so it need not be searched again.
+     */
+    private boolean visit(long key, int depth) {
+        int entry = table.find(key);
+        if (entry == TranspositionTable.NONE) {
+            table.store(key, iteration, depth);
+            return true;
+        }
+        if (table.generation(entry) == iteration && table.depth(entry) <= depth) {
+            return false;
+        }
+        table.update(entry, iteration, depth);
+        return true;
+    }
+
+    /**
+     * @return The best move stored for a state, as a direction ordinal on the real state,
+     *         or {@link TranspositionTable#NONE}.
+     */
+    private int preferredMove(long key, int symmetry) {
+        int entry = table.find(key);
+        int move = entry == TranspositionTable.NONE ? TranspositionTable.NONE : table.move(entry);
+        if (move == TranspositionTable.NONE || symmetry == 0) {
+            return move;
+        }
+        return this.symmetry.unmap(symmetry, DIRECTIONS[move]).ordinal();
+    }
+
+    /**
+     * Stores the best move of a state, as seen on its canonical form, if its entry is still
+     * in the table.
+     */
+    private void recordMove(long key, int symmetry, int move) {
+        int entry = table.find(key);
+        if (entry == TranspositionTable.NONE || move == TranspositionTable.NONE) {
+            return;
+        }
+        table.setMove(entry, symmetry == 0 ? move : this.symmetry.map(symmetry, DIRECTIONS[move]).ordinal());
+    }
+
+    /**
+     * @return The symmetry that maps a state to its canonical form, 0 without symmetries.
+     */
+    private int keySymmetry(byte[] state) {
+        return symmetry == null ? 0 : symmetry.canonicalSymmetry(state);
+    }
+
+    /**
+     * @return The table key of a state: the hash of its canonical form.
+     */
+    private long key(byte[] state, long hash, int symmetry) {
+        return symmetry == 0 ? hash : space.hash(this.symmetry.apply(state, symmetry));
+    }
+
+    /**
+     * @return Bytes held by the table and by the longest line searched.
+     */
+    private long memoryBytes() {
+        long tableBytes = table.memoryBytes();
+        long stack = moves.length * 4L;
+        for (byte[] state : line) {
+            if (state != null) {
+                stack += 16 + state.length;
+            }
+        }
+        return tableBytes + stack;
+    }
+
+    private SolverResult result(SolverResult.Status status, int[] moves) {
+        return new SolverResult(solver.getStrategy(), status, moves, expanded, table.size(),
+                memoryBytes(), System.nanoTime() - start);
+    }
+}
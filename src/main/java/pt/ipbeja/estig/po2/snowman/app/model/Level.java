@@ -1,6 +1,7 @@
 package pt.ipbeja.estig.po2.snowman.app.model;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -48,6 +49,16 @@ public class Level {
      */
     private final int levelNumber;
 
+    /**
+     * The number of snowmen that must be built to complete the level.
+     */
+    private final int requiredSnowmen;
+
+    /**
+     * The optimal number of moves of the level, or -1 if it is not known.
+     */
+    private final int par;
+
     /**
      * Constructs a new Level instance with the specified initial configuration parameters.
      * <p>
@@ -62,6 +73,46 @@ public class Level {
      */
     public Level(List<List<PositionContent>> board, int monsterRow, int monsterCol,
                  List<Snowball> snowballs, int levelNumber) {
+        this(board, monsterRow, monsterCol, snowballs, levelNumber, 1);
+    }
+
+    /**
+     * Constructs a new Level instance that needs several snowmen to be completed.
+     *
+     * @param board           A 2D list representing the initial board layout of the level.
+     * @param monsterRow      The starting row index of the monster.
+     * @param monsterCol      The starting column index of the monster.
+     * @param snowballs       A list of initial snowballs' positions and types.
+     * @param levelNumber     A unique number identifying the level.
+     * @param requiredSnowmen The number of snowmen needed to complete the level.
+     * @throws IllegalArgumentException if fewer than one snowman is required.
+     */
+    public Level(List<List<PositionContent>> board, int monsterRow, int monsterCol,
+                 List<Snowball> snowballs, int levelNumber, int requiredSnowmen) {
+        this(board, monsterRow, monsterCol, snowballs, levelNumber, requiredSnowmen, -1);
+    }
+
+    /**
+     * Constructs a new Level instance with a known par.
+     *
+     * @param board           A 2D list representing the initial board layout of the level.
+     * @param monsterRow      The starting row index of the monster.
+     * @param monsterCol      The starting column index of the monster.
+     * @param snowballs       A list of initial snowballs' positions and types.
+     * @param levelNumber     A unique number identifying the level.
+     * @param requiredSnowmen The number of snowmen needed to complete the level.
+     * @param par             The optimal number of moves of the level, or -1 if unknown.
+     * @throws IllegalArgumentException if fewer than one snowman is required, or the par
+     *                                  is lower than -1.
+     */
+    public Level(List<List<PositionContent>> board, int monsterRow, int monsterCol,
+                 List<Snowball> snowballs, int levelNumber, int requiredSnowmen, int par) {
+        if (par < -1) {
+            throw new IllegalArgumentException("The par must be a number of moves or -1");
+        }
+        if (requiredSnowmen < 1) {
+            throw new IllegalArgumentException("A level needs at least one snowman");
+        }
         // Create a deep copy of the board to prevent direct modifications
         this.initialBoard = new ArrayList<>();
         for (List<PositionContent> row : board) {
@@ -74,6 +125,8 @@ public class Level {
         this.initialSnowballs = new ArrayList<>(snowballs);
 
         this.levelNumber = levelNumber;
+        this.requiredSnowmen = requiredSnowmen;
+        this.par = par;
     }
 
     /**
@@ -102,7 +155,118 @@ public class Level {
         }
 
         // Return a new BoardModel instance
-        return new BoardModel(boardCopy, monster, snowballsCopy);
+        BoardModel model = new BoardModel(boardCopy, monster, snowballsCopy);
+        model.setRequiredSnowmen(requiredSnowmen);
+        model.setPar(par);
+        return model;
+    }
+
+    /**
+     * Returns a copy of this level with another par.
+     *
+     * @param par The optimal number of moves of the level, or -1 if unknown.
+     * @return The new level.
+     */
+    public Level withPar(int par) {
+        return new Level(initialBoard, monsterStartRow, monsterStartCol, initialSnowballs, levelNumber,
+                requiredSnowmen, par);
+    }
+
+    /**
+     * Returns a 64-bit hash of everything that decides how this level plays: the board
+     * size and layout, the monster's starting cell, the snowballs and the number of
+     * snowmen required. The snowballs are hashed in board order, so the order they were
+     * listed in does not matter, and the level number is left out, so two levels with the
+     * same layout share their hash while any edit to a level changes it.
+     *
+     * @return The hash, never 0, stable across runs.
+     */
+    public long getCanonicalHash() {
+        long hash = mixIn(0, initialBoard.size());
+        hash = mixIn(hash, initialBoard.isEmpty() ? 0 : initialBoard.get(0).size());
+        for (List<PositionContent> row : initialBoard) {
+            for (PositionContent content : row) {
+                hash = mixIn(hash, content.ordinal());
+            }
+        }
+        hash = mixIn(hash, monsterStartRow);
+        hash = mixIn(hash, monsterStartCol);
+        List<Snowball> sorted = new ArrayList<>(initialSnowballs);
+        sorted.sort(Comparator.comparingInt(Snowball::getRow).thenComparingInt(Snowball::getCol));
+        for (Snowball snowball : sorted) {
+            hash = mixIn(hash, snowball.getRow());
+            hash = mixIn(hash, snowball.getCol());
+            hash = mixIn(hash, snowball.getType().ordinal());
+        }
+        hash = mixIn(hash, requiredSnowmen);
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Folds a value into a running hash.
+     */
+    private static long mixIn(long hash, int value) {
+        return LongIntHashMap.mix((hash ^ value) * 0x9E3779B97F4A7C15L + 1);
+    }
+
+    /**
+     * Returns the number of rows of this level's board.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return initialBoard.size();
+    }
+
+    /**
+     * Returns the number of columns of this level's board.
+     *
+     * @return The number of columns, 0 if the board has no rows.
+     */
+    public int getCols() {
+        return initialBoard.isEmpty() ? 0 : initialBoard.get(0).size();
+    }
+
+    /**
+     * Returns the initial content of a cell of this level's board.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The content of the cell.
+     */
+    public PositionContent getContent(int row, int col) {
+        return initialBoard.get(row).get(col);
+    }
+
+    /**
+     * Returns the starting row of the monster.
+     *
+     * @return The row index.
+     */
+    public int getMonsterStartRow() {
+        return monsterStartRow;
+    }
+
+    /**
+     * Returns the starting column of the monster.
+     *
+     * @return The column index.
+     */
+    public int getMonsterStartCol() {
+        return monsterStartCol;
+    }
+
+    /**
+     * Returns copies of the snowballs present at the beginning of this level.
+     *
+     * @return A new list of new snowballs, in the order the level was given them.
+     */
+    public List<Snowball> getSnowballs() {
+        List<Snowball> snowballs = new ArrayList<>();
+        for (Snowball snowball : initialSnowballs) {
+            snowballs.add(new Snowball(snowball.getRow(), snowball.getCol(), snowball.getType()));
+        }
+        return snowballs;
     }
 
     /**
@@ -113,4 +277,23 @@ public class Level {
     public int getLevelNumber() {
         return levelNumber;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the number of snowmen that must be built to complete this level.
+     *
+     * @return The required number of snowmen.
+     */
+    public int getRequiredSnowmen() {
+        return requiredSnowmen;
+    }
+
+    /**
+     * Returns the optimal number of moves of this level, computed offline by
+     * {@link ParCalculator}.
+     *
+     * @return The par, or -1 if it is not known.
+     */
+    public int getPar() {
+        return par;
+    }
+}
@@ -1,8 +1,20 @@
 package pt.ipbeja.estig.po2.snowman.app.model;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * The LevelManager class is responsible for managing and providing access to different Levels in the Snowman game.
@@ -18,21 +30,43 @@ import java.util.List;
  * <p>
  * Design Considerations:
  * - The levels are managed as a sequential list (`List<Level>`), where each Level is indexed starting at 0.
- * - The levels are predefined in the `initializeLevels` method.
+ * - The predefined levels are read from the `/levels/predefined.txt` level pack
+ *   ({@link LevelPackReader}), so levels can be added or edited without recompiling; other
+ *   packs can be loaded from files, as text or as mapped binary packs decoded on demand.
+ * - The board of the next level can be prepared on a background executor while the
+ *   current one is played (`prefetchNextLevel`), so moving on to it does not wait.
  *
  *  @author Ângelo Dias(24288), Edgar Brito(22895)
  */
 public class LevelManager {
+
     /**
-     * List containing all predefined levels in the game.
+     * Class path resource holding the predefined levels, in the level pack format.
+     */
+    public static final String PREDEFINED_LEVELS = "/levels/predefined.txt";
+
+    /**
+     * List containing all the levels of the game, predefined or read from a pack. For a
+     * binary pack it is a view that decodes a level each time it is read.
      */
     private final List<Level> levels;
 
+    /**
+     * The pars stored by the ParCalculator batch job, applied as levels are read.
+     */
+    private final Properties pars;
+
     /**
      * The index of the currently active level in the list of levels.
      */
     private int currentLevelIndex;
 
+    /**
+     * The board of a following level being prepared in the background, and its index.
+     */
+    private CompletableFuture<BoardModel> prefetched;
+    private int prefetchedIndex;
+
     /**
      * Constructs a new LevelManager instance and initializes all predefined levels.
      * <p>
@@ -40,179 +74,65 @@ public class LevelManager {
      */
     public LevelManager() {
         this.levels = new ArrayList<>();
+        this.pars = ParCalculator.load();
         this.currentLevelIndex = 0;
-        initializeLevels(); // Populate levels list with predefined configurations.
-    }
-
-    /**
-     * Creates the initial board configuration for Level 1.
-     * <p>
-     * The method generates a 5x5 grid filled with snow (`PositionContent.SNOW`).
-     *
-     * @return A two-dimensional list representing the board for Level 1.
-     */
-    private List<List<PositionContent>> createLevel1Board() {
-        List<List<PositionContent>> board = new ArrayList<>();
-        int rows = 5;
-        int cols = 5;
-
-        // Create a 5x5 grid and fill with snow
-        for (int i = 0; i < rows; i++) {
-            List<PositionContent> row = new ArrayList<>();
-            for (int j = 0; j < cols; j++) {
-                row.add(PositionContent.SNOW);
+        try (InputStream in = LevelManager.class.getResourceAsStream(PREDEFINED_LEVELS)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + PREDEFINED_LEVELS);
             }
-            board.add(row);
+            initializeLevels(new LevelPackReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the predefined levels", e);
         }
-
-        return board;
     }
 
     /**
-     * Creates the initial board configuration for Level 2.
+     * Constructs a new LevelManager instance with the levels of a level pack file.
      * <p>
-     * The method generates a 6x6 grid filled with snow (`PositionContent.SNOW`) and places
-     * blocks (`PositionContent.BLOCK`) in a cross-shaped pattern in the center.
+     * A text pack ({@link LevelPackReader}) is parsed in full, so its errors show at once.
+     * A binary pack ({@link BinaryLevelPack}) is only mapped, and each level is decoded when
+     * it is played, so a pack of any size opens at once and takes no heap.
      *
-     * @return A two-dimensional list representing the board for Level 2.
+     * @param pack The pack file, in either format.
+     * @throws IOException if the pack cannot be read, is malformed, or has no levels.
      */
-    private List<List<PositionContent>> createLevel2Board() {
-        List<List<PositionContent>> board = new ArrayList<>();
-        int rows = 6;
-        int cols = 6;
-
-        // Create a 6x6 grid filled with snow
-        for (int i = 0; i < rows; i++) {
-            List<PositionContent> row = new ArrayList<>();
-            for (int j = 0; j < cols; j++) {
-                row.add(PositionContent.SNOW);
+    public LevelManager(Path pack) throws IOException {
+        this.pars = ParCalculator.load();
+        this.currentLevelIndex = 0;
+        if (BinaryLevelPack.isBinaryPack(pack)) {
+            this.levels = BinaryLevelPack.open(pack).levels();
+            if (levels.isEmpty()) {
+                throw new IOException("The level pack has no levels");
             }
-            board.add(row);
+            return;
         }
-
-        // Add blocks in a cross shape in the center of the board
-        board.get(2).set(2, PositionContent.BLOCK);
-        board.get(2).set(3, PositionContent.BLOCK);
-        board.get(3).set(2, PositionContent.BLOCK);
-        board.get(3).set(3, PositionContent.BLOCK);
-
-        return board;
-    }
-    private List<List<PositionContent>> createLevel3Board() {
-        List<List<PositionContent>> board = new ArrayList<>();
-        int rows = 6;
-        int cols = 6;
-
-        // Create a 6x6 grid filled with snow
-        for (int i = 0; i < rows; i++) {
-            List<PositionContent> row = new ArrayList<>();
-            for (int j = 0; j < cols; j++) {
-                row.add(PositionContent.SNOW);
-            }
-            board.add(row);
+        this.levels = new ArrayList<>();
+        try (LevelPackReader reader = new LevelPackReader(Files.newBufferedReader(pack))) {
+            initializeLevels(reader);
         }
-
-        board.get(0).set(4, PositionContent.BLOCK);  // Block 1
-        board.get(3).set(1, PositionContent.BLOCK);  // Block 2
-        board.get(2).set(0, PositionContent.BLOCK);  // Block 3
-        board.get(4).set(4, PositionContent.BLOCK);  // Bl
-
-        return board;
     }
-    private List<List<PositionContent>> createLevel4Board() {
-        List<List<PositionContent>> board = new ArrayList<>();
-        int rows = 6;
-        int cols = 6;
-
-        // Create a 6x6 grid filled with snow
-        for (int i = 0; i < rows; i++) {
-            List<PositionContent> row = new ArrayList<>();
-            for (int j = 0; j < cols; j++) {
-                row.add(PositionContent.SNOW);
-            }
-            board.add(row);
-        }
-
-        board.get(0).set(3, PositionContent.BLOCK);  // Block 1
-        board.get(2).set(2, PositionContent.BLOCK);  // Block 2
-        board.get(3).set(3, PositionContent.BLOCK);  // Block 3
-        board.get(4).set(0, PositionContent.BLOCK);  // Block 4
-
 
-        return board;
-    }
-    private List<List<PositionContent>> createLevel5Board() {
-        List<List<PositionContent>> board = new ArrayList<>();
-        int rows = 6;
-        int cols = 6;
-
-        // Create a 6x6 grid filled with snow
-        for (int i = 0; i < rows; i++) {
-            List<PositionContent> row = new ArrayList<>();
-            for (int j = 0; j < cols; j++) {
-                row.add(PositionContent.SNOW);
-            }
-            board.add(row);
-        }
-
-        board.get(2).set(2, PositionContent.BLOCK);
-        board.get(2).set(3, PositionContent.BLOCK);
-        board.get(3).set(2, PositionContent.BLOCK);
-        board.get(3).set(3, PositionContent.BLOCK);
-
-
-        return board;
+    /**
+     * Returns a level with the par stored for it by the ParCalculator batch job; a level of
+     * another pack only gets one if its layout matches the stored hash.
+     */
+    private Level level(int index) {
+        return ParCalculator.applyPar(levels.get(index), pars);
     }
 
     /**
-     * Initializes all predefined levels in the game.
-     * <p>
-     * Each level is configured with its specific board layout, snowballs, monster starting position,
-     * and a unique identifier. The levels are added to the `levels` list in sequential order.
+     * Reads the levels of a pack, in pack order, building each one as it is read.
+     *
+     * @param reader The pack.
+     * @throws IOException if the pack cannot be read, is malformed, or has no levels.
      */
-    private void initializeLevels() {
-        // Level 1 configuration (5x5 grid with snowballs placed in specific positions)
-        List<List<PositionContent>> board1 = createLevel1Board();
-        List<Snowball> snowballs1 = Arrays.asList(
-                new Snowball(2, 3, SnowballType.SMALL),
-                new Snowball(1, 2, SnowballType.SMALL),
-                new Snowball(3, 1, SnowballType.SMALL)
-        );
-        levels.add(new Level(board1, 0, 0, snowballs1, 1)); // Set Level 1 with ID 1
-
-        // Level 2 configuration (6x6 grid with added blocks and snowballs)
-        List<List<PositionContent>> board2 = createLevel2Board();
-        List<Snowball> snowballs2 = Arrays.asList(
-                new Snowball(1, 1, SnowballType.SMALL),
-                new Snowball(1, 4, SnowballType.SMALL),
-                new Snowball(4, 1, SnowballType.SMALL)
-        );
-        levels.add(new Level(board2, 0, 0, snowballs2, 2)); // Set Level 2 with ID 2
-        // Level 2 configuration (6x6 grid with added blocks and snowballs)
-        List<List<PositionContent>> board3 = createLevel3Board();
-        List<Snowball> snowballs3 = Arrays.asList(
-                new Snowball(2, 3, SnowballType.SMALL),
-                new Snowball(4, 0, SnowballType.SMALL),
-                new Snowball(1, 2, SnowballType.SMALL)
-        );
-        levels.add(new Level(board3, 0, 0, snowballs3, 3)); // Set Level 2 with ID 2
-        // Level 2 configuration (6x6 grid with added blocks and snowballs)
-        List<List<PositionContent>> board4 = createLevel4Board();
-        List<Snowball> snowballs4 = Arrays.asList(
-                new Snowball(1, 1, SnowballType.SMALL),
-                new Snowball(2, 4, SnowballType.SMALL),
-                new Snowball(4, 2, SnowballType.SMALL)
-
-        );
-        levels.add(new Level(board4, 0, 0, snowballs4, 4)); // Set Level 2 with ID 2
-        // Level 2 configuration (6x6 grid with added blocks and snowballs)
-        List<List<PositionContent>> board5 = createLevel5Board();
-        List<Snowball> snowballs5 = Arrays.asList(
-                new Snowball(0, 1, SnowballType.SMALL),
-                new Snowball(1, 3, SnowballType.SMALL),
-                new Snowball(4, 0, SnowballType.SMALL)
-        );
-        levels.add(new Level(board5, 0, 0, snowballs5, 5)); // Set Level 2 with ID 2
+    private void initializeLevels(LevelPackReader reader) throws IOException {
+        for (Level level = reader.next(); level != null; level = reader.next()) {
+            levels.add(level);
+        }
+        if (levels.isEmpty()) {
+            throw new IOException("The level pack has no levels");
+        }
     }
 
     /**
@@ -221,7 +141,27 @@ public class LevelManager {
      * @return A `BoardModel` representing the current level.
      */
     public BoardModel getCurrentLevel() {
-        return levels.get(currentLevelIndex).createBoardModel();
+        return level(currentLevelIndex).createBoardModel();
+    }
+
+    /**
+     * Returns the levels of the game, in playing order.
+     *
+     * @return An unmodifiable view of the levels, with their pars; the levels of a binary
+     *         pack are decoded as they are read. The view can be read from any thread.
+     */
+    public List<Level> getLevels() {
+        return new AbstractList<>() {
+            @Override
+            public Level get(int index) {
+                return level(index);
+            }
+
+            @Override
+            public int size() {
+                return levels.size();
+            }
+        };
     }
 
     /**
@@ -242,17 +182,50 @@ public class LevelManager {
         return currentLevelIndex < levels.size() - 1;
     }
 
+    /**
+     * Starts preparing the board of the next level on an executor, so that
+     * {@link #loadNextLevel()} can return it without reading or decoding the level.
+     * <p>
+     * Calling it again for the same next level returns the same preparation. The executor
+     * only reads the levels; this manager must still be used from a single thread.
+     *
+     * @param executor The executor that prepares the board.
+     * @return The board being prepared, completed with null if there is no next level.
+     */
+    public CompletableFuture<BoardModel> prefetchNextLevel(Executor executor) {
+        if (!hasNextLevel()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int index = currentLevelIndex + 1;
+        if (prefetched == null || prefetchedIndex != index) {
+            prefetchedIndex = index;
+            prefetched = CompletableFuture.supplyAsync(() -> level(index).createBoardModel(), executor);
+        }
+        return prefetched;
+    }
+
     /**
      * Advances to the next level if available and retrieves its configuration.
      * <p>
      * This method increments the `currentLevelIndex` if there is a subsequent level
-     * and returns the configuration (`BoardModel`) of the next level.
+     * and returns the configuration (`BoardModel`) of the next level. If that board was
+     * prefetched and is ready, the prepared board is returned; otherwise it is built here,
+     * which never waits on an executor that may not run it.
      *
      * @return A `BoardModel` for the next level or `null` if no additional levels are available.
      */
     public BoardModel loadNextLevel() {
         if (hasNextLevel()) {
             currentLevelIndex++;
+            CompletableFuture<BoardModel> board = prefetched;
+            prefetched = null;
+            if (board != null && prefetchedIndex == currentLevelIndex && board.isDone()) {
+                try {
+                    return board.join();
+                } catch (CompletionException | CancellationException e) {
+                    // Prepare it here instead, where an error reaches the caller
+                }
+            }
             return getCurrentLevel();
         }
         return null;
@@ -0,0 +1,193 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The LevelPack class is an index over a level pack file (see {@link LevelPackReader} for
+ * the format), giving the number of its levels and reading any one of them on demand.
+ * <p>
+ * Opening a pack does not parse it: a single pass over its bytes finds the start of every
+ * line starting with {@code Level:}, even one with a malformed number, and the number on it, and keeps the offsets in a flat array,
+ * so the index of a pack with a hundred thousand levels is built in a few tens of
+ * milliseconds. {@link #read} then seeks to one offset and parses that level alone.
+ * <p>
+ * Key Responsibilities:
+ * - Index the levels of a pack by their position in the file.
+ * - Read a single level of a pack without parsing the others.
+ * - Write levels in the pack format.
+ * <p>
+ * Threading: Instances are immutable once opened and can be read from several threads.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public final class LevelPack {
+
+    /**
+     * Value of {@link #getLevelNumber} for a header without a valid number.
+     */
+    public static final int NO_NUMBER = -1;
+
+    private static final byte[] HEADER = LevelPackReader.LEVEL_HEADER.getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Number being read once a character that cannot belong to it was found.
+     */
+    private static final int BAD_NUMBER = -2;
+
+    private final Path file;
+    private final long[] offsets;
+    private final int[] numbers;
+
+    private LevelPack(Path file, long[] offsets, int[] numbers) {
+        this.file = file;
+        this.offsets = offsets;
+        this.numbers = numbers;
+    }
+
+    /**
+     * Indexes a level pack file.
+     *
+     * @param file The pack.
+     * @return The index of the pack.
+     * @throws IOException if the file cannot be read.
+     */
+    public static LevelPack open(Path file) throws IOException {
+        long[] offsets = new long[1024];
+        int[] numbers = new int[1024];
+        int count = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            long position = 0;
+            long lineStart = 0;
+            int matched = 0; // Bytes of the header matched at the start of the line, -1 if none
+            int number = NO_NUMBER; // Number read after the header so far
+            boolean ended = false; // Whether blanks followed the number
+            for (int read; (read = in.read(buffer)) > 0; position += read) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        if (matched == HEADER.length) {
+                            if (count == offsets.length) {
+                                offsets = Arrays.copyOf(offsets, count * 2);
+                                numbers = Arrays.copyOf(numbers, count * 2);
+                            }
+                            offsets[count] = lineStart;
+                            numbers[count++] = number < 0 ? NO_NUMBER : number;
+                        }
+                        lineStart = position + i + 1;
+                        matched = 0;
+                        number = NO_NUMBER;
+                        ended = false;
+                    } else if (matched < 0) {
+                        continue;
+                    } else if (matched < HEADER.length) {
+                        matched = b == HEADER[matched] ? matched + 1 : -1;
+                    } else if (b >= '0' && b <= '9' && !ended && number != BAD_NUMBER) {
+                        int digit = b - '0';
+                        number = number == NO_NUMBER ? digit
+                                : number > (Integer.MAX_VALUE - digit) / 10 ? BAD_NUMBER : number * 10 + digit;
+                    } else if (b == ' ' || b == '\t' || b == '\r') {
+                        ended = number != NO_NUMBER;
+                    } else {
+                        // Still a level, whose header reading it reports
+                        number = BAD_NUMBER;
+                    }
+                }
+            }
+            if (matched == HEADER.length) {
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count + 1);
+                    numbers = Arrays.copyOf(numbers, count + 1);
+                }
+                offsets[count] = lineStart;
+                numbers[count++] = number < 0 ? NO_NUMBER : number;
+            }
+        }
+        return new LevelPack(file, Arrays.copyOf(offsets, count), Arrays.copyOf(numbers, count));
+    }
+
+    /**
+     * @return Number of levels in the pack.
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Returns the number on the header of a level, without reading the level.
+     *
+     * @param index Position of the level in the pack, from 0.
+     * @return The level number, or {@link #NO_NUMBER} if the header has no valid number,
+     *         which {@link #read} then reports.
+     */
+    public int getLevelNumber(int index) {
+        return numbers[index];
+    }
+
+    /**
+     * Reads one level of the pack. Errors name lines counted from the level's header.
+     *
+     * @param index Position of the level in the pack, from 0.
+     * @return The level.
+     * @throws IOException if the file cannot be read or the level is malformed.
+     */
+    public Level read(int index) throws IOException {
+        FileChannel channel = FileChannel.open(file).position(offsets[index]);
+        try (LevelPackReader reader = new LevelPackReader(Channels.newReader(channel, StandardCharsets.UTF_8))) {
+            return reader.next();
+        }
+    }
+
+    /**
+     * Writes levels in the pack format.
+     *
+     * @param levels The levels, in pack order.
+     * @param out    Where to write them; it is not closed.
+     * @throws IOException if the levels cannot be written.
+     */
+    public static void write(List<Level> levels, Writer out) throws IOException {
+        for (Level level : levels) {
+            out.write(LevelPackReader.LEVEL_HEADER + " " + level.getLevelNumber() + "\n");
+            if (level.getRequiredSnowmen() != 1) {
+                out.write(LevelPackReader.SNOWMEN_HEADER + " " + level.getRequiredSnowmen() + "\n");
+            }
+            char[][] grid = new char[level.getRows()][level.getCols()];
+            for (int row = 0; row < grid.length; row++) {
+                for (int col = 0; col < grid[row].length; col++) {
+                    grid[row][col] = switch (level.getContent(row, col)) {
+                        case BLOCK -> LevelPackReader.BLOCK;
+                        case SNOW -> LevelPackReader.SNOW;
+                        case NO_SNOW -> LevelPackReader.NO_SNOW;
+                        case SNOWMAN -> LevelPackReader.SNOWMAN;
+                    };
+                }
+            }
+            for (Snowball snowball : level.getSnowballs()) {
+                if (snowball.getType().ordinal() >= LevelPackReader.SNOWBALLS.length()) {
+                    throw new IllegalArgumentException("A level cannot start with a " + snowball.getType() + " snowball");
+                }
+                char letter = LevelPackReader.SNOWBALLS.charAt(snowball.getType().ordinal());
+                boolean snow = grid[snowball.getRow()][snowball.getCol()] == LevelPackReader.SNOW;
+                grid[snowball.getRow()][snowball.getCol()] = snow ? Character.toUpperCase(letter) : letter;
+            }
+            int row = level.getMonsterStartRow();
+            int col = level.getMonsterStartCol();
+            grid[row][col] = grid[row][col] == LevelPackReader.SNOW
+                    ? LevelPackReader.MONSTER_ON_SNOW : LevelPackReader.MONSTER;
+            for (char[] cells : grid) {
+                out.write(cells);
+                out.write('\n');
+            }
+            out.write('\n');
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The LevelPackReader class parses level packs: text files that hold any number of levels,
+ * each drawn as a grid of characters, so levels can be added without recompiling the game.
+ * <p>
+ * A level starts with a {@code Level: <number>} line, optionally followed by a
+ * {@code Snowmen: <count>} line (1 if absent), and then its board, one line per row, all
+ * rows of the same length. The board ends at a blank line, at the next {@code Level:} line
+ * or at the end of the file. Lines starting with {@code ;} are comments. The cells are:
+ * <pre>
+ *   #  block              .  snow            -  no snow          *  snowman
+ *   @  monster            +  monster on snow
+ *   s m b     small, mid and big snowball
+ *   x y z     mid with small, big with small and big with mid
+ * </pre>
+ * A snowball letter in upper case stands on snow, in lower case on a cell without snow.
+ * <p>
+ * The reader streams: {@link #next()} reads the lines of one level and builds it before
+ * reading any further, so a pack of any size is parsed in the memory of a single level.
+ * Errors name the line they were found on, counted from where the reader started.
+ * <p>
+ * Key Responsibilities:
+ * - Parse the levels of a pack one at a time, in file order.
+ * - Report malformed packs with the line of the error.
+ * <p>
+ * Threading: This class is not thread-safe and should be accessed from a single thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public final class LevelPackReader implements AutoCloseable {
+
+    /**
+     * Start of the first line of every level.
+     */
+    public static final String LEVEL_HEADER = "Level:";
+
+    /**
+     * Start of the optional line with the number of snowmen of a level.
+     */
+    public static final String SNOWMEN_HEADER = "Snowmen:";
+
+    /**
+     * Letters of the snowball types that can start a level, by type ordinal.
+     */
+    static final String SNOWBALLS = "smbxyz";
+
+    static final char BLOCK = '#';
+    static final char SNOW = '.';
+    static final char NO_SNOW = '-';
+    static final char SNOWMAN = '*';
+    static final char MONSTER = '@';
+    static final char MONSTER_ON_SNOW = '+';
+    static final char COMMENT = ';';
+
+    private final BufferedReader in;
+    private int lineNumber;
+
+    /**
+     * The header of the next level, when the previous level ended on it.
+     */
+    private String pending;
+
+    /**
+     * Creates a reader of a pack.
+     *
+     * @param in The text of the pack; it is closed with this reader.
+     */
+    public LevelPackReader(Reader in) {
+        this.in = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+    }
+
+    /**
+     * Reads the next level of the pack.
+     *
+     * @return The level, or null at the end of the pack.
+     * @throws IOException if the pack cannot be read or is malformed.
+     */
+    public Level next() throws IOException {
+        String header = pending != null ? pending : nextContentLine();
+        pending = null;
+        if (header == null) {
+            return null;
+        }
+        int number = value(header, LEVEL_HEADER);
+        int snowmen = 1;
+        List<List<PositionContent>> board = new ArrayList<>();
+        List<Snowball> snowballs = new ArrayList<>();
+        int monsterRow = -1;
+        int monsterCol = -1;
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                if (board.isEmpty()) {
+                    continue;
+                }
+                break;
+            }
+            if (line.charAt(0) == COMMENT) {
+                continue;
+            }
+            if (line.startsWith(LEVEL_HEADER)) {
+                pending = line;
+                break;
+            }
+            if (line.startsWith(SNOWMEN_HEADER)) {
+                if (!board.isEmpty()) {
+                    throw error("The number of snowmen must come before the board");
+                }
+                snowmen = value(line, SNOWMEN_HEADER);
+                continue;
+            }
+            if (!board.isEmpty() && line.length() != board.get(0).size()) {
+                throw error("Every row must have " + board.get(0).size() + " cells");
+            }
+            int row = board.size();
+            List<PositionContent> cells = new ArrayList<>(line.length());
+            for (int col = 0; col < line.length(); col++) {
+                char cell = line.charAt(col);
+                if (cell == MONSTER || cell == MONSTER_ON_SNOW) {
+                    if (monsterRow >= 0) {
+                        throw error("A level has a single monster");
+                    }
+                    monsterRow = row;
+                    monsterCol = col;
+                    cells.add(cell == MONSTER ? PositionContent.NO_SNOW : PositionContent.SNOW);
+                    continue;
+                }
+                int type = SNOWBALLS.indexOf(Character.toLowerCase(cell));
+                if (type >= 0) {
+                    snowballs.add(new Snowball(row, col, SnowballType.values()[type]));
+                    cells.add(Character.isUpperCase(cell) ? PositionContent.SNOW : PositionContent.NO_SNOW);
+                    continue;
+                }
+                cells.add(switch (cell) {
+                    case BLOCK -> PositionContent.BLOCK;
+                    case SNOW -> PositionContent.SNOW;
+                    case NO_SNOW -> PositionContent.NO_SNOW;
+                    case SNOWMAN -> PositionContent.SNOWMAN;
+                    default -> throw error("Unknown cell '" + cell + "'");
+                });
+            }
+            board.add(cells);
+        }
+
+        if (board.isEmpty()) {
+            throw error("Level " + number + " has no board");
+        }
+        if (monsterRow < 0) {
+            throw error("Level " + number + " has no monster");
+        }
+        try {
+            return new Level(board, monsterRow, monsterCol, snowballs, number, snowmen);
+        } catch (IllegalArgumentException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the text of the pack.
+     *
+     * @throws IOException if it cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * @return The next line that is neither blank nor a comment, or null at the end.
+     */
+    private String nextContentLine() throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (!line.isBlank() && line.charAt(0) != COMMENT) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses the number of a header line.
+     */
+    private int value(String line, String header) throws IOException {
+        if (!line.startsWith(header)) {
+            throw error("Expected '" + header + "'");
+        }
+        String number = line.substring(header.length()).trim();
+        if (number.isEmpty() || !number.chars().allMatch(Character::isDigit)) {
+            throw error("Expected a number after '" + header + "'");
+        }
+        try {
+            return Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            throw error("Expected a number after '" + header + "'");
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException("Level pack line " + lineNumber + ": " + message);
+    }
+}
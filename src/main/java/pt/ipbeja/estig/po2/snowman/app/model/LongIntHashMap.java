@@ -0,0 +1,122 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * The LongIntHashMap class is a small open-addressing map from 64-bit keys to int counters.
+ * <p>
+ * It is used to count state hashes without boxing: lookups and updates of existing keys
+ * never allocate, and the table only grows (doubling) when it becomes more than half full.
+ * Missing keys read as 0.
+ * <p>
+ * Threading: This class is not thread-safe and should be accessed from a single thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class LongIntHashMap {
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+
+    /**
+     * Creates an empty map.
+     */
+    LongIntHashMap() {
+        allocate(64);
+    }
+
+    /**
+     * @return Number of keys in the map.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key The key to look up.
+     * @return The value of the key, or 0 if it is not in the map.
+     */
+    int get(long key) {
+        int slot = find(key);
+        return used[slot] ? values[slot] : 0;
+    }
+
+    /**
+     * Adds a delta to the value of a key, inserting the key if needed.
+     *
+     * @param key   The key to update.
+     * @param delta The amount to add.
+     * @return The new value of the key.
+     */
+    int add(long key, int delta) {
+        int slot = find(key);
+        if (!used[slot]) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = find(key);
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    /**
+     * Removes every key.
+     */
+    void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * @return The slot holding the key, or the empty slot where it would be inserted.
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the table and re-inserts every key.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = find(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * Spreads the key bits so that sequential keys do not cluster.
+     */
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,167 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * The MoveDelta class records the changes made to a {@link BoardModel} by a single move.
+ * <p>
+ * Instead of a full snapshot of the board, a delta keeps a compact log of the individual
+ * changes (cells whose content changed, snowballs that moved, grew, merged or disappeared,
+ * and the monster's step). Undoing a move reverts those changes in reverse order and
+ * redoing it replays them, so both cost O(changes) regardless of the board size.
+ * <p>
+ * Every change is stored as four ints: an opcode followed by three operands. Snowballs
+ * are referenced by their slot in the board's store and positions by their flat cell index.
+ * <p>
+ * Threading: This class is not thread-safe and should be accessed from a single thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class MoveDelta {
+
+    /**
+     * Opcodes of the recorded changes and their operands.
+     * - CELL: cell index, old packed content, new packed content
+     * - SNOWBALL_MOVE: snowball id, old cell index, new cell index
+     * - SNOWBALL_TYPE: snowball id, old type ordinal, new type ordinal
+     * - SNOWBALL_ADD: snowball slot, position in the snowball list, packed cell and type
+     * - SNOWBALL_REMOVE: snowball slot, position in the snowball list, packed cell and type
+     * - MONSTER: (unused), old cell index, new cell index
+     */
+    static final int CELL = 0;
+    static final int SNOWBALL_MOVE = 1;
+    static final int SNOWBALL_TYPE = 2;
+    static final int SNOWBALL_ADD = 3;
+    static final int SNOWBALL_REMOVE = 4;
+    static final int MONSTER = 5;
+
+    /**
+     * Number of ints used by every recorded change.
+     */
+    static final int OP_SIZE = 4;
+
+    /**
+     * Recorded changes, OP_SIZE ints each, in the order they happened.
+     */
+    private int[] ops;
+
+    /**
+     * Number of ints of {@link #ops} in use.
+     */
+    private int length;
+
+    /**
+     * Creates an empty delta.
+     */
+    MoveDelta() {
+        this.ops = new int[OP_SIZE * 8];
+    }
+
+    /**
+     * Recreates a delta from a record produced by {@link #toRecord()}.
+     *
+     * @param record The recorded changes.
+     */
+    MoveDelta(int[] record) {
+        this.ops = record;
+        this.length = record.length;
+    }
+
+    /**
+     * Returns the recorded changes as a compact int record, suitable for spilling to disk.
+     * The returned array may be shared with this delta and must not be modified.
+     *
+     * @return The recorded changes.
+     */
+    int[] toRecord() {
+        return ops.length == length ? ops : Arrays.copyOf(ops, length);
+    }
+
+    /**
+     * @return Approximate heap footprint of this delta, in bytes.
+     */
+    long estimatedBytes() {
+        return 16 + 16 + (long) Integer.BYTES * ops.length;
+    }
+
+    /**
+     * Appends a change to the log.
+     *
+     * @param opcode One of the opcodes of this class.
+     * @param a      First operand.
+     * @param b      Second operand.
+     * @param c      Third operand.
+     */
+    void record(int opcode, int a, int b, int c) {
+        if (length + OP_SIZE > ops.length) {
+            ops = Arrays.copyOf(ops, ops.length * 2);
+        }
+        ops[length] = opcode;
+        ops[length + 1] = a;
+        ops[length + 2] = b;
+        ops[length + 3] = c;
+        length += OP_SIZE;
+    }
+
+    /**
+     * @return true if no change was recorded.
+     */
+    boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @return Number of recorded changes.
+     */
+    int changeCount() {
+        return length / OP_SIZE;
+    }
+
+    /**
+     * Empties the log so the delta can be reused for another move, keeping its capacity.
+     */
+    void reset() {
+        length = 0;
+    }
+
+    /**
+     * Reverts the recorded changes on the board, newest first.
+     *
+     * @param board The board the changes were recorded on.
+     */
+    void undo(BoardModel board) {
+        for (int i = length - OP_SIZE; i >= 0; i -= OP_SIZE) {
+            int a = ops[i + 1];
+            int b = ops[i + 2];
+            switch (ops[i]) {
+                case CELL -> board.restoreCell(a, (byte) b);
+                case SNOWBALL_MOVE -> board.restoreSnowballPosition(a, b);
+                case SNOWBALL_TYPE -> board.restoreSnowballType(a, b);
+                case SNOWBALL_ADD -> board.discardSnowball(b);
+                case SNOWBALL_REMOVE -> board.restoreSnowball(a, b, ops[i + 3]);
+                case MONSTER -> board.restoreMonster(b);
+            }
+        }
+    }
+
+    /**
+     * Replays the recorded changes on the board, oldest first.
+     *
+     * @param board The board the changes were recorded on, in the state before the move.
+     */
+    void redo(BoardModel board) {
+        for (int i = 0; i < length; i += OP_SIZE) {
+            int a = ops[i + 1];
+            int b = ops[i + 2];
+            int c = ops[i + 3];
+            switch (ops[i]) {
+                case CELL -> board.restoreCell(a, (byte) c);
+                case SNOWBALL_MOVE -> board.restoreSnowballPosition(a, c);
+                case SNOWBALL_TYPE -> board.restoreSnowballType(a, c);
+                case SNOWBALL_ADD -> board.restoreSnowball(a, b, c);
+                case SNOWBALL_REMOVE -> board.discardSnowball(b);
+                case MONSTER -> board.restoreMonster(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+/**
+ * The MoveOutcome enum describes what a monster move would do, as predicted by
+ * {@link BoardModel#previewMove(Direction)} without changing the board.
+ * <p>
+ * Enum Constants:
+ * - BLOCKED: The move is illegal; the monster would stay in place.
+ * - STEP: The monster walks onto an empty cell.
+ * - PUSH: The monster pushes a snowball, which keeps its size.
+ * - PUSH_AND_GROW: The monster pushes a snowball onto snow, which makes it grow.
+ * - COMBINE: The pushed snowball merges with another one into a partial snowman.
+ * - COMPLETE_SNOWMAN: The pushed snowball merges with another one into a complete snowman.
+ * <p>
+ * Usage:
+ * - Solvers, hint systems and input filtering can probe moves cheaply before playing them.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public enum MoveOutcome {
+    /**
+     * The move is illegal and would not change the board.
+     */
+    BLOCKED,
+
+    /**
+     * The monster walks onto a cell without a snowball.
+     */
+    STEP,
+
+    /**
+     * The monster pushes a snowball that keeps its size.
+     */
+    PUSH,
+
+    /**
+     * The monster pushes a snowball onto snow, making it grow.
+     */
+    PUSH_AND_GROW,
+
+    /**
+     * The pushed snowball merges with another one into a partial snowman.
+     */
+    COMBINE,
+
+    /**
+     * The pushed snowball merges with another one into a complete snowman.
+     */
+    COMPLETE_SNOWMAN;
+
+    /**
+     * @return true if the move is legal, i.e. the monster would move.
+     */
+    public boolean isLegal() {
+        return this != BLOCKED;
+    }
+}
@@ -0,0 +1,456 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * The MoveTimeline class stores the move history of a {@link BoardModel} as a single timeline.
+ * <p>
+ * Every successful move appends its {@link MoveDelta}; a cursor marks how many of those moves
+ * are currently applied, so undo and redo just move the cursor one step back or forth.
+ * Periodic full {@link GameState} keyframes are kept alongside the deltas, which allows
+ * jumping straight to any move: the nearest keyframe at or before the target is found by
+ * binary search, restored, and at most {@link #KEYFRAME_INTERVAL} deltas are replayed.
+ * <p>
+ * The history lives under a memory budget. The most recent deltas are kept in an in-memory
+ * ring; when the estimated heap use exceeds the budget, the oldest deltas and keyframes are
+ * spilled to a temporary {@link SpillFile} and paged back in on demand by deep undos and seeks.
+ * <p>
+ * Key Responsibilities:
+ * - Keep the deltas of all moves, applied (before the cursor) and undone (after the cursor).
+ * - Capture a keyframe every {@link #KEYFRAME_INTERVAL} moves.
+ * - Step or seek the board to any position of the timeline.
+ * - Discard the undone moves (and their keyframes) when a new move branches off.
+ * - Keep the heap used by the history within the configured budget.
+ * - Recycle the deltas and keyframes it discards, so steady-state play does not allocate.
+ * <p>
+ * Threading: This class is not thread-safe and should be accessed from a single thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class MoveTimeline {
+
+    /**
+     * Number of moves between two keyframes, which bounds the replay cost of a seek.
+     */
+    static final int KEYFRAME_INTERVAL = 32;
+
+    /**
+     * Default heap budget of the history, large enough that normal play never spills.
+     */
+    static final long DEFAULT_MEMORY_BUDGET = 8L * 1024 * 1024;
+
+    /**
+     * Heap cost of remembering where a spilled delta is in the spill file.
+     */
+    private static final long SPILLED_ENTRY_BYTES = Long.BYTES;
+
+    /**
+     * Maximum number of discarded deltas and keyframes kept for reuse.
+     */
+    private static final int DELTA_POOL_SIZE = 256;
+    private static final int KEYFRAME_POOL_SIZE = 8;
+
+    /**
+     * Ring of the in-memory deltas, holding positions [firstInMemory, size).
+     */
+    private MoveDelta[] recent;
+    private int ringStart;
+    private int firstInMemory;
+
+    /**
+     * Total number of moves and number of moves currently applied.
+     */
+    private int size;
+    private int cursor;
+
+    /**
+     * Spill file offsets of the deltas at positions [0, firstInMemory).
+     */
+    private long[] spilledOffsets;
+
+    /**
+     * Keyframes, sorted by the timeline position they capture. A spilled keyframe is null
+     * in {@link #keyframes} and is read back from its offset in {@link #keyframeOffsets}.
+     */
+    private GameState[] keyframes;
+    private int[] keyframePositions;
+    private long[] keyframeOffsets;
+    private int keyframeCount;
+
+    /**
+     * Memory accounting and the spill file, created on the first spill.
+     */
+    private long memoryBudget;
+    private long memoryBytes;
+    private SpillFile spill;
+    private boolean spillDisabled;
+
+    /**
+     * Discarded deltas and keyframes, ready to be reused by the next moves.
+     */
+    private final MoveDelta[] deltaPool;
+    private int deltaPoolCount;
+    private final GameState[] keyframePool;
+    private int keyframePoolCount;
+
+    /**
+     * Creates an empty timeline with the default memory budget.
+     */
+    MoveTimeline() {
+        this.recent = new MoveDelta[64];
+        this.spilledOffsets = new long[0];
+        this.keyframes = new GameState[8];
+        this.keyframePositions = new int[8];
+        this.keyframeOffsets = new long[8];
+        this.memoryBudget = DEFAULT_MEMORY_BUDGET;
+        this.deltaPool = new MoveDelta[DELTA_POOL_SIZE];
+        this.keyframePool = new GameState[KEYFRAME_POOL_SIZE];
+    }
+
+    /**
+     * @return Total number of moves in the timeline, including undone ones.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of moves currently applied to the board.
+     */
+    int position() {
+        return cursor;
+    }
+
+    /**
+     * @return Approximate heap bytes used by the history.
+     */
+    long memoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * @return Bytes of history spilled to disk.
+     */
+    long spilledBytes() {
+        return spill == null ? 0 : spill.size();
+    }
+
+    /**
+     * Changes the heap budget of the history, spilling old entries right away if needed.
+     *
+     * @param bytes The new budget, in bytes.
+     * @throws IllegalArgumentException if the budget is negative.
+     */
+    void setMemoryBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("History memory budget cannot be negative");
+        }
+        this.memoryBudget = bytes;
+        enforceBudget();
+    }
+
+    /**
+     * Captures a keyframe of the board before a move is played, when the current position
+     * is a multiple of {@link #KEYFRAME_INTERVAL} and has no keyframe yet.
+     *
+     * @param board The board about to be moved.
+     */
+    void beforeMove(BoardModel board) {
+        if (cursor % KEYFRAME_INTERVAL != 0 || findKeyframe(cursor) >= 0) {
+            return;
+        }
+        if (keyframeCount == keyframes.length) {
+            keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+            keyframePositions = Arrays.copyOf(keyframePositions, keyframeCount * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        GameState keyframe;
+        if (keyframePoolCount > 0) {
+            keyframe = keyframePool[--keyframePoolCount];
+            keyframePool[keyframePoolCount] = null;
+            keyframe.capture(board);
+        } else {
+            keyframe = new GameState(board);
+        }
+        keyframes[keyframeCount] = keyframe;
+        keyframePositions[keyframeCount] = cursor;
+        keyframeCount++;
+        memoryBytes += keyframe.estimatedBytes();
+    }
+
+    /**
+     * Returns an empty delta to record the next move in, reusing a discarded one if possible.
+     *
+     * @return An empty delta.
+     */
+    MoveDelta obtainDelta() {
+        if (deltaPoolCount == 0) {
+            return new MoveDelta();
+        }
+        MoveDelta delta = deltaPool[--deltaPoolCount];
+        deltaPool[deltaPoolCount] = null;
+        return delta;
+    }
+
+    /**
+     * Gives back a delta that is no longer part of the timeline, for later reuse.
+     *
+     * @param delta The discarded delta.
+     */
+    void recycle(MoveDelta delta) {
+        if (deltaPoolCount < deltaPool.length) {
+            delta.reset();
+            deltaPool[deltaPoolCount++] = delta;
+        }
+    }
+
+    /**
+     * Keeps a discarded keyframe for later reuse.
+     */
+    private void recycle(GameState keyframe) {
+        if (keyframePoolCount < keyframePool.length) {
+            keyframePool[keyframePoolCount++] = keyframe;
+        }
+    }
+
+    /**
+     * Appends the delta of a successful move at the cursor, discarding any undone moves.
+     *
+     * @param delta The changes made by the move.
+     */
+    void append(MoveDelta delta) {
+        truncate();
+        int inMemory = size - firstInMemory;
+        if (inMemory == recent.length) {
+            MoveDelta[] grown = new MoveDelta[recent.length * 2];
+            for (int i = 0; i < inMemory; i++) {
+                grown[i] = recent[(ringStart + i) % recent.length];
+            }
+            recent = grown;
+            ringStart = 0;
+        }
+        recent[(ringStart + inMemory) % recent.length] = delta;
+        size++;
+        cursor++;
+        memoryBytes += delta.estimatedBytes();
+        enforceBudget();
+    }
+
+    /**
+     * Reverts the last applied move.
+     *
+     * @param board The board to update.
+     * @return true if a move was undone; false if the cursor is at the start.
+     */
+    boolean undo(BoardModel board) {
+        if (cursor == 0) return false;
+        deltaAt(cursor - 1).undo(board);
+        cursor--;
+        return true;
+    }
+
+    /**
+     * Re-applies the next undone move.
+     *
+     * @param board The board to update.
+     * @return true if a move was redone; false if the cursor is at the end.
+     */
+    boolean redo(BoardModel board) {
+        if (cursor == size) return false;
+        deltaAt(cursor).redo(board);
+        cursor++;
+        return true;
+    }
+
+    /**
+     * Brings the board to the state it had after the given number of moves.
+     * <p>
+     * When the target is close to the cursor the board is simply stepped there; otherwise
+     * the nearest keyframe at or before the target is restored and the remaining deltas
+     * are replayed, so the cost is O(log keyframes + {@link #KEYFRAME_INTERVAL}).
+     *
+     * @param board  The board to update.
+     * @param target Timeline position to reach, between 0 and {@link #size()}.
+     * @throws IndexOutOfBoundsException if the target is outside the timeline.
+     */
+    void seek(BoardModel board, int target) {
+        if (target < 0 || target > size) {
+            throw new IndexOutOfBoundsException("Move " + target + " is outside the timeline");
+        }
+        int slot = floorKeyframe(target);
+        if (slot >= 0 && target - keyframePositions[slot] < Math.abs(target - cursor)) {
+            board.restoreKeyframe(keyframeAt(slot));
+            cursor = keyframePositions[slot];
+        }
+        while (cursor < target) {
+            deltaAt(cursor).redo(board);
+            cursor++;
+        }
+        while (cursor > target) {
+            deltaAt(cursor - 1).undo(board);
+            cursor--;
+        }
+    }
+
+    /**
+     * Removes every move and keyframe, in memory and on disk.
+     */
+    void clear() {
+        for (int position = firstInMemory; position < size; position++) {
+            dropInMemory(position);
+        }
+        for (int slot = 0; slot < keyframeCount; slot++) {
+            if (keyframes[slot] != null) {
+                recycle(keyframes[slot]);
+                keyframes[slot] = null;
+            }
+        }
+        ringStart = 0;
+        firstInMemory = 0;
+        size = 0;
+        cursor = 0;
+        keyframeCount = 0;
+        memoryBytes = 0;
+        if (spill != null) {
+            try {
+                spill.truncate(0);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Returns the delta at a timeline position, paging it in from disk if it was spilled.
+     */
+    private MoveDelta deltaAt(int position) {
+        if (position >= firstInMemory) {
+            return recent[(ringStart + position - firstInMemory) % recent.length];
+        }
+        try {
+            return new MoveDelta(spill.read(spilledOffsets[position]));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read move " + position + " from history file", e);
+        }
+    }
+
+    /**
+     * Returns a keyframe, paging it in from disk if it was spilled.
+     */
+    private GameState keyframeAt(int slot) {
+        if (keyframes[slot] != null) {
+            return keyframes[slot];
+        }
+        try {
+            return new GameState(spill.read(keyframeOffsets[slot]));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read keyframe from history file", e);
+        }
+    }
+
+    /**
+     * Spills the oldest in-memory entries until the history fits its memory budget.
+     */
+    private void enforceBudget() {
+        while (memoryBytes > memoryBudget && firstInMemory < size && !spillDisabled) {
+            try {
+                spillOldest();
+            } catch (IOException e) {
+                // Keep the history in memory rather than losing it
+                e.printStackTrace();
+                spillDisabled = true;
+            }
+        }
+    }
+
+    /**
+     * Writes the oldest in-memory delta (and the keyframe at its position, first) to disk.
+     */
+    private void spillOldest() throws IOException {
+        if (spill == null) {
+            spill = new SpillFile();
+        }
+        int slot = findKeyframe(firstInMemory);
+        if (slot >= 0 && keyframes[slot] != null) {
+            keyframeOffsets[slot] = spill.append(keyframes[slot].toRecord());
+            memoryBytes -= keyframes[slot].estimatedBytes();
+            recycle(keyframes[slot]);
+            keyframes[slot] = null;
+        }
+
+        MoveDelta oldest = recent[ringStart];
+        if (firstInMemory == spilledOffsets.length) {
+            spilledOffsets = Arrays.copyOf(spilledOffsets, Math.max(64, firstInMemory * 2));
+        }
+        spilledOffsets[firstInMemory] = spill.append(oldest.toRecord());
+        memoryBytes += SPILLED_ENTRY_BYTES - oldest.estimatedBytes();
+        recycle(oldest);
+
+        recent[ringStart] = null;
+        ringStart = (ringStart + 1) % recent.length;
+        firstInMemory++;
+    }
+
+    /**
+     * Drops the undone moves and the keyframes captured after the cursor.
+     */
+    private void truncate() {
+        if (cursor < size) {
+            if (cursor >= firstInMemory) {
+                for (int position = cursor; position < size; position++) {
+                    dropInMemory(position);
+                }
+            } else {
+                for (int position = firstInMemory; position < size; position++) {
+                    dropInMemory(position);
+                }
+                try {
+                    spill.truncate(spilledOffsets[cursor]);
+                } catch (IOException e) {
+                    e.printStackTrace(); // The file only keeps unreachable records
+                }
+                memoryBytes -= SPILLED_ENTRY_BYTES * (firstInMemory - cursor);
+                ringStart = 0;
+                firstInMemory = cursor;
+            }
+            size = cursor;
+        }
+
+        int keep = floorKeyframe(cursor) + 1;
+        for (int slot = keep; slot < keyframeCount; slot++) {
+            if (keyframes[slot] != null) {
+                memoryBytes -= keyframes[slot].estimatedBytes();
+                recycle(keyframes[slot]);
+                keyframes[slot] = null;
+            }
+        }
+        keyframeCount = Math.min(keyframeCount, keep);
+    }
+
+    /**
+     * Releases an in-memory delta that is being discarded.
+     */
+    private void dropInMemory(int position) {
+        int index = (ringStart + position - firstInMemory) % recent.length;
+        memoryBytes -= recent[index].estimatedBytes();
+        recycle(recent[index]);
+        recent[index] = null;
+    }
+
+    /**
+     * @return The slot of the keyframe captured exactly at a position, or a negative value.
+     */
+    private int findKeyframe(int position) {
+        return Arrays.binarySearch(keyframePositions, 0, keyframeCount, position);
+    }
+
+    /**
+     * @return The slot of the last keyframe at or before a position, or -1 if there is none.
+     */
+    private int floorKeyframe(int position) {
+        int slot = findKeyframe(position);
+        return slot >= 0 ? slot : -slot - 2;
+    }
+}
@@ -0,0 +1,223 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ParCalculator class is the offline batch job that computes the par of the levels:
+ * the optimal number of moves to complete each one from its starting position.
+ * <p>
+ * The levels are solved at the same time on a fixed thread pool, each one with its own
+ * iterative-deepening A* {@link Solver}. That strategy finds shortest solutions and keeps
+ * its memory small and bounded, so several large levels can be solved side by side without
+ * running out of heap. A level that is not solved within the time limit gets no par.
+ * <p>
+ * Given a {@link SolutionCache}, the job only solves the levels whose layout it has not
+ * solved optimally before, so running it again after editing a level solves that level
+ * alone. Levels stopped at the time limit are not cached and are searched again.
+ * <p>
+ * The pars are stored next to the level definitions, in the {@value #RESOURCE} resource,
+ * together with the {@link Level#getCanonicalHash() canonical hash} of each level. The
+ * {@link LevelManager} only applies a par whose hash still matches the level, so editing a
+ * level drops its par until the job is run again. Running {@link #main} recomputes the
+ * pars of all the predefined levels and rewrites the resource.
+ * <p>
+ * Key Responsibilities:
+ * - Solve a list of levels optimally on a thread pool, reusing cached solutions.
+ * - Write the pars with the hashes of their levels, and read them back.
+ * - Apply the stored pars to the levels whose layout has not changed.
+ * <p>
+ * Threading: A calculator can be reused, but {@link #compute} should not be called from
+ * two threads at the same time.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class ParCalculator {
+
+    /**
+     * Class path resource holding the pars of the predefined levels.
+     */
+    public static final String RESOURCE = "/levels/par.properties";
+
+    /**
+     * Default time limit of the search of each level, in milliseconds.
+     */
+    public static final long DEFAULT_TIME_LIMIT_MILLIS = 10 * 60 * 1000;
+
+    private final int parallelism;
+    private long timeLimitMillis;
+    private SolutionCache cache;
+
+    /**
+     * Creates a calculator that solves as many levels at once as there are cores.
+     */
+    public ParCalculator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a calculator.
+     *
+     * @param parallelism The number of levels solved at the same time, at least 1.
+     */
+    public ParCalculator(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        this.timeLimitMillis = DEFAULT_TIME_LIMIT_MILLIS;
+    }
+
+    /**
+     * Sets how long the search of each level may run.
+     *
+     * @param millis The limit in milliseconds, or 0 for no limit.
+     */
+    public void setTimeLimitMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("The time limit cannot be negative");
+        }
+        this.timeLimitMillis = millis;
+    }
+
+    /**
+     * Sets the cache the next computations read solutions from and store them in.
+     *
+     * @param cache The cache, or null to solve every level.
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Solves levels optimally on a thread pool.
+     *
+     * @param levels The levels to solve.
+     * @return The result of each level, in the order of the list.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public Map<Level, SolverResult> compute(List<Level> levels) throws InterruptedException {
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "snowman-par-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<SolverResult>> futures = new ArrayList<>();
+            for (Level level : levels) {
+                futures.add(pool.submit(() -> {
+                    Solver solver = new Solver(Solver.Strategy.IDA_STAR);
+                    solver.setTimeLimitMillis(timeLimitMillis);
+                    return cache == null ? solver.solve(level) : cache.solve(level, solver);
+                }));
+            }
+            Map<Level, SolverResult> results = new LinkedHashMap<>();
+            for (int i = 0; i < levels.size(); i++) {
+                try {
+                    results.put(levels.get(i), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Unable to solve level " + levels.get(i).getLevelNumber(),
+                            e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the pars of the solved levels with the hashes of their levels.
+     *
+     * @param results The results returned by {@link #compute}.
+     * @param file    The file to write, replaced if it exists.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void store(Map<Level, SolverResult> results, Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1)) {
+            writer.write("# Optimal move counts of the predefined levels, written by ParCalculator.\n");
+            writer.write("# A par only applies while the level still has the hash stored with it.\n");
+            for (Map.Entry<Level, SolverResult> entry : results.entrySet()) {
+                if (!entry.getValue().isSolved()) {
+                    continue;
+                }
+                int number = entry.getKey().getLevelNumber();
+                writer.write("level." + number + ".hash=" + Long.toHexString(entry.getKey().getCanonicalHash()) + "\n");
+                writer.write("level." + number + ".par=" + entry.getValue().getLength() + "\n");
+            }
+        }
+    }
+
+    /**
+     * Reads the pars stored in the {@value #RESOURCE} resource.
+     *
+     * @return The stored entries, empty if the resource is missing.
+     */
+    static Properties load() {
+        Properties pars = new Properties();
+        try (InputStream in = ParCalculator.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                pars.load(in);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return pars;
+    }
+
+    /**
+     * Gives a level its stored par, if there is one for its number and its layout has not
+     * changed since.
+     *
+     * @param level The level.
+     * @param pars  The stored entries.
+     * @return The level with its par, or the level itself if no par applies.
+     */
+    static Level applyPar(Level level, Properties pars) {
+        String key = "level." + level.getLevelNumber();
+        String hash = pars.getProperty(key + ".hash");
+        String par = pars.getProperty(key + ".par");
+        if (hash == null || par == null || Long.parseUnsignedLong(hash, 16) != level.getCanonicalHash()) {
+            return level;
+        }
+        return level.withPar(Integer.parseInt(par));
+    }
+
+    /**
+     * Recomputes the pars of the predefined levels and rewrites the resource.
+     *
+     * @param args Optionally, the file to write; defaults to the resource in the source tree.
+     * @throws Exception if a level cannot be solved or the file cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        Path file = args.length > 0 ? Paths.get(args[0]) : Paths.get("src", "main", "resources", "levels", "par.properties");
+        Map<Level, SolverResult> results;
+        try (SolutionCache cache = new SolutionCache()) {
+            ParCalculator calculator = new ParCalculator();
+            calculator.setCache(cache);
+            results = calculator.compute(new LevelManager().getLevels());
+        }
+        results.forEach((level, result) -> System.out.println("Level " + level.getLevelNumber() + ": " + result));
+        store(results, file);
+        System.out.println("Pars written to " + file.toAbsolutePath());
+    }
+}
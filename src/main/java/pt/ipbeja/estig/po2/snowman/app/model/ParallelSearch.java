@@ -0,0 +1,237 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The ParallelSearch class runs the breadth-first search of the {@link Solver} on all cores.
+ * <p>
+ * The search goes one depth at a time. The frontier of the current depth is split
+ * recursively into ranges that the workers of a {@link ForkJoinPool} expand independently,
+ * and the children they reach for the first time, checked against a
+ * {@link ConcurrentStateTable} shared by all workers, are joined into the frontier of the
+ * next depth. Since every node of a frontier has the same depth, the first solution found
+ * is as short as the one a single-threaded breadth-first search would find.
+ * <p>
+ * Key Responsibilities:
+ * - Split the expansion of each depth across the workers.
+ * - Stop every worker cooperatively once a solution is found, the state limit is reached,
+ *   or the solver is cancelled or runs out of time.
+ * - Report the result in the same form as the single-threaded strategies.
+ * <p>
+ * Threading: An instance runs a single search; the workers only share the table, the
+ * counters and the stop flags, which are all thread-safe.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class ParallelSearch {
+
+    /**
+     * Ranges of the frontier at most this long are expanded without splitting them further.
+     */
+    private static final int SPLIT_THRESHOLD = 256;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SearchSpace space;
+    private final ConcurrentStateTable table;
+    private final int maxStates;
+    private final LongAdder expanded;
+    private final AtomicInteger solution;
+
+    /**
+     * Nodes of the depth about to be expanded.
+     */
+    private Frontier frontier;
+
+    /**
+     * Set once the search must end; read by the workers before expanding each node.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Why the search was stopped before finishing, or null; set by the first thread that
+     * finds the solver cancelled or out of time.
+     */
+    private volatile SolverResult.Status interruption;
+
+    /**
+     * The solver that runs the search and when it started, set before the first depth.
+     */
+    private Solver solver;
+    private long start;
+
+    /**
+     * Creates the search of a board.
+     *
+     * @param space     The search space of the board.
+     * @param state     The state to solve from; it is not modified.
+     * @param maxStates Number of distinct states at which the search gives up.
+     */
+    ParallelSearch(SearchSpace space, byte[] state, int maxStates) {
+        this.space = space;
+        this.table = new ConcurrentStateTable();
+        this.maxStates = maxStates;
+        this.expanded = new LongAdder();
+        this.solution = new AtomicInteger(StateTable.NONE);
+        Frontier root = new Frontier();
+        long hash = space.hash(state);
+        root.add(table.addIfAbsent(state, hash, StateTable.NONE, 0, 0), state, hash);
+        this.frontier = root;
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @param pool   The pool whose workers expand the frontier.
+     * @param solver The solver that runs the search, asked between depths and every
+     *               {@link Solver#CLOCK_INTERVAL} nodes of each worker whether it was
+     *               cancelled or ran out of time.
+     * @param start  Value of {@link System#nanoTime()} when the solve started.
+     * @return The result of the search.
+     */
+    SolverResult run(ForkJoinPool pool, Solver solver, long start) {
+        Solver.Strategy strategy = solver.getStrategy();
+        if (space.isGoal(frontier.states[0])) {
+            return new SolverResult(strategy, SolverResult.Status.SOLVED, new int[0], 0,
+                    table.size(), table.memoryBytes(), System.nanoTime() - start);
+        }
+        this.solver = solver;
+        this.start = start;
+        int depth = 0;
+        while (frontier.size > 0 && !stopped) {
+            interruption = solver.interruption(start);
+            if (interruption != null) {
+                break;
+            }
+            frontier = pool.invoke(new Expand(frontier, 0, frontier.size, depth + 1));
+            depth++;
+        }
+        SolverResult.Status status;
+        int[] moves = null;
+        int node = solution.get();
+        if (node != StateTable.NONE) {
+            status = SolverResult.Status.SOLVED;
+            moves = table.pathTo(node);
+        } else if (interruption != null) {
+            status = interruption;
+        } else if (stopped) {
+            status = SolverResult.Status.LIMIT_REACHED;
+        } else {
+            status = SolverResult.Status.UNSOLVABLE;
+        }
+        return new SolverResult(strategy, status, moves, expanded.sum(), table.size(),
+                table.memoryBytes(), System.nanoTime() - start);
+    }
+
+    /**
+     * Expands a range of the frontier and returns the new nodes it reached.
+     */
+    private final class Expand extends RecursiveTask<Frontier> {
+
+        private final Frontier source;
+        private final int from;
+        private final int to;
+        private final int depth;
+
+        Expand(Frontier source, int from, int to, int depth) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Frontier compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                Expand left = new Expand(source, from, middle, depth);
+                left.fork();
+                Frontier right = new Expand(source, middle, to, depth).compute();
+                return left.join().append(right);
+            }
+            Frontier children = new Frontier();
+            byte[] child = new byte[space.stateLength()];
+            for (int i = from; i < to && !stopped; i++) {
+                if ((i - from) % Solver.CLOCK_INTERVAL == 0) {
+                    SolverResult.Status status = solver.interruption(start);
+                    if (status != null) {
+                        interruption = status;
+                        stopped = true;
+                        break;
+                    }
+                }
+                byte[] state = source.states[i];
+                long hash = source.hashes[i];
+                expanded.increment();
+                for (Direction direction : DIRECTIONS) {
+                    if (space.preview(state, direction) == MoveOutcome.BLOCKED) {
+                        continue;
+                    }
+                    long childHash = space.apply(state, hash, direction, child);
+                    if (space.estimate(child) == Integer.MAX_VALUE) {
+                        continue; // Dead end: no snowman can be built any more
+                    }
+                    int node = table.addIfAbsent(child, childHash, source.nodes[i], direction.ordinal(), depth);
+                    if (node == StateTable.NONE) {
+                        continue;
+                    }
+                    if (space.isGoal(child)) {
+                        solution.compareAndSet(StateTable.NONE, node);
+                        stopped = true;
+                        return children;
+                    }
+                    if (table.size() >= maxStates) {
+                        stopped = true;
+                        return children;
+                    }
+                    children.add(node, child, childHash);
+                    child = new byte[space.stateLength()];
+                }
+            }
+            return children;
+        }
+    }
+
+    /**
+     * Nodes of one depth, with their states and hashes, so expanding them does not need
+     * to read the shared table.
+     */
+    private static final class Frontier {
+
+        private int[] nodes = new int[16];
+        private byte[][] states = new byte[16][];
+        private long[] hashes = new long[16];
+        private int size;
+
+        void add(int node, byte[] state, long hash) {
+            if (size == nodes.length) {
+                grow(size * 2);
+            }
+            nodes[size] = node;
+            states[size] = state;
+            hashes[size] = hash;
+            size++;
+        }
+
+        Frontier append(Frontier other) {
+            if (size + other.size > nodes.length) {
+                grow(Math.max(size + other.size, nodes.length * 2));
+            }
+            System.arraycopy(other.nodes, 0, nodes, size, other.size);
+            System.arraycopy(other.states, 0, states, size, other.size);
+            System.arraycopy(other.hashes, 0, hashes, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        private void grow(int capacity) {
+            nodes = Arrays.copyOf(nodes, capacity);
+            states = Arrays.copyOf(states, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+    }
+}
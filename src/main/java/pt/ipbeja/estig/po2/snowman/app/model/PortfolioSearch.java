@@ -0,0 +1,144 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PortfolioSearch class runs the portfolio mode of the {@link Solver}: several
+ * strategies race on the same state, each on its own thread, and the first conclusive
+ * answer wins.
+ * <p>
+ * Every contender is a separate {@link Solver} with the limits of the portfolio, searching
+ * its own copy of the starting state, so the contenders share nothing but the immutable
+ * {@link SearchSpace}. A contender that solves the level, or proves that it cannot be
+ * solved, wins at once: the others are cancelled, and the race only returns after their
+ * threads have stopped, so their transposition tables are already garbage by then. A
+ * contender that stops at a limit does not win; if every contender does, the result of the
+ * last one to stop is returned. The winning result keeps the strategy of its contender.
+ * <p>
+ * Key Responsibilities:
+ * - Run breadth-first, A* and greedy best-first at the same time.
+ * - Return the first solution or proof of unsolvability, and cancel the other searches.
+ * - Pass on the cancellation of the portfolio to every contender.
+ * <p>
+ * Threading: An instance runs a single race; the calling thread waits for it to finish.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class PortfolioSearch {
+
+    /**
+     * Strategies raced by the portfolio.
+     */
+    static final Solver.Strategy[] CONTENDERS = {
+            Solver.Strategy.BREADTH_FIRST,
+            Solver.Strategy.A_STAR,
+            Solver.Strategy.GREEDY_BEST_FIRST
+    };
+
+    /**
+     * How often the waiting thread checks whether the portfolio was cancelled.
+     */
+    private static final long POLL_MILLIS = 10;
+
+    private final SearchSpace space;
+    private final byte[] root;
+
+    /**
+     * Creates the race of a state.
+     *
+     * @param space The search space of the board.
+     * @param root  The state to solve from; it is not modified.
+     */
+    PortfolioSearch(SearchSpace space, byte[] root) {
+        this.space = space;
+        this.root = root;
+    }
+
+    /**
+     * Runs the race.
+     *
+     * @param solver The portfolio solver, whose limits and settings every contender gets.
+     * @param start  Value of {@link System#nanoTime()} when the solve started.
+     * @return The result of the winning contender.
+     */
+    SolverResult run(Solver solver, long start) {
+        // The pool creates its workers inside submit, on this thread, so the list needs no lock
+        List<Thread> threads = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(CONTENDERS.length, task -> {
+            Thread thread = new Thread(task, "snowman-portfolio");
+            thread.setDaemon(true);
+            threads.add(thread);
+            return thread;
+        });
+        CompletionService<SolverResult> race = new ExecutorCompletionService<>(pool);
+        List<Solver> contenders = new ArrayList<>();
+        for (Solver.Strategy strategy : CONTENDERS) {
+            Solver contender = new Solver(strategy);
+            contender.setMaxStates(solver.getMaxStates());
+            contender.setTimeLimitMillis(solver.getTimeLimitMillis());
+            contender.setTableBytes(solver.getTableBytes());
+            contender.setParallelism(solver.getParallelism());
+            contender.setSymmetryReduction(solver.isSymmetryReduction());
+            contenders.add(contender);
+            byte[] copy = root.clone();
+            race.submit(() -> contender.solve(space, copy));
+        }
+
+        try {
+            SolverResult last = null;
+            for (int finished = 0; finished < CONTENDERS.length; ) {
+                Future<SolverResult> done = race.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    SolverResult.Status interruption = solver.interruption(start);
+                    if (interruption == SolverResult.Status.CANCELLED) {
+                        return stopped(interruption, start);
+                    }
+                    continue; // The contenders stop at the time limit on their own
+                }
+                finished++;
+                last = done.get();
+                if (last.isSolved() || last.getStatus() == SolverResult.Status.UNSOLVABLE) {
+                    return last;
+                }
+            }
+            return last;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return stopped(SolverResult.Status.CANCELLED, start);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A portfolio search failed", e.getCause());
+        } finally {
+            for (Solver contender : contenders) {
+                contender.cancel();
+            }
+            pool.shutdown();
+            awaitLosers(threads);
+        }
+    }
+
+    /**
+     * Waits until the threads of the cancelled contenders have ended, which takes at most
+     * a few hundred expansions each.
+     */
+    private static void awaitLosers(List<Thread> threads) {
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SolverResult stopped(SolverResult.Status status, long start) {
+        return new SolverResult(Solver.Strategy.PORTFOLIO, status, null, 0, 0, 0, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,223 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The PushSearch class runs the push-level search of the {@link Solver}.
+ * <p>
+ * Its actions are snowball pushes instead of single monster steps. Before each expansion
+ * the cells the monster can reach without pushing anything are found with a bitset flood
+ * fill ({@link BitGrid}), treating snowballs and blocks as walls, and every push of a
+ * snowball from a reachable cell becomes one macro move: a walk to the cell behind the
+ * snowball followed by the push. States are stored under a normalised key in which the
+ * monster stands on the lowest cell of its region, so states that only differ by where the
+ * monster wanders are searched once.
+ * <p>
+ * Walking clears snow, so the walk of a macro move is not free: it is replayed step by step
+ * on the state, along a shortest path that prefers cells already without snow, and the
+ * state kept for each node is the exact one the moves produce. The normalised key only
+ * decides which states count as the same; the moves of a solution are rebuilt from the
+ * exact states, so they always replay on the board. Since a walk follows a single path and
+ * a node keeps the first exact state that reached it, the solutions are usually short but
+ * not guaranteed to be the shortest.
+ * <p>
+ * Key Responsibilities:
+ * - Generate push macro moves from the monster's reachable region.
+ * - Apply walks and pushes exactly, snow included.
+ * - Rebuild the step-by-step moves of a solution.
+ * <p>
+ * Threading: An instance runs a single search on the calling thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class PushSearch {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SearchSpace space;
+    private final BitGrid grid;
+    private final StateTable table;
+
+    /**
+     * Exact state of each node, indexed like the table, and the push that reached it:
+     * the cell the monster pushed from times four plus the direction ordinal.
+     */
+    private byte[][] exact;
+    private long[] exactHashes;
+    private int[] pushes;
+
+    /**
+     * Creates the search of a state.
+     *
+     * @param space The search space of the board.
+     * @param root  The state to solve from; it is not modified.
+     */
+    PushSearch(SearchSpace space, byte[] root) {
+        this.space = space;
+        this.grid = new BitGrid(space.getRows(), space.getCols());
+        this.table = new StateTable();
+        this.exact = new byte[1024][];
+        this.exactHashes = new long[1024];
+        this.pushes = new int[1024];
+        long hash = space.hash(root);
+        add(root, hash, StateTable.NONE, -1, 0);
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @param solver    The solver that runs the search, for its limits and strategy.
+     * @param maxStates Number of distinct states at which the search gives up.
+     * @param start     Value of {@link System#nanoTime()} when the solve started.
+     * @return The result of the search.
+     */
+    SolverResult run(Solver solver, int maxStates, long start) {
+        Solver.OpenQueue open = new Solver.OpenQueue();
+        int rootEstimate = space.estimate(exact[0]);
+        if (rootEstimate != Integer.MAX_VALUE) {
+            open.push(rootEstimate, 0, 0);
+        }
+        long[] free = grid.newSet();
+        long[] bare = grid.newSet();
+        long expanded = 0;
+        int best = 0;
+        int bestEstimate = rootEstimate;
+        while (!open.isEmpty()) {
+            int node = Solver.OpenQueue.node(open.pop());
+            byte[] state = exact[node];
+            if (space.isGoal(state)) {
+                return result(solver, SolverResult.Status.SOLVED, node, expanded, start);
+            }
+            SolverResult.Status interruption = solver.interruption(start);
+            if (interruption != null) {
+                return result(solver, interruption, best, expanded, start);
+            }
+            expanded++;
+
+            long hash = exactHashes[node];
+            int depth = table.depth(node);
+            space.walkable(state, free);
+            space.snowless(state, bare);
+            List<long[]> layers = grid.layers(free, space.monster(state));
+            for (int cell = 0; cell < space.cells(); cell++) {
+                if (SearchSpace.ball(state, cell) < 0) {
+                    continue;
+                }
+                for (Direction direction : DIRECTIONS) {
+                    int from = grid.step(cell, direction, -1);
+                    if (from < 0 || !reached(layers, from)
+                            || space.previewFrom(state, from, direction) == MoveOutcome.BLOCKED) {
+                        continue;
+                    }
+                    Direction[] walk = grid.path(layers, from, bare);
+                    byte[] child = state;
+                    long childHash = hash;
+                    for (Direction step : walk) {
+                        byte[] next = new byte[state.length];
+                        childHash = space.apply(child, childHash, step, next);
+                        child = next;
+                    }
+                    byte[] pushed = new byte[state.length];
+                    childHash = space.apply(child, childHash, direction, pushed);
+
+                    int estimate = space.estimate(pushed);
+                    if (estimate == Integer.MAX_VALUE) {
+                        continue; // Dead end: no snowman can be built any more
+                    }
+                    if (table.size() >= maxStates) {
+                        return result(solver, SolverResult.Status.LIMIT_REACHED, best, expanded, start);
+                    }
+                    int cost = depth + walk.length + 1;
+                    int added = add(pushed, childHash, node, from * 4 + direction.ordinal(), cost);
+                    if (added == StateTable.NONE) {
+                        continue; // Same snowballs, snow and monster region as a known state
+                    }
+                    open.push(cost + estimate, cost, added);
+                    if (estimate < bestEstimate) {
+                        best = added;
+                        bestEstimate = estimate;
+                    }
+                }
+            }
+        }
+        return result(solver, SolverResult.Status.UNSOLVABLE, StateTable.NONE, expanded, start);
+    }
+
+    /**
+     * @return true if a cell is in any of the distance layers, i.e. reachable.
+     */
+    private static boolean reached(List<long[]> layers, int cell) {
+        for (long[] layer : layers) {
+            if (BitGrid.get(layer, cell)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds an exact state under its normalised key, unless the key is already known.
+     *
+     * @return The new node, or {@link StateTable#NONE} if the key was known.
+     */
+    private int add(byte[] state, long hash, int parent, int push, int depth) {
+        long[] free = grid.newSet();
+        space.walkable(state, free);
+        int monster = space.monster(state);
+        int home = BitGrid.first(grid.flood(free, monster));
+        byte[] key = space.withMonster(state, home);
+        long keyHash = space.withMonsterHash(hash, monster, home);
+        if (table.find(key, keyHash) != StateTable.NONE) {
+            return StateTable.NONE;
+        }
+        int node = table.add(key, keyHash, parent, 0, depth);
+        if (node == exact.length) {
+            int capacity = node * 2;
+            exact = Arrays.copyOf(exact, capacity);
+            exactHashes = Arrays.copyOf(exactHashes, capacity);
+            pushes = Arrays.copyOf(pushes, capacity);
+        }
+        exact[node] = state;
+        exactHashes[node] = hash;
+        pushes[node] = push;
+        return node;
+    }
+
+    /**
+     * Rebuilds the step-by-step moves from the root to a node, replaying every walk from
+     * the exact state of its parent.
+     */
+    private int[] movesTo(int node) {
+        int pushCount = 0;
+        for (int n = node; table.parent(n) != StateTable.NONE; n = table.parent(n)) {
+            pushCount++;
+        }
+        int[] chain = new int[pushCount];
+        for (int n = node, i = pushCount - 1; i >= 0; n = table.parent(n), i--) {
+            chain[i] = n;
+        }
+        int[] moves = new int[table.depth(node)];
+        int next = 0;
+        long[] free = grid.newSet();
+        long[] bare = grid.newSet();
+        for (int n : chain) {
+            byte[] parent = exact[table.parent(n)];
+            space.walkable(parent, free);
+            space.snowless(parent, bare);
+            List<long[]> layers = grid.layers(free, space.monster(parent));
+            for (Direction step : grid.path(layers, pushes[n] >>> 2, bare)) {
+                moves[next++] = step.ordinal();
+            }
+            moves[next++] = pushes[n] & 3;
+        }
+        return moves;
+    }
+
+    private SolverResult result(Solver solver, SolverResult.Status status, int node, long expanded, long start) {
+        int[] moves = node == StateTable.NONE ? null : movesTo(node);
+        long exactBytes = exact.length * (4L + 8 + 4) + table.size() * (16L + space.stateLength());
+        return new SolverResult(solver.getStrategy(), status, moves, expanded, table.size(),
+                table.memoryBytes() + exactBytes, System.nanoTime() - start);
+    }
+}
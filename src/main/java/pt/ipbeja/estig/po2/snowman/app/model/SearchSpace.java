@@ -0,0 +1,589 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * The SearchSpace class is the compact state representation used by the level solvers.
+ * <p>
+ * A search state is a {@code byte[]} with one byte per cell followed by two bytes holding
+ * the monster's cell index. The low two bits of a cell byte hold the ordinal of its
+ * {@link PositionContent} and the next three bits hold the ordinal of the
+ * {@link SnowballType} on it plus one (zero means no snowball). States are hashed with
+ * the same {@link ZobristKeys} as {@link BoardModel#stateHash()}, so a state and the board
+ * it was encoded from always have the same hash.
+ * <p>
+ * Moves follow exactly the rules of {@link Monster#move} and {@link Snowball#move}: the
+ * monster clears snow from the cell it leaves and the cell it enters, pushed snowballs
+ * grow on snow and combine with the snowball they hit, and a complete snowman turns its
+ * cell into {@link PositionContent#SNOWMAN}.
+ * <p>
+ * Key Responsibilities:
+ * - Encode a board into a search state.
+ * - Predict and apply moves on search states, updating their hash incrementally.
+ * - Test states for level completion and estimate the moves still needed.
+ * <p>
+ * Threading: Instances are immutable and can be shared by several search threads.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class SearchSpace {
+
+    /**
+     * Bits of a cell byte holding the content and the snowball.
+     */
+    private static final int CONTENT_MASK = 0b11;
+    private static final int BALL_SHIFT = 2;
+
+    /**
+     * Packed contents used by the rules.
+     */
+    private static final int NO_SNOW = PositionContent.NO_SNOW.ordinal();
+    private static final int SNOW = PositionContent.SNOW.ordinal();
+    private static final int BLOCK = PositionContent.BLOCK.ordinal();
+    private static final int SNOWMAN = PositionContent.SNOWMAN.ordinal();
+
+    /**
+     * Snowball type ordinals used by the rules.
+     */
+    private static final int SMALL = SnowballType.SMALL.ordinal();
+    private static final int MID = SnowballType.MID.ordinal();
+    private static final int BIG = SnowballType.BIG.ordinal();
+    private static final int MID_SMALL = SnowballType.MID_SMALL.ordinal();
+    private static final int BIG_SMALL = SnowballType.BIG_SMALL.ordinal();
+    private static final int BIG_MID = SnowballType.BIG_MID.ordinal();
+    private static final int COMPLETE = SnowballType.COMPLETE.ordinal();
+
+    /**
+     * Combined type of a pushed snowball (row) hitting another one (column), or -1.
+     */
+    private static final int[][] COMBINED = new int[BoardModel.SNOWBALL_TYPES.length][BoardModel.SNOWBALL_TYPES.length];
+
+    static {
+        for (SnowballType pushed : BoardModel.SNOWBALL_TYPES) {
+            for (SnowballType other : BoardModel.SNOWBALL_TYPES) {
+                SnowballType combined = Snowball.calculateCombinedType(pushed, other);
+                COMBINED[pushed.ordinal()][other.ordinal()] = combined == null ? -1 : combined.ordinal();
+            }
+        }
+    }
+
+    private final int rows;
+    private final int cols;
+    private final int cells;
+    private final int requiredSnowmen;
+    private final ZobristKeys keys;
+
+    /**
+     * Cells where a snowball can be pushed, see {@link #isMovable}.
+     */
+    private final boolean[] movable;
+
+    /**
+     * Symmetries of the board's blocks, see {@link Symmetry}.
+     */
+    private final Symmetry symmetry;
+
+    /**
+     * Creates the search space of a board: its size, its keys and its completion goal.
+     *
+     * @param board The board whose states will be searched.
+     */
+    SearchSpace(BoardModel board) {
+        this.rows = board.getRows();
+        this.cols = board.getCols();
+        this.cells = rows * cols;
+        this.requiredSnowmen = board.getRequiredSnowmen();
+        this.keys = ZobristKeys.forCells(cells);
+        this.movable = new boolean[cells];
+        BoardGrid grid = board.getGrid();
+        boolean[] blocked = new boolean[cells];
+        for (int i = 0; i < cells; i++) {
+            movable[i] = passable(grid, i, Direction.UP) && passable(grid, i, Direction.DOWN)
+                    || passable(grid, i, Direction.LEFT) && passable(grid, i, Direction.RIGHT);
+            blocked[i] = grid.getPacked(i) == BLOCK;
+        }
+        this.symmetry = new Symmetry(rows, cols, blocked);
+    }
+
+    private boolean passable(BoardGrid grid, int index, Direction direction) {
+        int next = neighbour(index, direction);
+        return next >= 0 && grid.getPacked(next) != BLOCK;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return The symmetries of the board's layout; blocks never move, so they hold for
+     *         every state of this space.
+     */
+    Symmetry symmetry() {
+        return symmetry;
+    }
+
+    /**
+     * @return Number of cells of the board.
+     */
+    int cells() {
+        return cells;
+    }
+
+    /**
+     * @return Length of every state array of this space.
+     */
+    int stateLength() {
+        return cells + 2;
+    }
+
+    /**
+     * Encodes the current state of a board.
+     *
+     * @param board A board with the size of this space.
+     * @return The search state of the board.
+     */
+    byte[] encode(BoardModel board) {
+        byte[] state = new byte[stateLength()];
+        BoardGrid grid = board.getGrid();
+        for (int i = 0; i < cells; i++) {
+            state[i] = grid.getPacked(i);
+        }
+        for (Snowball snowball : board.getSnowballs()) {
+            int index = grid.index(snowball.getRow(), snowball.getCol());
+            state[index] = (byte) (state[index] | (snowball.getType().ordinal() + 1) << BALL_SHIFT);
+        }
+        setMonster(state, grid.index(board.getMonster().getRow(), board.getMonster().getCol()));
+        return state;
+    }
+
+    /**
+     * @return The cell index of the monster in a state.
+     */
+    int monster(byte[] state) {
+        return (state[cells] & 0xFF) | (state[cells + 1] & 0xFF) << 8;
+    }
+
+    private void setMonster(byte[] state, int index) {
+        state[cells] = (byte) index;
+        state[cells + 1] = (byte) (index >>> 8);
+    }
+
+    /**
+     * @return The packed content of a cell of a state.
+     */
+    static int content(byte[] state, int index) {
+        return state[index] & CONTENT_MASK;
+    }
+
+    /**
+     * @return The snowball type ordinal on a cell of a state, or -1 if there is none.
+     */
+    static int ball(byte[] state, int index) {
+        return (state[index] >>> BALL_SHIFT) - 1;
+    }
+
+    private static void setContent(byte[] state, int index, int content) {
+        state[index] = (byte) (state[index] & ~CONTENT_MASK | content);
+    }
+
+    private static void setBall(byte[] state, int index, int type) {
+        state[index] = (byte) (state[index] & CONTENT_MASK | (type + 1) << BALL_SHIFT);
+    }
+
+    /**
+     * Computes the hash of a state from scratch.
+     *
+     * @param state A state of this space.
+     * @return The same hash {@link BoardModel#stateHash()} gives for that state.
+     */
+    long hash(byte[] state) {
+        long hash = keys.monster(monster(state));
+        for (int i = 0; i < cells; i++) {
+            hash ^= keys.cell(i, content(state, i));
+            int ball = ball(state, i);
+            if (ball >= 0) {
+                hash ^= keys.snowball(i, ball);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return The cell next to a cell in a direction, or -1 if it is outside the board.
+     */
+    int neighbour(int index, Direction direction) {
+        int row = index / cols + direction.getDeltaRow();
+        int col = index % cols + direction.getDeltaCol();
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return -1;
+        }
+        return row * cols + col;
+    }
+
+    /**
+     * @return true if a cell exists and is not blocked.
+     */
+    private boolean open(byte[] state, int index) {
+        return index >= 0 && content(state, index) != BLOCK;
+    }
+
+    /**
+     * Predicts what a move would do in a state, like {@link BoardModel#previewMove}.
+     *
+     * @param state     A state of this space.
+     * @param direction Direction of the move.
+     * @return The outcome of the move, or {@link MoveOutcome#BLOCKED}.
+     */
+    MoveOutcome preview(byte[] state, Direction direction) {
+        return previewFrom(state, monster(state), direction);
+    }
+
+    /**
+     * Predicts what a move would do in a state if the monster stood on another cell.
+     *
+     * @param state     A state of this space.
+     * @param from      The cell the monster would move from.
+     * @param direction Direction of the move.
+     * @return The outcome of the move, or {@link MoveOutcome#BLOCKED}.
+     */
+    MoveOutcome previewFrom(byte[] state, int from, Direction direction) {
+        int target = neighbour(from, direction);
+        if (!open(state, target)) {
+            return MoveOutcome.BLOCKED;
+        }
+        int type = ball(state, target);
+        if (type < 0) {
+            return MoveOutcome.STEP;
+        }
+        int next = neighbour(target, direction);
+        if (!Snowball.canRoll(BoardModel.SNOWBALL_TYPES[type]) || !open(state, next)) {
+            return MoveOutcome.BLOCKED;
+        }
+        int other = ball(state, next);
+        if (other >= 0) {
+            int combined = COMBINED[type][other];
+            if (combined < 0) {
+                return MoveOutcome.BLOCKED;
+            }
+            return combined == COMPLETE ? MoveOutcome.COMPLETE_SNOWMAN : MoveOutcome.COMBINE;
+        }
+        if (content(state, next) == SNOW && type != BIG) {
+            return MoveOutcome.PUSH_AND_GROW;
+        }
+        return MoveOutcome.PUSH;
+    }
+
+    /**
+     * Applies a legal move to a state, writing the resulting state into another array.
+     *
+     * @param state     The state to move from; left unchanged.
+     * @param hash      The hash of that state.
+     * @param direction Direction of a move that {@link #preview} reports as legal.
+     * @param child     Array of {@link #stateLength()} bytes receiving the new state.
+     * @return The hash of the new state.
+     */
+    long apply(byte[] state, long hash, Direction direction, byte[] child) {
+        System.arraycopy(state, 0, child, 0, state.length);
+        int from = monster(state);
+        int target = neighbour(from, direction);
+
+        int type = ball(child, target);
+        if (type >= 0) {
+            int next = neighbour(target, direction);
+            int other = ball(child, next);
+            setBall(child, target, -1);
+            hash ^= keys.snowball(target, type);
+            if (other >= 0) {
+                int combined = COMBINED[type][other];
+                hash ^= keys.snowball(next, other);
+                if (combined == COMPLETE) {
+                    setBall(child, next, -1);
+                    hash = setCellContent(child, next, SNOWMAN, hash);
+                } else {
+                    setBall(child, next, combined);
+                    hash ^= keys.snowball(next, combined);
+                }
+            } else {
+                if (content(child, next) == SNOW) {
+                    type = type == SMALL ? MID : type == MID ? BIG : type;
+                    hash = setCellContent(child, next, NO_SNOW, hash);
+                }
+                setBall(child, next, type);
+                hash ^= keys.snowball(next, type);
+            }
+        }
+
+        hash = setCellContent(child, from, NO_SNOW, hash);
+        hash = setCellContent(child, target, NO_SNOW, hash);
+        setMonster(child, target);
+        return hash ^ keys.monster(from) ^ keys.monster(target);
+    }
+
+    private long setCellContent(byte[] state, int index, int content, long hash) {
+        int previous = content(state, index);
+        if (previous == content) {
+            return hash;
+        }
+        setContent(state, index, content);
+        return hash ^ keys.cell(index, previous) ^ keys.cell(index, content);
+    }
+
+    /**
+     * Writes into a bitset the cells the monster can step on without pushing anything:
+     * cells that are not blocked and hold no snowball.
+     *
+     * @param state A state of this space.
+     * @param free  A bitset of {@link #cells()} bits, overwritten.
+     */
+    void walkable(byte[] state, long[] free) {
+        Arrays.fill(free, 0);
+        for (int i = 0; i < cells; i++) {
+            if (content(state, i) != BLOCK && ball(state, i) < 0) {
+                BitGrid.set(free, i);
+            }
+        }
+    }
+
+    /**
+     * Writes into a bitset the cells without snow.
+     *
+     * @param state A state of this space.
+     * @param bare  A bitset of {@link #cells()} bits, overwritten.
+     */
+    void snowless(byte[] state, long[] bare) {
+        Arrays.fill(bare, 0);
+        for (int i = 0; i < cells; i++) {
+            if (content(state, i) != SNOW) {
+                BitGrid.set(bare, i);
+            }
+        }
+    }
+
+    /**
+     * Copies a state with the monster moved to another cell, without any other change.
+     *
+     * @param state   A state of this space.
+     * @param monster The new cell of the monster.
+     * @return The new state.
+     */
+    byte[] withMonster(byte[] state, int monster) {
+        byte[] copy = state.clone();
+        setMonster(copy, monster);
+        return copy;
+    }
+
+    /**
+     * @return The hash of a state after its monster moved between two cells.
+     */
+    long withMonsterHash(long hash, int from, int to) {
+        return hash ^ keys.monster(from) ^ keys.monster(to);
+    }
+
+    /**
+     * @return Number of complete snowmen in a state.
+     */
+    int snowmen(byte[] state) {
+        int count = 0;
+        for (int i = 0; i < cells; i++) {
+            if (content(state, i) == SNOWMAN) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return true if a state completes the level, like {@link BoardModel#isLevelComplete()}.
+     */
+    boolean isGoal(byte[] state) {
+        return snowmen(state) >= requiredSnowmen;
+    }
+
+    /**
+     * Estimates the moves still needed to complete the level from a state, never
+     * overestimating them, so A* stays optimal.
+     * <p>
+     * A snowman is only ever built one way: a MID and a BIG snowball combine into a
+     * BIG_MID, which cannot roll, and a SMALL snowball is then pushed onto it. The estimate
+     * tries every assignment of the snowballs on the board to those roles. For each one it
+     * counts the pushes that grow the snowballs to their role (pushes onto snow, which can
+     * never be combining pushes), the combining pushes, and the fact that every push brings
+     * at most one pair of the three snowballs one cell closer. Snowballs that sit where they
+     * can never be pushed again ({@link #canMove}) cannot grow, and cannot be the SMALL one.
+     * The monster also has to walk next to one of the snowballs first, and it has to touch
+     * every snowball that must be pushed at its current cell, since nothing else moves it.
+     * <p>
+     * Before that, the snowballs are counted: every missing snowman uses up a SMALL one that
+     * can still be pushed, and three SMALL, MID or BIG snowballs, a BIG_MID counting as two.
+     * MID_SMALL and BIG_SMALL snowballs are of no use, and snowballs never split, so a
+     * state without enough of them is lost even if one more snowman could still be built.
+     *
+     * @param state A state of this space.
+     * @return A lower bound of the moves to the goal, or {@link Integer#MAX_VALUE} if no
+     *         assignment exists and the missing snowmen can no longer be built.
+     */
+    int estimate(byte[] state) {
+        int missing = requiredSnowmen - snowmen(state);
+        if (missing <= 0) {
+            return 0;
+        }
+        int count = 0;
+        int smalls = 0;
+        int usable = 0;
+        for (int i = 0; i < cells; i++) {
+            int type = ball(state, i);
+            if (type < 0) {
+                continue;
+            }
+            count++;
+            if (type == SMALL) {
+                if (canMove(state, i)) {
+                    smalls++;
+                    usable++;
+                }
+            } else if (type == MID || type == BIG) {
+                usable++;
+            } else if (type == BIG_MID) {
+                usable += 2;
+            }
+        }
+        if (smalls < missing || usable < 3 * missing) {
+            return Integer.MAX_VALUE;
+        }
+        int[] balls = new int[count];
+        for (int i = 0, next = 0; next < count; i++) {
+            if (ball(state, i) >= 0) {
+                balls[next++] = i;
+            }
+        }
+
+        int monster = monster(state);
+        int best = Integer.MAX_VALUE;
+        for (int small : balls) {
+            if (ball(state, small) != SMALL || !canMove(state, small)) {
+                continue; // The SMALL snowball is always the one pushed last
+            }
+            for (int big : balls) {
+                int bigType = ball(state, big);
+                if (bigType == BIG_MID) {
+                    int cost = walk(monster, small) + distance(small, big);
+                    best = Math.min(best, cost);
+                    continue;
+                }
+                if (big == small || bigType > BIG || bigType != BIG && !canMove(state, big)) {
+                    continue;
+                }
+                for (int mid : balls) {
+                    int midType = ball(state, mid);
+                    if (mid == small || mid == big || midType > MID || midType != MID && !canMove(state, mid)
+                            || !canMove(state, big) && !canMove(state, mid)) {
+                        continue;
+                    }
+                    int growth = (BIG - bigType) + (MID - midType);
+                    int pushes = Math.max(growth + 1, distance(big, mid)) + 1;
+                    int spread = distance(big, mid) + distance(mid, small) + distance(small, big);
+                    pushes = Math.max(pushes, (spread + 1) / 2);
+                    int walk = Math.min(walk(monster, small), Math.min(walk(monster, big), walk(monster, mid)));
+                    int tour = tour(monster, small, bigType != BIG ? big : -1, midType != MID ? mid : -1);
+                    best = Math.min(best, Math.max(walk + pushes, tour + 1));
+                }
+            }
+        }
+        if (best == Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        // Every other missing snowman needs at least its final push
+        return best + missing - 1;
+    }
+
+    /**
+     * Tells whether a snowball on a cell could ever be pushed, i.e. whether the cells on
+     * both sides of it along a row or a column are on the board and not blocked. Blocks
+     * never move, so a snowball on a cell that fails this test stays there for good.
+     *
+     * @param index A cell index.
+     * @return true if a snowball on the cell can be pushed in some direction.
+     */
+    boolean isMovable(int index) {
+        return movable[index];
+    }
+
+    /**
+     * Tells whether the snowball on a cell of a state could still be pushed. Besides the
+     * dead squares of {@link #isMovable}, a snowball is frozen when both of its axes are
+     * closed by something permanent: the board edge, a block, or a MID_SMALL or BIG_SMALL
+     * snowball, which can neither roll nor combine with anything.
+     *
+     * @param state A state of this space.
+     * @param index The cell of a snowball.
+     * @return false if the snowball can never move again.
+     */
+    boolean canMove(byte[] state, int index) {
+        if (!movable[index]) {
+            return false;
+        }
+        return !permanent(state, neighbour(index, Direction.UP)) && !permanent(state, neighbour(index, Direction.DOWN))
+                || !permanent(state, neighbour(index, Direction.LEFT)) && !permanent(state, neighbour(index, Direction.RIGHT));
+    }
+
+    /**
+     * @return true if nothing can ever stand on or be pushed onto a cell.
+     */
+    private static boolean permanent(byte[] state, int index) {
+        if (index < 0 || content(state, index) == BLOCK) {
+            return true;
+        }
+        int type = ball(state, index);
+        return type == MID_SMALL || type == BIG_SMALL;
+    }
+
+    private int distance(int a, int b) {
+        return Math.abs(a / cols - b / cols) + Math.abs(a % cols - b % cols);
+    }
+
+    /**
+     * Bounds the moves the monster needs before it has stood next to every given snowball:
+     * a snowball only moves when the monster pushes it, so the first visit of each one is
+     * at its current cell.
+     *
+     * @param monster The cell of the monster.
+     * @param a       A snowball cell.
+     * @param b       Another snowball cell, or -1.
+     * @param c       Another snowball cell, or -1.
+     * @return The length of the shortest visiting order, at least.
+     */
+    private int tour(int monster, int a, int b, int c) {
+        if (b < 0 && c < 0) {
+            return walk(monster, a);
+        }
+        if (b < 0 || c < 0) {
+            int other = b < 0 ? c : b;
+            return Math.min(walk(monster, a), walk(monster, other)) + hop(a, other);
+        }
+        int ab = hop(a, b);
+        int bc = hop(b, c);
+        int ca = hop(c, a);
+        int viaA = walk(monster, a) + Math.min(ab + bc, ca + bc);
+        int viaB = walk(monster, b) + Math.min(ab + ca, bc + ca);
+        int viaC = walk(monster, c) + Math.min(ca + ab, bc + ab);
+        return Math.min(viaA, Math.min(viaB, viaC));
+    }
+
+    /**
+     * @return The steps from a cell next to one snowball to a cell next to another, at least.
+     */
+    private int hop(int a, int b) {
+        return Math.max(0, distance(a, b) - 2);
+    }
+
+    /**
+     * @return The steps the monster needs to stand next to a cell, at least.
+     */
+    private int walk(int monster, int index) {
+        return Math.max(0, distance(monster, index) - 1);
+    }
+}
@@ -7,6 +7,10 @@ package pt.ipbeja.estig.po2.snowman.app.model;
  * specific to snowballs, such as their type (size) and the ability to grow or combine
  * with other snowballs.
  * <p>
+ * While a snowball is on a board it is a handle over a slot of the board's
+ * {@link SnowballStore}: its position and type are read from and written to the store's
+ * arrays. Off the board it keeps them in its own fields.
+ * <p>
  * Key Responsibilities:
  * - Represent a snowball in terms of size, position, and movement on the board.
  * - Define behaviors for growing in size and combining with other snowballs.
@@ -17,10 +21,22 @@ package pt.ipbeja.estig.po2.snowman.app.model;
  */
 public class Snowball extends MobileElement {
     /**
-     * The type/size of the snowball (e.g., SMALL, MID, BIG).
+     * The type/size of the snowball (e.g., SMALL, MID, BIG), while it is not on a board.
      */
     private SnowballType type;
 
+    /**
+     * The board this snowball is currently on, or null while it is not on any board.
+     * Position and type changes of an attached snowball go through the board so that its
+     * store and occupancy index stay up to date.
+     */
+    BoardModel owner;
+
+    /**
+     * The slot of this snowball in its board's store, or -1 if never attached.
+     */
+    int id = -1;
+
     /**
      * Constructs a new Snowball with the specified position and type.
      *
@@ -33,13 +49,58 @@ public class Snowball extends MobileElement {
         this.type = type;
     }
 
+    @Override
+    public int getRow() {
+        return owner != null ? owner.getSnowballStore().row(id) : row;
+    }
+
+    @Override
+    public int getCol() {
+        return owner != null ? owner.getSnowballStore().col(id) : col;
+    }
+
+    /**
+     * Updates the row of the snowball, keeping the board's occupancy index in sync.
+     *
+     * @param row The new row of the snowball.
+     */
+    @Override
+    public void setRow(int row) {
+        setPosition(row, getCol());
+    }
+
+    /**
+     * Updates the column of the snowball, keeping the board's occupancy index in sync.
+     *
+     * @param col The new column of the snowball.
+     */
+    @Override
+    public void setCol(int col) {
+        setPosition(getRow(), col);
+    }
+
+    /**
+     * Moves the snowball to a new position in a single step.
+     *
+     * @param row The new row of the snowball.
+     * @param col The new column of the snowball.
+     */
+    public void setPosition(int row, int col) {
+        if (owner != null) {
+            owner.relocateSnowball(id, row, col);
+        } else {
+            this.row = row;
+            this.col = col;
+        }
+    }
+
     /**
      * Retrieves the type/size of the snowball.
      *
      * @return The current type of the snowball.
      */
     public SnowballType getType() {
-        return type;
+        return owner != null ? BoardModel.SNOWBALL_TYPES[owner.getSnowballStore().type(id)] : type;
     }
 
     /**
@@ -48,6 +109,20 @@ public class Snowball extends MobileElement {
      * @param type The new type of the snowball.
      */
     public void setType(SnowballType type) {
+        if (owner != null) {
+            owner.changeSnowballType(id, type);
+        } else {
+            this.type = type;
+        }
+    }
+
+    /**
+     * Keeps the last position and type the snowball had on its board, as it leaves it.
+     */
+    void unbind(int row, int col, SnowballType type) {
+        this.owner = null;
+        this.row = row;
+        this.col = col;
         this.type = type;
     }
 
@@ -58,12 +133,23 @@ public class Snowball extends MobileElement {
      * BIG, no further growth occurs.
      */
     public void increaseSnowballType() {
-        switch (type) {
+        switch (getType()) {
             case SMALL -> setType(SnowballType.MID);
             case MID -> setType(SnowballType.BIG);
         }
     }
 
+    /**
+     * Checks whether a snowball of the given type can still be pushed.
+     * Combined snowballs and complete snowmen never move again.
+     *
+     * @param type The type of the snowball.
+     * @return true for SMALL, MID and BIG snowballs; false otherwise.
+     */
+    static boolean canRoll(SnowballType type) {
+        return type == SnowballType.SMALL || type == SnowballType.MID || type == SnowballType.BIG;
+    }
+
     /**
      * Implements the movement behavior of the snowball.
      * <p>
@@ -80,7 +166,7 @@ public class Snowball extends MobileElement {
     @Override
     public boolean move(Direction direction, BoardModel board) {
         // Prevent movement if the snowball is combined or complete
-        switch (type) {
+        switch (getType()) {
             case MID_SMALL, BIG_SMALL, BIG_MID, COMPLETE -> {
                 return false;
             }
@@ -104,8 +190,7 @@ public class Snowball extends MobileElement {
                     board.setPositionContent(newRow, newCol, PositionContent.NO_SNOW);
                 }
 
-                this.setRow(newRow);
-                this.setCol(newCol);
+                this.setPosition(newRow, newCol);
                 return true;
             }
         }
@@ -114,28 +199,27 @@ public class Snowball extends MobileElement {
     /**
      * Attempts to combine the current snowball with another snowball.
      * <p>
-     * If the two snowballs can combine, they are removed from the board
-     * and replaced by a combined snowball or a complete snowman,
-     * depending on their types.
+     * If the two snowballs can combine, the pushed snowball is removed from the board
+     * and the other one takes the combined type, or both are replaced by a complete
+     * snowman, depending on their types. No snowball is created on the way.
      *
      * @param other The other snowball to combine with.
      * @param board The game board.
      * @return true if the combination was successful; false otherwise.
      */
     private boolean tryToCombineSnowballs(Snowball other, BoardModel board) {
-        SnowballType newType = calculateCombinedType(this.type, other.type);
+        SnowballType newType = calculateCombinedType(this.getType(), other.getType());
         if (newType != null) {
-            // Remove the original snowballs
-            board.getSnowballs().remove(other);
+            // The pushed snowball is absorbed by the other one
             board.getSnowballs().remove(this);
 
             if (newType == SnowballType.COMPLETE) {
                 // Create a complete snowman at the position
+                board.getSnowballs().remove(other);
                 board.setPositionContent(other.getRow(), other.getCol(), PositionContent.SNOWMAN);
             } else {
-                // Create a new combined snowball
-                Snowball combinedSnowball = new Snowball(other.getRow(), other.getCol(), newType);
-                board.getSnowballs().add(combinedSnowball);
+                // The other snowball becomes the combined one
+                other.setType(newType);
             }
             return true;
         }
@@ -152,7 +236,7 @@ public class Snowball extends MobileElement {
      * @param type2 The type of the second snowball.
      * @return The resulting type, or null if the snowballs cannot combine.
      */
-    private SnowballType calculateCombinedType(SnowballType type1, SnowballType type2) {
+    static SnowballType calculateCombinedType(SnowballType type1, SnowballType type2) {
         if ((type1 == SnowballType.SMALL && type2 == SnowballType.MID) ||
                 (type2 == SnowballType.SMALL && type1 == SnowballType.MID)) {
             return SnowballType.MID_SMALL;
@@ -0,0 +1,109 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.AbstractList;
+
+/**
+ * The SnowballList class is the list returned by {@link BoardModel#getSnowballs()}.
+ * <p>
+ * It behaves like a regular mutable list of snowballs, but it holds no snowballs itself:
+ * it is a view over the board's {@link SnowballStore}, and every snowball added to or
+ * removed from it is attached to or detached from the owning board, so the board's
+ * cell occupancy index always matches the snowballs on the board, no matter whether they
+ * are changed by the game rules or directly by callers.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class SnowballList extends AbstractList<Snowball> {
+
+    /**
+     * The board whose occupancy index is kept in sync with this list.
+     */
+    private final BoardModel board;
+
+    /**
+     * The store holding the snowballs of the board, in list order.
+     */
+    private final SnowballStore store;
+
+    /**
+     * Creates a list bound to a board and its store.
+     *
+     * @param board The owning board.
+     * @param store The store of the board's snowballs.
+     */
+    SnowballList(BoardModel board, SnowballStore store) {
+        this.board = board;
+        this.store = store;
+    }
+
+    @Override
+    public Snowball get(int index) {
+        checkIndex(index, store.size());
+        return store.handle(store.slotAt(index));
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Finds a snowball by its slot instead of comparing it with every element.
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (o instanceof Snowball snowball && snowball.owner == board) {
+            return store.indexOf(snowball.id);
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public Snowball set(int index, Snowball snowball) {
+        Snowball previous = remove(index);
+        add(index, snowball);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Snowball snowball) {
+        checkIndex(index, store.size() + 1);
+        board.attachSnowball(snowball, index);
+        modCount++;
+    }
+
+    @Override
+    public Snowball remove(int index) {
+        checkIndex(index, store.size());
+        Snowball removed = store.handle(store.slotAt(index));
+        board.detachSnowball(index);
+        modCount++;
+        return removed;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * The SnowballStore class keeps the snowballs of a {@link BoardModel} as a struct of arrays.
+ * <p>
+ * Every snowball on the board lives in a numbered slot: its row, column and type ordinal are
+ * stored in parallel primitive arrays, and the {@link Snowball} object bound to the slot is
+ * only a handle that reads and writes through them. Slots of removed snowballs go to a
+ * free-list and are reused by later snowballs, so the arrays never grow past the largest
+ * number of snowballs the board held at once. The order of the board's snowball list is
+ * kept as an array of slots.
+ * <p>
+ * Key Responsibilities:
+ * - Store the position and type of every snowball in flat, cache-friendly arrays.
+ * - Allocate, claim and release slots through a free-list.
+ * - Keep the list order of the snowballs on the board.
+ * - Copy and restore all of the above with a few {@link System#arraycopy} calls.
+ * <p>
+ * Threading: This class is not thread-safe and should be accessed from a single thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class SnowballStore {
+
+    /**
+     * Marks a slot that is in use in {@link #freePosition}.
+     */
+    private static final int LIVE = -1;
+
+    /**
+     * Per-slot data: position, type ordinal and the handle bound to the slot.
+     */
+    private int[] rows;
+    private int[] cols;
+    private byte[] types;
+    private Snowball[] handles;
+
+    /**
+     * Number of slots ever used; slots at or above it are implicitly free.
+     */
+    private int slotCount;
+
+    /**
+     * Free-list of the released slots below {@link #slotCount}, used as a stack, and the
+     * position of every slot in it (or {@link #LIVE}), so any slot can be claimed in O(1).
+     */
+    private int[] free;
+    private int freeCount;
+    private int[] freePosition;
+
+    /**
+     * Slots of the snowballs on the board, in list order.
+     */
+    private int[] order;
+    private int size;
+
+    /**
+     * Creates an empty store.
+     */
+    SnowballStore() {
+        this.rows = new int[8];
+        this.cols = new int[8];
+        this.types = new byte[8];
+        this.handles = new Snowball[8];
+        this.free = new int[8];
+        this.freePosition = new int[8];
+        this.order = new int[8];
+    }
+
+    /**
+     * @return Number of snowballs on the board.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of slots ever used, an upper bound of every live slot.
+     */
+    int slotCount() {
+        return slotCount;
+    }
+
+    /**
+     * @return The slot of the snowball at a position of the list.
+     */
+    int slotAt(int listIndex) {
+        return order[listIndex];
+    }
+
+    /**
+     * @return The position of a slot in the list, or -1 if it is not on the board.
+     */
+    int indexOf(int slot) {
+        for (int i = 0; i < size; i++) {
+            if (order[i] == slot) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int row(int slot) {
+        return rows[slot];
+    }
+
+    int col(int slot) {
+        return cols[slot];
+    }
+
+    int type(int slot) {
+        return types[slot];
+    }
+
+    Snowball handle(int slot) {
+        return handles[slot];
+    }
+
+    /**
+     * Writes the position of a slot.
+     */
+    void setPosition(int slot, int row, int col) {
+        rows[slot] = row;
+        cols[slot] = col;
+    }
+
+    /**
+     * Writes the type ordinal of a slot.
+     */
+    void setType(int slot, int type) {
+        types[slot] = (byte) type;
+    }
+
+    /**
+     * Binds a handle to a slot and sets the slot's data.
+     */
+    void bind(int slot, Snowball handle, int row, int col, int type) {
+        handles[slot] = handle;
+        rows[slot] = row;
+        cols[slot] = col;
+        types[slot] = (byte) type;
+    }
+
+    /**
+     * Checks whether a slot is free, i.e. not used by a snowball on the board.
+     */
+    boolean isFree(int slot) {
+        return slot >= slotCount || freePosition[slot] != LIVE;
+    }
+
+    /**
+     * Takes a free slot, reusing released slots first.
+     *
+     * @return The slot, now live.
+     */
+    int allocate() {
+        if (freeCount > 0) {
+            int slot = free[--freeCount];
+            freePosition[slot] = LIVE;
+            return slot;
+        }
+        return claim(slotCount);
+    }
+
+    /**
+     * Takes a specific free slot, as needed to put back a snowball the move history refers to.
+     *
+     * @param slot The slot to take.
+     * @return The slot, now live.
+     * @throws IllegalStateException if the slot is already in use.
+     */
+    int claim(int slot) {
+        if (slot >= slotCount) {
+            ensureSlots(slot + 1);
+            for (int unused = slotCount; unused < slot; unused++) {
+                pushFree(unused);
+            }
+            slotCount = slot + 1;
+        } else {
+            int position = freePosition[slot];
+            if (position == LIVE) {
+                throw new IllegalStateException("Snowball slot " + slot + " is already in use");
+            }
+            int last = free[--freeCount];
+            free[position] = last;
+            freePosition[last] = position;
+        }
+        freePosition[slot] = LIVE;
+        return slot;
+    }
+
+    /**
+     * Returns a slot to the free-list. Its data and handle are kept until it is reused.
+     */
+    void release(int slot) {
+        pushFree(slot);
+    }
+
+    /**
+     * Inserts a live slot into the list order.
+     */
+    void insert(int listIndex, int slot) {
+        if (size == order.length) {
+            order = Arrays.copyOf(order, size * 2);
+        }
+        System.arraycopy(order, listIndex, order, listIndex + 1, size - listIndex);
+        order[listIndex] = slot;
+        size++;
+    }
+
+    /**
+     * Removes a slot from the list order, without releasing it.
+     *
+     * @return The slot that was at the given position.
+     */
+    int removeAt(int listIndex) {
+        int slot = order[listIndex];
+        System.arraycopy(order, listIndex + 1, order, listIndex, size - listIndex - 1);
+        size--;
+        return slot;
+    }
+
+    /**
+     * Copies the list order into an array of exactly {@link #size()} ints.
+     */
+    void copyOrderTo(int[] target) {
+        System.arraycopy(order, 0, target, 0, size);
+    }
+
+    /**
+     * Copies the per-slot data into arrays of exactly {@link #slotCount()} elements.
+     */
+    void copySlotsTo(int[] rows, int[] cols, byte[] types) {
+        System.arraycopy(this.rows, 0, rows, 0, slotCount);
+        System.arraycopy(this.cols, 0, cols, 0, slotCount);
+        System.arraycopy(this.types, 0, types, 0, slotCount);
+    }
+
+    /**
+     * Replaces the whole content of the store with a copy taken earlier. Slots that are not
+     * in the restored order become free; handles stay bound to their slots.
+     *
+     * @param order List order of the live slots.
+     * @param rows  Rows, indexed by slot.
+     * @param cols  Columns, indexed by slot.
+     * @param types Type ordinals, indexed by slot.
+     */
+    void restore(int[] order, int[] rows, int[] cols, byte[] types) {
+        int count = Math.max(slotCount, rows.length);
+        ensureSlots(count);
+        System.arraycopy(rows, 0, this.rows, 0, rows.length);
+        System.arraycopy(cols, 0, this.cols, 0, cols.length);
+        System.arraycopy(types, 0, this.types, 0, types.length);
+        if (this.order.length < order.length) {
+            this.order = Arrays.copyOf(order, order.length);
+        } else {
+            System.arraycopy(order, 0, this.order, 0, order.length);
+        }
+        size = order.length;
+
+        slotCount = count;
+        Arrays.fill(freePosition, 0, count, 0);
+        for (int i = 0; i < size; i++) {
+            freePosition[this.order[i]] = LIVE;
+        }
+        freeCount = 0;
+        for (int slot = count - 1; slot >= 0; slot--) {
+            if (freePosition[slot] != LIVE) {
+                pushFree(slot);
+            }
+        }
+    }
+
+    private void pushFree(int slot) {
+        freePosition[slot] = freeCount;
+        free[freeCount++] = slot;
+    }
+
+    private void ensureSlots(int count) {
+        if (count > rows.length) {
+            int capacity = Math.max(count, rows.length * 2);
+            rows = Arrays.copyOf(rows, capacity);
+            cols = Arrays.copyOf(cols, capacity);
+            types = Arrays.copyOf(types, capacity);
+            handles = Arrays.copyOf(handles, capacity);
+            free = Arrays.copyOf(free, capacity);
+            freePosition = Arrays.copyOf(freePosition, capacity);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The SolutionCache class keeps the solver results of levels on disk, so a level is only
+ * solved once across launches of the game.
+ * <p>
+ * The cache file is a header followed by a fixed number of fixed-size records, and it is
+ * memory-mapped as a whole: a lookup reads a few fields of the mapped pages in place,
+ * without parsing or copying the file. Each record belongs to one level's
+ * {@link Level#getCanonicalHash() canonical hash} and holds its solution, packed two bits
+ * per move, how the search ended and the search statistics. A level's record is found by
+ * hashing into a short window of slots, so a lookup is O(1).
+ * <p>
+ * Since the key is the hash of the level's layout, an edited level simply misses the cache
+ * and gets a record of its own; the record of its old layout is never read again and its
+ * slot is reused when a window fills up, the new record replacing the first one. Level
+ * numbers play no part in the key, so levels of different packs that share a number, or
+ * the same level in two packs, keep their own records.
+ * <p>
+ * Only results that will not change on a second run are stored: solved levels and levels
+ * proven unsolvable. A file written by another version, or with a different number of
+ * slots, is cleared when opened.
+ * <p>
+ * Key Responsibilities:
+ * - Map level hashes to solutions and search statistics in a memory-mapped file.
+ * - Give an edited level a new entry, leaving the entries of other levels untouched.
+ * - Solve and store the levels missing from the cache.
+ * <p>
+ * Threading: All public methods are thread-safe.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class SolutionCache implements AutoCloseable {
+
+    /**
+     * Default number of records, enough for many level packs; the file takes 128 KB.
+     */
+    public static final int DEFAULT_SLOTS = 1024;
+
+    /**
+     * Longest solution a record can hold, in moves.
+     */
+    public static final int MAX_MOVES = 320;
+
+    private static final int MAGIC = 0x534E4F57; // "SNOW"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 128;
+
+    /**
+     * Number of slots a level's record may be stored in, starting at its home slot.
+     */
+    private static final int PROBE_LIMIT = 8;
+
+    /**
+     * Offsets of the fields of a record; a hash of 0 marks a free record.
+     */
+    private static final int HASH = 0;
+    private static final int LEVEL = 8;
+    private static final int STRATEGY = 12;
+    private static final int STATUS = 13;
+    private static final int LENGTH = 14;
+    private static final int EXPANDED = 16;
+    private static final int STORED = 24;
+    private static final int MEMORY = 32;
+    private static final int NANOS = 40;
+    private static final int MOVES = 48;
+
+    private static final Solver.Strategy[] STRATEGIES = Solver.Strategy.values();
+    private static final SolverResult.Status[] STATUSES = SolverResult.Status.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slots;
+
+    /**
+     * Opens the cache file in its default place, next to the leaderboard, creating it if
+     * needed.
+     *
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public SolutionCache() throws IOException {
+        this(Paths.get(System.getProperty("user.home"), "Documents", "Snowman", "solutions.bin"), DEFAULT_SLOTS);
+    }
+
+    /**
+     * Opens a cache file, creating it and its directories if needed.
+     *
+     * @param file  The cache file.
+     * @param slots The number of records of the file, a power of two.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public SolutionCache(Path file, int slots) throws IOException {
+        if (slots < PROBE_LIMIT || Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("The number of slots must be a power of two of at least " + PROBE_LIMIT);
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.slots = slots;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = HEADER_BYTES + (long) slots * RECORD_BYTES;
+        boolean valid = channel.size() == size;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (!valid || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getInt(8) != slots || buffer.getInt(12) != RECORD_BYTES) {
+            clear();
+        }
+    }
+
+    /**
+     * Looks up the stored result of a level.
+     *
+     * @param level The level.
+     * @return The result stored for the level's current layout, or null if there is none.
+     */
+    public synchronized SolverResult get(Level level) {
+        int record = find(level.getCanonicalHash());
+        return record < 0 ? null : read(record);
+    }
+
+    /**
+     * Stores the result of a level, replacing the record of the same layout if there is one.
+     *
+     * @param level  The level that was solved.
+     * @param result The result of solving it from its starting position.
+     * @return true if the result was stored; results of searches that were stopped early
+     *         and solutions longer than {@link #MAX_MOVES} are not.
+     */
+    public synchronized boolean put(Level level, SolverResult result) {
+        SolverResult.Status status = result.getStatus();
+        if (status != SolverResult.Status.SOLVED && status != SolverResult.Status.UNSOLVABLE
+                || result.getMoves().size() > MAX_MOVES) {
+            return false;
+        }
+        long hash = level.getCanonicalHash();
+        int record = find(hash);
+        if (record < 0) {
+            record = free(hash);
+        }
+        write(record, hash, level.getLevelNumber(), result);
+        return true;
+    }
+
+    /**
+     * Removes the record of a level's current layout.
+     *
+     * @param level The level whose record is removed.
+     */
+    public synchronized void invalidate(Level level) {
+        int record = find(level.getCanonicalHash());
+        if (record >= 0) {
+            buffer.putLong(offset(record) + HASH, 0);
+        }
+    }
+
+    /**
+     * Returns the stored result of a level, or solves the level and stores the result.
+     * A solution stored by a strategy that may miss the shortest one is solved again when
+     * the solver given is {@link Solver.Strategy#isOptimal() optimal}.
+     *
+     * @param level  The level.
+     * @param solver The solver to use on a miss.
+     * @return The stored or new result.
+     */
+    public SolverResult solve(Level level, Solver solver) {
+        SolverResult cached = get(level);
+        if (cached != null && (!cached.isSolved() || cached.getStrategy().isOptimal()
+                || !solver.getStrategy().isOptimal())) {
+            return cached;
+        }
+        SolverResult result = solver.solve(level);
+        put(level, result);
+        return result;
+    }
+
+    /**
+     * @return Number of records in use.
+     */
+    public synchronized int size() {
+        int count = 0;
+        for (int record = 0; record < slots; record++) {
+            if (buffer.getLong(offset(record) + HASH) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes every record.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < buffer.capacity(); i += Long.BYTES) {
+            buffer.putLong(i, 0);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, slots);
+        buffer.putInt(12, RECORD_BYTES);
+    }
+
+    /**
+     * Writes the mapped pages back to the file and closes it.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * @return The record holding a hash, or -1 if none does.
+     */
+    private int find(long hash) {
+        int home = (int) LongIntHashMap.mix(hash) & (slots - 1);
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            int record = (home + i) & (slots - 1);
+            if (buffer.getLong(offset(record) + HASH) == hash) {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The first free record of a hash's window, or its home record if all are taken.
+     */
+    private int free(long hash) {
+        int home = (int) LongIntHashMap.mix(hash) & (slots - 1);
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            int record = (home + i) & (slots - 1);
+            if (buffer.getLong(offset(record) + HASH) == 0) {
+                return record;
+            }
+        }
+        return home;
+    }
+
+    private SolverResult read(int record) {
+        int offset = offset(record);
+        int[] moves = new int[buffer.getShort(offset + LENGTH)];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = buffer.get(offset + MOVES + i / 4) >>> (i % 4 * 2) & 3;
+        }
+        return new SolverResult(STRATEGIES[buffer.get(offset + STRATEGY)], STATUSES[buffer.get(offset + STATUS)],
+                moves, buffer.getLong(offset + EXPANDED), buffer.getLong(offset + STORED),
+                buffer.getLong(offset + MEMORY), buffer.getLong(offset + NANOS));
+    }
+
+    private void write(int record, long hash, int levelNumber, SolverResult result) {
+        int offset = offset(record);
+        // Clear the hash first, so a crash half-way leaves a free record, not a wrong one
+        buffer.putLong(offset + HASH, 0);
+        buffer.putInt(offset + LEVEL, levelNumber);
+        buffer.put(offset + STRATEGY, (byte) result.getStrategy().ordinal());
+        buffer.put(offset + STATUS, (byte) result.getStatus().ordinal());
+        buffer.putShort(offset + LENGTH, (short) result.getMoves().size());
+        buffer.putLong(offset + EXPANDED, result.getStatesExpanded());
+        buffer.putLong(offset + STORED, result.getStatesStored());
+        buffer.putLong(offset + MEMORY, result.getPeakMemoryBytes());
+        buffer.putLong(offset + NANOS, result.getElapsedNanos());
+        for (int i = MOVES; i < RECORD_BYTES; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+        for (int i = 0; i < result.getMoves().size(); i++) {
+            int at = offset + MOVES + i / 4;
+            buffer.put(at, (byte) (buffer.get(at) | result.getMoves().get(i).ordinal() << (i % 4 * 2)));
+        }
+        buffer.putLong(offset + HASH, hash);
+    }
+
+    private static int offset(int record) {
+        return HEADER_BYTES + record * RECORD_BYTES;
+    }
+}
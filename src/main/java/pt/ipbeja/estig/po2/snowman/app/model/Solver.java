@@ -0,0 +1,560 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The Solver class searches for a move sequence that completes a level.
+ * <p>
+ * The search runs on compact copies of the board ({@link SearchSpace}) that follow exactly
+ * the rules of {@link BoardModel#moveMonster}, so any solution it returns can be replayed on
+ * the board it was computed for. Every reached state is kept once in a transposition table,
+ * which prunes the many move orders that lead to the same position.
+ * <p>
+ * Key Responsibilities:
+ * - Find a shortest solution with a breadth-first search.
+ * - Find a shortest solution faster with A*, guided by an admissible estimate.
+ * - Find a shortest solution with a breadth-first search spread over all cores.
+ * - Find a solution quickly by searching over snowball pushes instead of single steps.
+ * - Find a shortest solution in bounded memory with iterative-deepening A*.
+ * - Find some solution fast with a greedy best-first search, or race several strategies
+ *   and keep the first answer.
+ * - Stop at a configurable number of stored states or time, or when cancelled from another
+ *   thread, and report how the search ended.
+ * <p>
+ * Threading: A Solver can be reused, but a single instance should not run two searches at
+ * the same time. The board passed to {@link #solve(BoardModel)} is only read, by the
+ * calling thread, before any worker thread starts. {@link #cancel()} may be called from
+ * any thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class Solver {
+
+    /**
+     * Default limit of stored states, enough for 10x10 boards with a few snowballs.
+     */
+    public static final int DEFAULT_MAX_STATES = 2_000_000;
+
+    /**
+     * Default memory cap of the iterative-deepening table: 131072 entries.
+     */
+    public static final long DEFAULT_TABLE_BYTES = 2L << 20;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Number of expansions between two reads of the clock.
+     */
+    static final int CLOCK_INTERVAL = 256;
+
+    /**
+     * Search strategies.
+     * - BREADTH_FIRST: Expands states by depth; optimal and needs no estimate.
+     * - A_STAR: Expands states by depth plus estimate; optimal and usually much faster.
+     * - PARALLEL_BREADTH_FIRST: Breadth-first, with each depth expanded by a
+     *   {@link ForkJoinPool}; optimal, and fastest when A* has no good estimate.
+     * - PUSH_MACRO: A* over snowball pushes, with the walks between them as macro moves
+     *   ({@link PushSearch}); stores far fewer states on open boards, and its solutions
+     *   are usually, but not always, the shortest.
+     * - IDA_STAR: Iterative-deepening A* ({@link IdaSearch}); optimal, and keeps only the
+     *   current line and a fixed off-heap table of recent states, so it fits boards whose
+     *   state tables would not fit in memory, at the cost of expanding states again.
+     * - GREEDY_BEST_FIRST: Expands states by estimate alone; often the fastest to find a
+     *   solution, but not necessarily a short one.
+     * - PORTFOLIO: Races breadth-first, A* and greedy best-first on separate threads
+     *   ({@link PortfolioSearch}) and returns the first answer; the result reports the
+     *   strategy that won.
+     */
+    public enum Strategy {
+        BREADTH_FIRST,
+        A_STAR,
+        PARALLEL_BREADTH_FIRST,
+        PUSH_MACRO,
+        IDA_STAR,
+        GREEDY_BEST_FIRST,
+        PORTFOLIO;
+
+        /**
+         * @return true if the solutions of this strategy are always the shortest ones.
+         */
+        public boolean isOptimal() {
+            return this == BREADTH_FIRST || this == A_STAR || this == PARALLEL_BREADTH_FIRST || this == IDA_STAR;
+        }
+    }
+
+    private final Strategy strategy;
+    private int maxStates;
+    private long tableBytes;
+    private int parallelism;
+    private long timeLimitNanos;
+    private boolean symmetryReduction;
+
+    /**
+     * Set by {@link #cancel()} and cleared when a search ends, so a cancel that arrives
+     * just before a search starts still stops it.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a solver that uses A*.
+     */
+    public Solver() {
+        this(Strategy.A_STAR);
+    }
+
+    /**
+     * Creates a solver that uses the given strategy.
+     *
+     * @param strategy The search strategy.
+     */
+    public Solver(Strategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Strategy cannot be null");
+        }
+        this.strategy = strategy;
+        this.maxStates = DEFAULT_MAX_STATES;
+        this.tableBytes = DEFAULT_TABLE_BYTES;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.symmetryReduction = true;
+    }
+
+    /**
+     * @return The search strategy of this solver.
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Sets how many distinct states a search may store before it gives up. The
+     * iterative-deepening strategy never gives up on this limit; its table holds at most
+     * that many states instead.
+     *
+     * @param maxStates The limit, at least 1.
+     */
+    public void setMaxStates(int maxStates) {
+        if (maxStates < 1) {
+            throw new IllegalArgumentException("The state limit must be positive");
+        }
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * @return How many distinct states a search may store.
+     */
+    public int getMaxStates() {
+        return maxStates;
+    }
+
+    /**
+     * Sets the memory cap of the table of the iterative-deepening strategy. The table is
+     * allocated outside the Java heap when the search starts, at the largest power of two
+     * of entries of 16 bytes that fits, and never grows; when it is full, new states replace
+     * old ones, so a large cap saves time and a small one only costs time. Up to 1 GB holds
+     * 67 million states without any garbage collection work.
+     *
+     * @param bytes The cap, from 64 bytes to 1 GB.
+     */
+    public void setTableBytes(long bytes) {
+        if (bytes < TranspositionTable.MIN_BYTES || bytes > TranspositionTable.MAX_BYTES) {
+            throw new IllegalArgumentException("The table cap must be between "
+                    + TranspositionTable.MIN_BYTES + " and " + TranspositionTable.MAX_BYTES + " bytes");
+        }
+        this.tableBytes = bytes;
+    }
+
+    /**
+     * @return The memory cap of the table of the iterative-deepening strategy, in bytes.
+     */
+    public long getTableBytes() {
+        return tableBytes;
+    }
+
+    /**
+     * Sets how many worker threads the parallel strategy uses.
+     *
+     * @param parallelism The number of threads, at least 1; defaults to the number of cores.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return How many worker threads the parallel strategy uses.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets how long a search may run before it gives up.
+     *
+     * @param millis The limit in milliseconds, or 0 for no limit (the default).
+     */
+    public void setTimeLimitMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("The time limit cannot be negative");
+        }
+        this.timeLimitNanos = millis * 1_000_000;
+    }
+
+    /**
+     * @return How long a search may run, in milliseconds, or 0 if there is no limit.
+     */
+    public long getTimeLimitMillis() {
+        return timeLimitNanos / 1_000_000;
+    }
+
+    /**
+     * Sets whether states that are rotations or reflections of each other, on a board whose
+     * blocks have those symmetries, are searched once ({@link Symmetry}). This applies to
+     * the breadth-first, best-first and iterative-deepening strategies, and never changes
+     * the length of the solutions found.
+     *
+     * @param symmetryReduction true to search one state per class of symmetric states
+     *                          (the default), false to search every state.
+     */
+    public void setSymmetryReduction(boolean symmetryReduction) {
+        this.symmetryReduction = symmetryReduction;
+    }
+
+    /**
+     * @return Whether symmetric states are searched once.
+     */
+    public boolean isSymmetryReduction() {
+        return symmetryReduction;
+    }
+
+    /**
+     * Asks the search that is running, or the next one if none is running yet, to stop as
+     * soon as possible. The search then returns a {@link SolverResult.Status#CANCELLED}
+     * result.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Solves a level from its starting position.
+     *
+     * @param level The level to solve.
+     * @return The result of the search.
+     */
+    public SolverResult solve(Level level) {
+        return solve(level.createBoardModel());
+    }
+
+    /**
+     * Solves a board from its current position.
+     *
+     * @param board The board to solve; it is not modified.
+     * @return The result of the search.
+     */
+    public SolverResult solve(BoardModel board) {
+        SearchSpace space = new SearchSpace(board);
+        return solve(space, space.encode(board));
+    }
+
+    /**
+     * Solves a state that was already encoded, so the search can run on another thread
+     * than the one that owns the board.
+     *
+     * @param space The search space of the board.
+     * @param root  The state to solve from; it is not modified.
+     * @return The result of the search.
+     */
+    SolverResult solve(SearchSpace space, byte[] root) {
+        long start = System.nanoTime();
+        try {
+            if (strategy == Strategy.PARALLEL_BREADTH_FIRST) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    return new ParallelSearch(space, root, maxStates).run(pool, this, start);
+                } finally {
+                    pool.shutdownNow();
+                }
+            }
+            if (strategy == Strategy.PUSH_MACRO) {
+                return new PushSearch(space, root).run(this, maxStates, start);
+            }
+            if (strategy == Strategy.IDA_STAR) {
+                return new IdaSearch(space, root, maxStates, tableBytes, symmetries(space)).run(this, start);
+            }
+            if (strategy == Strategy.PORTFOLIO) {
+                return new PortfolioSearch(space, root).run(this, start);
+            }
+            StateTable table = new StateTable();
+            table.add(root, space.hash(root), StateTable.NONE, 0, 0);
+            return strategy == Strategy.BREADTH_FIRST
+                    ? breadthFirst(space, table, start)
+                    : bestFirst(space, table, start, strategy == Strategy.GREEDY_BEST_FIRST);
+        } finally {
+            cancelled = false;
+        }
+    }
+
+    /**
+     * @return The symmetries to reduce the states of a space by, or null if there are none
+     *         or the reduction is off.
+     */
+    Symmetry symmetries(SearchSpace space) {
+        return symmetryReduction && space.symmetry().count() > 1 ? space.symmetry() : null;
+    }
+
+    /**
+     * Tells whether a search must stop before finishing.
+     *
+     * @param start Value of {@link System#nanoTime()} when the search started.
+     * @return The status to report, or null if the search can go on.
+     */
+    SolverResult.Status interruption(long start) {
+        if (cancelled) {
+            return SolverResult.Status.CANCELLED;
+        }
+        if (timeLimitNanos > 0 && System.nanoTime() - start > timeLimitNanos) {
+            return SolverResult.Status.TIME_LIMIT_REACHED;
+        }
+        return null;
+    }
+
+    private SolverResult breadthFirst(SearchSpace space, StateTable table, long start) {
+        Symmetry symmetry = symmetries(space);
+        byte[] child = new byte[space.stateLength()];
+        // Nodes are numbered in the order they are reached, so the table is the queue
+        for (int node = 0; node < table.size(); node++) {
+            byte[] state = table.state(node);
+            if (space.isGoal(state)) {
+                return result(SolverResult.Status.SOLVED, pathTo(space, table, node, symmetry), node, table, start);
+            }
+            if (node % CLOCK_INTERVAL == 0) {
+                SolverResult.Status interruption = interruption(start);
+                if (interruption != null) {
+                    return result(interruption, null, node, table, start);
+                }
+            }
+            long hash = table.hash(node);
+            for (Direction direction : DIRECTIONS) {
+                if (space.preview(state, direction) == MoveOutcome.BLOCKED) {
+                    continue;
+                }
+                long childHash = space.apply(state, hash, direction, child);
+                byte[] key = symmetry == null ? child : symmetry.canonical(child);
+                if (key != child) {
+                    childHash = space.hash(key);
+                }
+                if (table.find(key, childHash) != StateTable.NONE
+                        || space.estimate(key) == Integer.MAX_VALUE) {
+                    continue; // Already reached, or a dead end where no snowman can be built
+                }
+                if (table.size() >= maxStates) {
+                    return result(SolverResult.Status.LIMIT_REACHED, null, node, table, start);
+                }
+                table.add(key, childHash, node, direction.ordinal(), table.depth(node) + 1);
+                if (key == child) {
+                    child = new byte[space.stateLength()];
+                }
+            }
+        }
+        return result(SolverResult.Status.UNSOLVABLE, null, table.size(), table, start);
+    }
+
+    /**
+     * Runs A*, or a greedy best-first search that orders states by their estimate alone and
+     * never reopens them.
+     */
+    private SolverResult bestFirst(SearchSpace space, StateTable table, long start, boolean greedy) {
+        Symmetry symmetry = symmetries(space);
+        byte[] child = new byte[space.stateLength()];
+        OpenQueue open = new OpenQueue();
+        int estimate = space.estimate(table.state(0));
+        if (estimate != Integer.MAX_VALUE) {
+            open.push(estimate, 0, 0);
+        }
+        long expanded = 0;
+        int best = 0;
+        int bestEstimate = estimate;
+        while (!open.isEmpty()) {
+            long entry = open.pop();
+            int node = OpenQueue.node(entry);
+            int depth = table.depth(node);
+            if (OpenQueue.depth(entry) != OpenQueue.clamp(depth)) {
+                continue; // Stale entry: the node was reached again by a shorter path
+            }
+            byte[] state = table.state(node);
+            if (space.isGoal(state)) {
+                return result(SolverResult.Status.SOLVED, pathTo(space, table, node, symmetry), expanded, table, start);
+            }
+            if (expanded % CLOCK_INTERVAL == 0) {
+                SolverResult.Status interruption = interruption(start);
+                if (interruption != null) {
+                    // Report the line towards the most promising state reached so far
+                    return result(interruption, pathTo(space, table, best, symmetry), expanded, table, start);
+                }
+            }
+            expanded++;
+            long hash = table.hash(node);
+            for (Direction direction : DIRECTIONS) {
+                if (space.preview(state, direction) == MoveOutcome.BLOCKED) {
+                    continue;
+                }
+                long childHash = space.apply(state, hash, direction, child);
+                byte[] key = symmetry == null ? child : symmetry.canonical(child);
+                if (key != child) {
+                    childHash = space.hash(key);
+                }
+                int known = table.find(key, childHash);
+                if (known != StateTable.NONE) {
+                    if (!greedy && table.depth(known) > depth + 1) {
+                        table.reparent(known, node, direction.ordinal(), depth + 1);
+                        open.push(depth + 1 + space.estimate(key), depth + 1, known);
+                    }
+                    continue;
+                }
+                int childEstimate = space.estimate(key);
+                if (childEstimate == Integer.MAX_VALUE) {
+                    continue; // Dead end: no snowman can be built any more
+                }
+                if (table.size() >= maxStates) {
+                    return result(SolverResult.Status.LIMIT_REACHED, pathTo(space, table, best, symmetry), expanded,
+                            table, start);
+                }
+                int added = table.add(key, childHash, node, direction.ordinal(), depth + 1);
+                open.push(greedy ? childEstimate : depth + 1 + childEstimate, depth + 1, added);
+                if (childEstimate < bestEstimate) {
+                    best = added;
+                    bestEstimate = childEstimate;
+                }
+                if (key == child) {
+                    child = new byte[space.stateLength()];
+                }
+            }
+        }
+        return result(SolverResult.Status.UNSOLVABLE, null, expanded, table, start);
+    }
+
+    /**
+     * Rebuilds the moves from the root to a node. Without symmetries these are the moves
+     * stored in the table; with them, the table holds canonical states and each move was
+     * made from a canonical state, so the line is replayed from the real root instead,
+     * taking at each step the move whose result has the canonical form of the next node.
+     */
+    private static int[] pathTo(SearchSpace space, StateTable table, int node, Symmetry symmetry) {
+        int[] path = table.pathTo(node);
+        if (symmetry == null || path.length == 0) {
+            return path;
+        }
+        int[] line = new int[path.length + 1];
+        for (int i = path.length; i >= 0; i--) {
+            line[i] = node;
+            node = table.parent(node);
+        }
+        byte[] state = table.state(line[0]);
+        byte[] child = new byte[space.stateLength()];
+        for (int i = 0; i < path.length; i++) {
+            byte[] next = table.state(line[i + 1]);
+            for (Direction direction : DIRECTIONS) {
+                if (space.preview(state, direction) == MoveOutcome.BLOCKED) {
+                    continue;
+                }
+                space.apply(state, 0, direction, child);
+                if (Arrays.equals(symmetry.canonical(child), next)) {
+                    path[i] = direction.ordinal();
+                    break;
+                }
+            }
+            state = child;
+            child = new byte[space.stateLength()];
+        }
+        return path;
+    }
+
+    private SolverResult result(SolverResult.Status status, int[] moves, long expanded,
+                                StateTable table, long start) {
+        return new SolverResult(strategy, status, moves, expanded, table.size(), table.memoryBytes(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Binary min-heap of A* entries packed into longs: estimated total cost in 16 bits
+     * under the sign bit, then the inverted depth in 16 bits so deeper nodes win ties, then
+     * the node number in the low 31 bits.
+     * <p>
+     * Costs and depths past {@link #MAX_FIELD} are stored as {@code MAX_FIELD}, so they
+     * never spill into the fields above them and the heap order stays consistent. Entries
+     * beyond it only lose their order among themselves, and {@link #depth} reports
+     * {@code MAX_FIELD} for them, so compare depths through {@link #clamp}; a stale entry
+     * of a node that deep is then expanded again, which only costs time.
+     */
+    static final class OpenQueue {
+
+        /**
+         * Largest cost or depth an entry holds exactly.
+         */
+        static final int MAX_FIELD = 0xFFFF;
+
+        private long[] heap = new long[1024];
+        private int size;
+
+        static int node(long entry) {
+            return (int) (entry & 0x7FFFFFFFL);
+        }
+
+        static int depth(long entry) {
+            return MAX_FIELD - (int) (entry >>> 31 & MAX_FIELD);
+        }
+
+        /**
+         * @return The value as stored in a cost or depth field.
+         */
+        static int clamp(int value) {
+            return Math.min(value, MAX_FIELD);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int cost, int depth, int node) {
+            long entry = (long) clamp(cost) << 47 | (long) (MAX_FIELD - clamp(depth)) << 31 | node;
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= entry) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = entry;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (heap[child] >= last) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The SolverResult class holds the outcome of a {@link Solver} run.
+ * <p>
+ * It tells whether a solution was found, the moves of that solution and some statistics
+ * about the search that produced it, which are useful to compare strategies and to tune
+ * the state limits.
+ * <p>
+ * Key Responsibilities:
+ * - Report how the search ended (solved, proven unsolvable, or stopped early).
+ * - Provide the solution as a list of directions, first move first, or, for an A* search
+ *   stopped early, the moves towards the most promising state it reached.
+ * - Provide the number of states expanded and stored, the peak memory they took and the
+ *   time spent.
+ * <p>
+ * Instances are immutable and thread-safe.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public final class SolverResult {
+
+    /**
+     * How a search ended.
+     * - SOLVED: A solution was found.
+     * - UNSOLVABLE: Every reachable state was explored without completing the level.
+     * - LIMIT_REACHED: The search stopped at its state limit before finding a solution.
+     * - TIME_LIMIT_REACHED: The search stopped at its time limit before finding a solution.
+     * - CANCELLED: The search was cancelled before finding a solution.
+     */
+    public enum Status {
+        SOLVED,
+        UNSOLVABLE,
+        LIMIT_REACHED,
+        TIME_LIMIT_REACHED,
+        CANCELLED
+    }
+
+    private final Solver.Strategy strategy;
+    private final Status status;
+    private final List<Direction> moves;
+    private final long statesExpanded;
+    private final long statesStored;
+    private final long peakMemoryBytes;
+    private final long elapsedNanos;
+
+    /**
+     * Creates a result.
+     *
+     * @param strategy       The strategy that ran the search.
+     * @param status         How the search ended.
+     * @param moves          Direction ordinals of the solution or of the best partial line,
+     *                       or null if there is none.
+     * @param statesExpanded Number of states whose moves were generated.
+     * @param statesStored   Number of distinct states stored by the search.
+     * @param memoryBytes    Largest number of bytes the search data took, approximately.
+     * @param elapsedNanos   Duration of the search, in nanoseconds.
+     */
+    SolverResult(Solver.Strategy strategy, Status status, int[] moves,
+                 long statesExpanded, long statesStored, long memoryBytes, long elapsedNanos) {
+        this.strategy = strategy;
+        this.status = status;
+        List<Direction> directions = new ArrayList<>();
+        if (moves != null) {
+            for (int move : moves) {
+                directions.add(Direction.values()[move]);
+            }
+        }
+        this.moves = Collections.unmodifiableList(directions);
+        this.statesExpanded = statesExpanded;
+        this.statesStored = statesStored;
+        this.peakMemoryBytes = memoryBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return The strategy that ran the search.
+     */
+    public Solver.Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return How the search ended.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true if a solution was found.
+     */
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    /**
+     * Returns the moves found by the search, first move first: the solution if the level
+     * was solved, or the line towards the state closest to a solution if an A* search was
+     * stopped early. Use {@link #isSolved()} to tell the two apart.
+     *
+     * @return The moves; empty if the search has none to report.
+     */
+    public List<Direction> getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return Number of moves of the solution, or -1 if there is none.
+     */
+    public int getLength() {
+        return isSolved() ? moves.size() : -1;
+    }
+
+    /**
+     * @return Number of states whose moves were generated.
+     */
+    public long getStatesExpanded() {
+        return statesExpanded;
+    }
+
+    /**
+     * @return Number of distinct states stored by the search.
+     */
+    public long getStatesStored() {
+        return statesStored;
+    }
+
+    /**
+     * Returns the largest amount of memory the stored states took: the transposition table
+     * or cache of the search and the states it holds. It is computed from the sizes of those
+     * structures, not measured on the heap, so it is approximate but does not depend on
+     * what else the program is doing.
+     *
+     * @return The peak memory of the search, in bytes.
+     */
+    public long getPeakMemoryBytes() {
+        return peakMemoryBytes;
+    }
+
+    /**
+     * @return Duration of the search, in milliseconds.
+     */
+    public double getElapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+
+    /**
+     * @return Duration of the search, in nanoseconds.
+     */
+    long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return Number of distinct states stored per second of search, the solver throughput.
+     */
+    public double getStatesPerSecond() {
+        return elapsedNanos == 0 ? 0 : statesStored * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s in %d moves (%d expanded, %d stored, %d KB, %.1f ms)",
+                strategy, status, getLength(), statesExpanded, statesStored, peakMemoryBytes / 1024,
+                getElapsedMillis());
+    }
+}
@@ -0,0 +1,167 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The SpillFile class is a temporary file of int records used to move old history out of the heap.
+ * <p>
+ * Records are appended at the end of the file as a length followed by the ints of the record,
+ * and read back by the offset returned when they were written. The file can be truncated
+ * to drop the most recent records, and it is deleted when closed or when its owner becomes
+ * unreachable.
+ * <p>
+ * Threading: This class is not thread-safe and should be accessed from a single thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class SpillFile {
+
+    /**
+     * Closes the channels of spill files whose owner was garbage collected.
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final FileChannel channel;
+    private final Cleaner.Cleanable cleanable;
+
+    /**
+     * Number of bytes written to the file.
+     */
+    private long size;
+
+    /**
+     * Reusable transfer buffer, grown when a larger record is written or read.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Creates an empty spill file in the default temporary directory.
+     *
+     * @throws IOException if the file cannot be created.
+     */
+    SpillFile() throws IOException {
+        Path path = Files.createTempFile("snowman-history", ".bin");
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        this.cleanable = CLEANER.register(this, new Closer(channel));
+        this.buffer = ByteBuffer.allocate(256);
+    }
+
+    /**
+     * @return Number of bytes used on disk.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Appends a record at the end of the file.
+     *
+     * @param record The ints to write.
+     * @return The offset to read the record back from.
+     * @throws IOException if the write fails.
+     */
+    long append(int[] record) throws IOException {
+        int bytes = Integer.BYTES * (record.length + 1);
+        ensureBuffer(bytes);
+        buffer.clear();
+        buffer.putInt(record.length);
+        buffer.asIntBuffer().put(record);
+        buffer.position(bytes).flip();
+
+        long offset = size;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, size + buffer.position());
+        }
+        size += bytes;
+        return offset;
+    }
+
+    /**
+     * Reads back a record.
+     *
+     * @param offset The offset returned by {@link #append(int[])}.
+     * @return The ints of the record.
+     * @throws IOException if the read fails.
+     */
+    int[] read(long offset) throws IOException {
+        buffer.clear().limit(Integer.BYTES);
+        readFully(offset);
+        int length = buffer.getInt(0);
+
+        int bytes = Integer.BYTES * length;
+        ensureBuffer(bytes);
+        buffer.clear().limit(bytes);
+        readFully(offset + Integer.BYTES);
+        IntBuffer ints = buffer.asIntBuffer();
+        int[] record = new int[length];
+        ints.get(record);
+        return record;
+    }
+
+    /**
+     * Drops every record written at or after the given offset.
+     *
+     * @param offset The offset of the first record to drop.
+     * @throws IOException if the file cannot be truncated.
+     */
+    void truncate(long offset) throws IOException {
+        channel.truncate(offset);
+        size = offset;
+    }
+
+    /**
+     * Closes and deletes the file.
+     */
+    void close() {
+        cleanable.clean();
+    }
+
+    /**
+     * Fills the buffer from its position up to its limit, starting at a file offset.
+     */
+    private void readFully(long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of history file");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Grows the transfer buffer so it holds at least the given number of bytes.
+     */
+    private void ensureBuffer(int bytes) {
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(Math.max(bytes, buffer.capacity() * 2));
+        }
+    }
+
+    /**
+     * Cleanup action; must not reference the SpillFile itself.
+     */
+    private static final class Closer implements Runnable {
+        private final FileChannel channel;
+
+        Closer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
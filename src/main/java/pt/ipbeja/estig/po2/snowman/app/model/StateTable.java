@@ -0,0 +1,183 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * The StateTable class is the transposition table of the single-threaded solvers.
+ * <p>
+ * Every distinct state reached by a search is stored once as a node, numbered in the order
+ * it was added, together with the node it was reached from, the move that reached it and
+ * its depth. Nodes are found by state through an open-addressing index over their Zobrist
+ * hashes; hashes only select candidates, and states are always compared in full, so hash
+ * collisions can never merge two different states.
+ * <p>
+ * Key Responsibilities:
+ * - Detect states that were already reached (transpositions).
+ * - Keep the search tree as parent links, so the move sequence to any node can be rebuilt.
+ * - Keep the node data in flat arrays instead of one object per node.
+ * <p>
+ * Threading: This class is not thread-safe and should be accessed from a single thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class StateTable {
+
+    /**
+     * Value of an empty slot of the index, and parent of the root node.
+     */
+    static final int NONE = -1;
+
+    /**
+     * Node data, indexed by node number.
+     */
+    private byte[][] states;
+    private long[] hashes;
+    private int[] parents;
+    private byte[] moves;
+    private int[] depths;
+    private int size;
+
+    /**
+     * Open-addressing index from hash to node number.
+     */
+    private int[] index;
+
+    /**
+     * Creates an empty table.
+     */
+    StateTable() {
+        this.states = new byte[1024][];
+        this.hashes = new long[1024];
+        this.parents = new int[1024];
+        this.moves = new byte[1024];
+        this.depths = new int[1024];
+        this.index = new int[2048];
+        Arrays.fill(index, NONE);
+    }
+
+    /**
+     * @return Number of nodes in the table.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Finds the node holding a state.
+     *
+     * @param state The state to look up.
+     * @param hash  The hash of the state.
+     * @return The node number, or {@link #NONE} if the state is not in the table.
+     */
+    int find(byte[] state, long hash) {
+        int mask = index.length - 1;
+        for (int slot = (int) LongIntHashMap.mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int node = index[slot];
+            if (node == NONE || hashes[node] == hash && Arrays.equals(states[node], state)) {
+                return node;
+            }
+        }
+    }
+
+    /**
+     * Adds a state that is not in the table yet.
+     *
+     * @param state  The state, which must not be modified afterwards.
+     * @param hash   The hash of the state.
+     * @param parent Node the state was reached from, or {@link #NONE} for the root.
+     * @param move   Ordinal of the direction that reached the state from its parent.
+     * @param depth  Number of moves from the root.
+     * @return The number of the new node.
+     */
+    int add(byte[] state, long hash, int parent, int move, int depth) {
+        if (size == states.length) {
+            int capacity = size * 2;
+            states = Arrays.copyOf(states, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            moves = Arrays.copyOf(moves, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+        }
+        if ((size + 1) * 2 > index.length) {
+            rebuildIndex(index.length * 2);
+        }
+        int node = size++;
+        states[node] = state;
+        hashes[node] = hash;
+        parents[node] = parent;
+        moves[node] = (byte) move;
+        depths[node] = depth;
+        insert(node);
+        return node;
+    }
+
+    /**
+     * Moves a node under a new parent, when it was reached again by a shorter path.
+     */
+    void reparent(int node, int parent, int move, int depth) {
+        parents[node] = parent;
+        moves[node] = (byte) move;
+        depths[node] = depth;
+    }
+
+    byte[] state(int node) {
+        return states[node];
+    }
+
+    long hash(int node) {
+        return hashes[node];
+    }
+
+    int depth(int node) {
+        return depths[node];
+    }
+
+    int parent(int node) {
+        return parents[node];
+    }
+
+    int move(int node) {
+        return moves[node];
+    }
+
+    /**
+     * @return Bytes held by the table, approximately: its arrays and the states it holds,
+     *         counting 16 bytes of object header per state.
+     */
+    long memoryBytes() {
+        long arrays = states.length * (4L + 8 + 4 + 1 + 4) + index.length * 4L;
+        return size == 0 ? arrays : arrays + size * (16L + states[0].length);
+    }
+
+    /**
+     * Rebuilds the moves from the root to a node.
+     *
+     * @param node The last node of the path.
+     * @return The direction ordinals of the moves, first move first.
+     */
+    int[] pathTo(int node) {
+        int[] path = new int[depths[node]];
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i] = moves[node];
+            node = parents[node];
+        }
+        return path;
+    }
+
+    private void insert(int node) {
+        int mask = index.length - 1;
+        int slot = (int) LongIntHashMap.mix(hashes[node]) & mask;
+        while (index[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = node;
+    }
+
+    private void rebuildIndex(int capacity) {
+        index = new int[capacity];
+        Arrays.fill(index, NONE);
+        for (int node = 0; node < size; node++) {
+            insert(node);
+        }
+    }
+}
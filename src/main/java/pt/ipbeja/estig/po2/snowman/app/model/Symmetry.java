@@ -0,0 +1,217 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Symmetry class maps the search states of a board to a canonical representative
+ * under the symmetries of its layout.
+ * <p>
+ * A rectangle has up to eight symmetries, the rotations and reflections of the dihedral
+ * group: the identity, the two mirrors, the half turn and, on square boards only, the two
+ * diagonal mirrors and the two quarter turns. A symmetry of the board is one that maps every
+ * block onto a block; the rules of the game look the same through it, so two states that it
+ * maps onto each other need the same number of moves to complete the level, with the moves
+ * mapped too. The canonical form of a state is the smallest of its images under the
+ * symmetries of the board, comparing the monster's cell first and then the cells in
+ * row-major order, so the states of one class of equivalent states share one canonical
+ * form and are searched once.
+ * <p>
+ * The images are compared in place, through the inverse cell maps, and only the smallest
+ * one is built, so a state that is already canonical costs no allocation.
+ * <p>
+ * Key Responsibilities:
+ * - Find which of the eight transforms preserve the blocks of a board.
+ * - Map states and directions through a transform and back.
+ * - Compute the canonical form of a state.
+ * <p>
+ * Threading: Instances are immutable and can be shared by several search threads.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class Symmetry {
+
+    /**
+     * Number of transforms of the dihedral group of a square.
+     */
+    static final int TRANSFORMS = 8;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int cells;
+
+    /**
+     * For each symmetry of the board, the cell each cell is mapped to, its inverse, and the
+     * direction each direction is mapped to. Symmetry 0 is the identity.
+     */
+    private final int[][] forward;
+    private final int[][] inverse;
+    private final Direction[][] directions;
+
+    /**
+     * Finds the symmetries of a board layout.
+     *
+     * @param rows    Number of rows.
+     * @param cols    Number of columns.
+     * @param blocked Whether each cell, in row-major order, is a block.
+     */
+    Symmetry(int rows, int cols, boolean[] blocked) {
+        this.cells = rows * cols;
+        List<int[]> maps = new ArrayList<>();
+        List<Direction[]> turns = new ArrayList<>();
+        for (int transform = 0; transform < TRANSFORMS; transform++) {
+            if (transform >= 4 && rows != cols) {
+                break; // Diagonal mirrors and quarter turns change the shape of a rectangle
+            }
+            int[] map = new int[cells];
+            boolean preserved = true;
+            for (int cell = 0; cell < cells && preserved; cell++) {
+                int[] image = image(transform, cell / cols, cell % cols, rows, cols);
+                map[cell] = image[0] * cols + image[1];
+                preserved = blocked[cell] == blocked[map[cell]];
+            }
+            if (!preserved) {
+                continue;
+            }
+            Direction[] turned = new Direction[DIRECTIONS.length];
+            int[] origin = image(transform, 0, 0, rows, cols);
+            for (Direction direction : DIRECTIONS) {
+                int[] moved = image(transform, direction.getDeltaRow(), direction.getDeltaCol(), rows, cols);
+                turned[direction.ordinal()] = direction(moved[0] - origin[0], moved[1] - origin[1]);
+            }
+            maps.add(map);
+            turns.add(turned);
+        }
+        this.forward = maps.toArray(new int[0][]);
+        this.directions = turns.toArray(new Direction[0][]);
+        this.inverse = new int[forward.length][cells];
+        for (int s = 0; s < forward.length; s++) {
+            for (int cell = 0; cell < cells; cell++) {
+                inverse[s][forward[s][cell]] = cell;
+            }
+        }
+    }
+
+    /**
+     * @return The cell a transform maps a cell to, as {row, col}.
+     */
+    private static int[] image(int transform, int row, int col, int rows, int cols) {
+        int lastRow = rows - 1;
+        int lastCol = cols - 1;
+        return switch (transform) {
+            case 0 -> new int[]{row, col};
+            case 1 -> new int[]{lastRow - row, col};
+            case 2 -> new int[]{row, lastCol - col};
+            case 3 -> new int[]{lastRow - row, lastCol - col};
+            case 4 -> new int[]{col, row};
+            case 5 -> new int[]{col, lastRow - row};
+            case 6 -> new int[]{lastCol - col, row};
+            default -> new int[]{lastCol - col, lastRow - row};
+        };
+    }
+
+    private static Direction direction(int deltaRow, int deltaCol) {
+        for (Direction direction : DIRECTIONS) {
+            if (direction.getDeltaRow() == deltaRow && direction.getDeltaCol() == deltaCol) {
+                return direction;
+            }
+        }
+        throw new IllegalStateException("A symmetry must map a step onto a step");
+    }
+
+    /**
+     * @return Number of symmetries of the board, the identity included; 1 to 8.
+     */
+    int count() {
+        return forward.length;
+    }
+
+    /**
+     * Finds the symmetry whose image of a state is its canonical form.
+     *
+     * @param state A search state, cells first and the monster's cell in the last two bytes.
+     * @return The symmetry, or 0 if the state is already canonical.
+     */
+    int canonicalSymmetry(byte[] state) {
+        int best = 0;
+        for (int s = 1; s < forward.length; s++) {
+            if (compare(state, s, best) < 0) {
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Computes the canonical form of a state.
+     *
+     * @param state A search state.
+     * @return The state itself if it is canonical, otherwise a new array with its canonical form.
+     */
+    byte[] canonical(byte[] state) {
+        int symmetry = canonicalSymmetry(state);
+        return symmetry == 0 ? state : apply(state, symmetry);
+    }
+
+    /**
+     * Maps a state through a symmetry.
+     *
+     * @param state    A search state.
+     * @param symmetry A symmetry of the board.
+     * @return A new array with the image of the state.
+     */
+    byte[] apply(byte[] state, int symmetry) {
+        byte[] image = new byte[state.length];
+        int[] map = forward[symmetry];
+        for (int cell = 0; cell < cells; cell++) {
+            image[map[cell]] = state[cell];
+        }
+        int monster = map[monster(state)];
+        image[cells] = (byte) monster;
+        image[cells + 1] = (byte) (monster >>> 8);
+        return image;
+    }
+
+    /**
+     * @return The direction a move becomes once the board is mapped through a symmetry.
+     */
+    Direction map(int symmetry, Direction direction) {
+        return directions[symmetry][direction.ordinal()];
+    }
+
+    /**
+     * @return The direction whose image through a symmetry is the given direction.
+     */
+    Direction unmap(int symmetry, Direction direction) {
+        for (Direction original : DIRECTIONS) {
+            if (directions[symmetry][original.ordinal()] == direction) {
+                return original;
+            }
+        }
+        throw new IllegalStateException("A symmetry must map the directions onto themselves");
+    }
+
+    /**
+     * Compares the images of a state under two symmetries without building them.
+     */
+    private int compare(byte[] state, int a, int b) {
+        int monster = monster(state);
+        int order = Integer.compare(forward[a][monster], forward[b][monster]);
+        if (order != 0) {
+            return order;
+        }
+        int[] fromA = inverse[a];
+        int[] fromB = inverse[b];
+        for (int cell = 0; cell < cells; cell++) {
+            order = Byte.compare(state[fromA[cell]], state[fromB[cell]]);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    private int monster(byte[] state) {
+        return (state[cells] & 0xFF) | (state[cells + 1] & 0xFF) << 8;
+    }
+}
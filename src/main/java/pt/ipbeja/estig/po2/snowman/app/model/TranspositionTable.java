@@ -0,0 +1,191 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The TranspositionTable class is the replacement table of the iterative-deepening search:
+ * a fixed block of memory outside the Java heap that maps 64-bit state keys to a few bytes
+ * of search data.
+ * <p>
+ * The table is allocated once, with {@link ByteBuffer#allocateDirect}, and never grows, so
+ * its size is a hard cap and the garbage collector never sees one object per state. Each
+ * entry takes {@link #ENTRY_BYTES} bytes: the key, the generation (the search iteration)
+ * in which the entry was last written, the depth at which the state was reached and the
+ * best move found from it. Keys are Zobrist hashes and are trusted without comparing the
+ * states; two states share a key with a probability of about 2^-64, and the search only
+ * uses the table to skip and order moves, so a shared key could at worst cost a shortest
+ * solution, never produce an illegal one.
+ * <p>
+ * Entries are grouped in buckets of {@link #BUCKET_ENTRIES}, one 64-byte cache line, and a
+ * key can only live in the bucket its hash selects. When that bucket is full, a new key
+ * replaces the entry of the oldest generation and, among those, the deepest one, since a
+ * shallow entry prunes a larger subtree.
+ * <p>
+ * Key Responsibilities:
+ * - Find, store and update entries by key in constant time.
+ * - Keep the memory of the table within a fixed number of bytes.
+ * - Choose the entry to drop when a bucket is full.
+ * <p>
+ * Threading: This class is not thread-safe and should be accessed from a single thread.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class TranspositionTable {
+
+    /**
+     * Returned by {@link #find} when the key is not in the table, and stored as the move
+     * of an entry that has none.
+     */
+    static final int NONE = -1;
+
+    /**
+     * Bytes of an entry: key (8), generation (4), depth (2), move (1) and one spare byte.
+     */
+    static final int ENTRY_BYTES = 16;
+
+    /**
+     * Entries per bucket.
+     */
+    static final int BUCKET_ENTRIES = 4;
+
+    /**
+     * Smallest table, one bucket.
+     */
+    static final long MIN_BYTES = (long) ENTRY_BYTES * BUCKET_ENTRIES;
+
+    /**
+     * Largest table: 2^26 entries, the largest power of two a single buffer can hold.
+     */
+    static final long MAX_BYTES = 1L << 30;
+
+    private static final int GENERATION = 8;
+    private static final int DEPTH = 12;
+    private static final int MOVE = 14;
+
+    private final ByteBuffer entries;
+    private final int bucketMask;
+    private int size;
+
+    /**
+     * Allocates an empty table.
+     *
+     * @param capBytes Most bytes the table may take, between {@link #MIN_BYTES} and
+     *                 {@link #MAX_BYTES}; the table takes the largest power of two of
+     *                 buckets that fits.
+     */
+    TranspositionTable(long capBytes) {
+        if (capBytes < MIN_BYTES || capBytes > MAX_BYTES) {
+            throw new IllegalArgumentException("The table must take between " + MIN_BYTES
+                    + " and " + MAX_BYTES + " bytes");
+        }
+        int buckets = Integer.highestOneBit((int) (capBytes / MIN_BYTES));
+        this.entries = ByteBuffer.allocateDirect(buckets * (int) MIN_BYTES).order(ByteOrder.nativeOrder());
+        this.bucketMask = buckets - 1;
+    }
+
+    /**
+     * @return Number of entries in use.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of entries the table can hold.
+     */
+    int capacity() {
+        return entries.capacity() / ENTRY_BYTES;
+    }
+
+    /**
+     * @return Bytes allocated by the table.
+     */
+    long memoryBytes() {
+        return entries.capacity();
+    }
+
+    /**
+     * Finds the entry of a key.
+     *
+     * @param key The key, usually the Zobrist hash of a state.
+     * @return The entry, or {@link #NONE} if the key is not in the table.
+     */
+    int find(long key) {
+        int first = bucket(key);
+        for (int entry = first; entry < first + BUCKET_ENTRIES; entry++) {
+            int offset = entry * ENTRY_BYTES;
+            if (entries.getInt(offset + GENERATION) != 0 && entries.getLong(offset) == key) {
+                return entry;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Stores a key that is not in the table, dropping another entry of its bucket if the
+     * bucket is full.
+     *
+     * @param key        The key.
+     * @param generation The current generation, at least 1.
+     * @param depth      Depth at which the state was reached, below 65536.
+     * @return The entry.
+     */
+    int store(long key, int generation, int depth) {
+        int first = bucket(key);
+        int victim = first;
+        for (int entry = first; entry < first + BUCKET_ENTRIES; entry++) {
+            int entryGeneration = generation(entry);
+            if (entryGeneration == 0) {
+                victim = entry;
+                size++;
+                break;
+            }
+            int victimGeneration = generation(victim);
+            if (entryGeneration < victimGeneration
+                    || entryGeneration == victimGeneration && depth(entry) > depth(victim)) {
+                victim = entry;
+            }
+        }
+        int offset = victim * ENTRY_BYTES;
+        entries.putLong(offset, key);
+        entries.put(offset + MOVE, (byte) NONE);
+        update(victim, generation, depth);
+        return victim;
+    }
+
+    /**
+     * Records that the state of an entry was reached again, keeping its best move.
+     */
+    void update(int entry, int generation, int depth) {
+        int offset = entry * ENTRY_BYTES;
+        entries.putInt(offset + GENERATION, generation);
+        entries.putShort(offset + DEPTH, (short) depth);
+    }
+
+    int generation(int entry) {
+        return entries.getInt(entry * ENTRY_BYTES + GENERATION);
+    }
+
+    int depth(int entry) {
+        return entries.getShort(entry * ENTRY_BYTES + DEPTH) & 0xFFFF;
+    }
+
+    /**
+     * @return The best move of an entry, as a direction ordinal, or {@link #NONE}.
+     */
+    int move(int entry) {
+        return entries.get(entry * ENTRY_BYTES + MOVE);
+    }
+
+    void setMove(int entry, int move) {
+        entries.put(entry * ENTRY_BYTES + MOVE, (byte) move);
+    }
+
+    /**
+     * @return The first entry of the bucket of a key.
+     */
+    private int bucket(long key) {
+        return ((int) LongIntHashMap.mix(key) & bucketMask) * BUCKET_ENTRIES;
+    }
+}
@@ -0,0 +1,78 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ZobristKeys class holds the random 64-bit keys used to hash board states.
+ * <p>
+ * A state hash is the XOR of one key per (cell, content), one key per (cell, snowball type)
+ * for every occupied cell, and one key for the monster's cell. Changing any part of the
+ * state only needs the old key XOR-ed out and the new key XOR-ed in, so a hash can be
+ * kept up to date in O(1) per change.
+ * <p>
+ * Keys are generated from a fixed seed and shared by every board with the same number of
+ * cells, so equal states on different boards (or in different runs) get equal hashes.
+ * Instances are immutable and thread-safe.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+final class ZobristKeys {
+
+    private static final long SEED = 0x5EED_C0FF_EE15_5A0BL;
+    private static final int CONTENTS = PositionContent.values().length;
+    private static final int TYPES = SnowballType.values().length;
+    private static final Map<Integer, ZobristKeys> CACHE = new ConcurrentHashMap<>();
+
+    private final long[] cellKeys;
+    private final long[] snowballKeys;
+    private final long[] monsterKeys;
+
+    private ZobristKeys(int cells) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        this.cellKeys = new long[cells * CONTENTS];
+        this.snowballKeys = new long[cells * TYPES];
+        this.monsterKeys = new long[cells];
+        for (int i = 0; i < cellKeys.length; i++) {
+            cellKeys[i] = random.nextLong();
+        }
+        for (int i = 0; i < snowballKeys.length; i++) {
+            snowballKeys[i] = random.nextLong();
+        }
+        for (int i = 0; i < monsterKeys.length; i++) {
+            monsterKeys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Returns the shared keys for boards with the given number of cells.
+     *
+     * @param cells Number of cells of the board.
+     * @return The keys for that board size.
+     */
+    static ZobristKeys forCells(int cells) {
+        return CACHE.computeIfAbsent(cells, ZobristKeys::new);
+    }
+
+    /**
+     * @return The key of a cell holding the given packed content.
+     */
+    long cell(int index, int content) {
+        return cellKeys[index * CONTENTS + content];
+    }
+
+    /**
+     * @return The key of a snowball of the given type ordinal on a cell.
+     */
+    long snowball(int index, int type) {
+        return snowballKeys[index * TYPES + type];
+    }
+
+    /**
+     * @return The key of the monster standing on a cell.
+     */
+    long monster(int index) {
+        return monsterKeys[index];
+    }
+}
@@ -0,0 +1,108 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the binary level pack format and its lazy loading.
+ *
+ * These tests check that levels survive a round trip through the format and that a level
+ * manager opens a large pack decoding only the levels that are played. The time taken to
+ * open it is printed, not asserted.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class BinaryLevelPackTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    @DisplayName("Levels are decoded exactly as they were written")
+    void testRoundTrip() throws IOException {
+        List<Level> levels = new LevelManager().getLevels();
+        Path file = folder.resolve("predefined.bin");
+        BinaryLevelPack.write(levels, file);
+
+        assertTrue(BinaryLevelPack.isBinaryPack(file));
+        BinaryLevelPack pack = BinaryLevelPack.open(file);
+        assertEquals(levels.size(), pack.size());
+        // Header and index, a 5x5 level and four 6x6 ones, each with three snowballs
+        assertEquals(16 + 5 * 4 + (12 + 7 + 9) + 4 * (12 + 9 + 9), Files.size(file));
+        for (int i = 0; i < levels.size(); i++) {
+            Level level = pack.read(i);
+            assertEquals(levels.get(i).getLevelNumber(), level.getLevelNumber());
+            assertEquals(levels.get(i).getCanonicalHash(), level.getCanonicalHash());
+            assertEquals(levels.get(i).getPar(), level.getPar());
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> pack.read(levels.size()));
+    }
+
+    @Test
+    @DisplayName("A pack of 100000 levels opens without decoding and decodes levels on demand")
+    void testLazyLoading() throws IOException {
+        List<Level> predefined = new LevelManager().getLevels();
+        Path file = folder.resolve("large.bin");
+        // Levels generated as they are written, so the test never holds the whole pack
+        BinaryLevelPack.write(new AbstractList<>() {
+            @Override
+            public Level get(int index) {
+                Level level = predefined.get(index % predefined.size());
+                List<List<PositionContent>> board = new ArrayList<>();
+                for (int row = 0; row < level.getRows(); row++) {
+                    List<PositionContent> cells = new ArrayList<>();
+                    for (int col = 0; col < level.getCols(); col++) {
+                        cells.add(level.getContent(row, col));
+                    }
+                    board.add(cells);
+                }
+                return new Level(board, level.getMonsterStartRow(), level.getMonsterStartCol(), level.getSnowballs(),
+                        index + 1);
+            }
+
+            @Override
+            public int size() {
+                return 100_000;
+            }
+        }, file);
+
+        long start = System.nanoTime();
+        LevelManager manager = new LevelManager(file);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Opened " + manager.getLevels().size() + " levels in " + millis + " ms");
+
+        assertEquals(100_000, manager.getLevels().size());
+        assertEquals(16, manager.getCurrentLevel().getPar());
+        BoardModel second = manager.loadNextLevel();
+        assertEquals(23, second.getPar());
+        assertEquals(3, second.getSnowballs().size());
+        Level last = manager.getLevels().get(99_999);
+        assertEquals(100_000, last.getLevelNumber());
+        assertEquals(predefined.get(99_999 % predefined.size()).getCanonicalHash(), last.getCanonicalHash());
+    }
+
+    @Test
+    @DisplayName("A file that is not a binary pack is rejected")
+    void testNotBinary() throws IOException {
+        Path file = folder.resolve("pack.txt");
+        Files.writeString(file, "Level: 1\n+S.\n");
+
+        assertFalse(BinaryLevelPack.isBinaryPack(file));
+        assertThrows(IOException.class, () -> BinaryLevelPack.open(file));
+        assertEquals(1, new LevelManager(file).getLevels().size());
+    }
+}
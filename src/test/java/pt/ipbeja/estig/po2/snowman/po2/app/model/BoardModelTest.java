@@ -126,7 +126,7 @@ public class BoardModelTest {
         System.out.println("Initial snowball position: (" + snowball.getRow() + ", " + snowball.getCol() + ")");
         System.out.println("Initial monster position: (" + monster.getRow() + ", " + monster.getCol() + ")");
 
-        content.get(0).set(0, PositionContent.SNOW); // Ensure snow for growth
+        board.setPositionContent(0, 0, PositionContent.SNOW); // Ensure snow for growth
         System.out.println("Top cell (0,0) set to SNOW");
 
         board.moveMonster(Direction.UP); // (2,0) -> (1,0)
@@ -151,7 +151,7 @@ public class BoardModelTest {
         System.out.println("Initial snowball type: " + snowball.getType());
 
         // Ensure snow is present at (0,0) for growth
-        content.get(0).set(0, PositionContent.SNOW);
+        board.setPositionContent(0, 0, PositionContent.SNOW);
         System.out.println("Set (0,0) to SNOW");
 
         // Move monster up to (1,0), where the snowball is
@@ -178,7 +178,7 @@ public class BoardModelTest {
         System.out.println("Initial snowball position: (" + snowball.getRow() + ", " + snowball.getCol() + ")");
         assertEquals(1, snowball.getRow());
 
-        content.get(0).set(0, PositionContent.SNOW); // For growth
+        board.setPositionContent(0, 0, PositionContent.SNOW); // For growth
         System.out.println("Set (0,0) to SNOW");
 
         board.moveMonster(Direction.UP);  // to (1,0)
@@ -201,4 +201,50 @@ public class BoardModelTest {
         assertFalse(invalidPush);
         assertEquals(0, snowball.getRow()); // Should remain at top
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Snowball occupancy follows pushes, undo, redo and reset")
+    void testSnowballOccupancyIndex() {
+        board.moveMonster(Direction.UP); // pushes the snowball from (1,0) to (0,0)
+
+        assertNull(board.snowballInPosition(1, 0));
+        assertNotNull(board.snowballInPosition(0, 0));
+
+        board.undo();
+        assertNotNull(board.snowballInPosition(1, 0));
+        assertNull(board.snowballInPosition(0, 0));
+
+        board.redo();
+        assertNotNull(board.snowballInPosition(0, 0));
+
+        board.resetLevel();
+        assertNotNull(board.snowballInPosition(1, 0));
+        assertNull(board.snowballInPosition(0, 0));
+        assertNull(board.snowballInPosition(-1, 0)); // Out of bounds is never occupied
+    }
+
+    @Test
+    @DisplayName("Combining keeps the other snowball and takes the pushed one off the board")
+    void testCombineReusesSnowballs() {
+        Snowball pushed = board.snowballInPosition(1, 0);
+        Snowball target = new Snowball(0, 0, SnowballType.BIG);
+        board.getSnowballs().add(target);
+
+        assertTrue(board.moveMonster(Direction.UP));
+        assertEquals(1, board.getSnowballs().size());
+        assertSame(target, board.snowballInPosition(0, 0));
+        assertEquals(SnowballType.BIG_SMALL, target.getType());
+        assertFalse(board.getSnowballs().contains(pushed));
+        assertEquals(1, pushed.getRow(), "A snowball off the board keeps its last position");
+        assertEquals(SnowballType.SMALL, pushed.getType());
+
+        board.undo();
+        assertSame(pushed, board.snowballInPosition(1, 0));
+        assertEquals(SnowballType.BIG, target.getType());
+        assertEquals(2, board.getSnowballs().size());
+
+        board.redo();
+        assertEquals(SnowballType.BIG_SMALL, board.snowballInPosition(0, 0).getType());
+        assertNull(board.snowballInPosition(1, 0));
+    }
+}
@@ -0,0 +1,122 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the DeadlockDetector class.
+ *
+ * These tests check the dead squares computed from a board layout, the detection of
+ * snowballs that can never move again, and the detection of lost levels, both by the
+ * detector and by the solver that uses it to prune its search.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class DeadlockDetectorTest {
+
+    /**
+     * Builds a 4x4 board without snow, with blocks at (1,2) and (2,1) and the monster at (3,3).
+     */
+    private BoardModel createBoard(List<Snowball> snowballs) {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        content.get(1).set(2, PositionContent.BLOCK);
+        content.get(2).set(1, PositionContent.BLOCK);
+        return new BoardModel(content, new Monster(3, 3), snowballs);
+    }
+
+    @Test
+    @DisplayName("Corners and cells closed by blocks are dead squares")
+    void testDeadSquares() {
+        DeadlockDetector detector = new DeadlockDetector(createBoard(new ArrayList<>()));
+
+        assertTrue(detector.isDeadSquare(0, 0));
+        assertTrue(detector.isDeadSquare(3, 3));
+        assertTrue(detector.isDeadSquare(1, 1)); // Closed by the two blocks
+        assertTrue(detector.isDeadSquare(2, 2));
+        assertFalse(detector.isDeadSquare(0, 2)); // Closed vertically only
+        assertFalse(detector.isDeadSquare(1, 2)); // The block itself
+        assertEquals(6, detector.getDeadSquareCount());
+    }
+
+    @Test
+    @DisplayName("A snowball next to a MID_SMALL snowball and the edge is frozen")
+    void testFrozenSnowball() {
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(0, 1, SnowballType.BIG));
+        snowballs.add(new Snowball(0, 2, SnowballType.MID_SMALL));
+        snowballs.add(new Snowball(3, 1, SnowballType.SMALL));
+        BoardModel board = createBoard(snowballs);
+        DeadlockDetector detector = new DeadlockDetector(board);
+
+        assertFalse(detector.isDeadSquare(0, 1));
+        assertTrue(detector.isFrozen(board, 0, 1));
+        assertFalse(detector.isFrozen(board, 3, 1));
+        assertFalse(detector.isFrozen(board, 3, 0)); // No snowball there
+    }
+
+    @Test
+    @DisplayName("A level whose only SMALL snowball is in a corner is lost")
+    void testLevelLost() {
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(0, 0, SnowballType.SMALL));
+        snowballs.add(new Snowball(3, 1, SnowballType.MID));
+        snowballs.add(new Snowball(2, 3, SnowballType.BIG));
+        BoardModel board = createBoard(snowballs);
+
+        assertTrue(new DeadlockDetector(board).isLost(board));
+        assertEquals(SolverResult.Status.UNSOLVABLE, new Solver().solve(board).getStatus());
+    }
+
+    @Test
+    @DisplayName("A level of two snowmen is lost as soon as too few snowballs are left for both")
+    void testTwoSnowmenLost() {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 6; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(1, 1, SnowballType.SMALL));
+        snowballs.add(new Snowball(1, 2, SnowballType.MID));
+        snowballs.add(new Snowball(1, 4, SnowballType.BIG));
+        snowballs.add(new Snowball(3, 1, SnowballType.SMALL));
+        snowballs.add(new Snowball(3, 2, SnowballType.MID));
+        snowballs.add(new Snowball(3, 4, SnowballType.BIG));
+        BoardModel board = new BoardModel(content, new Monster(1, 0), snowballs);
+        board.setRequiredSnowmen(2);
+        DeadlockDetector detector = new DeadlockDetector(board);
+        assertFalse(detector.isLost(board));
+
+        // A SMALL snowball pushed onto a MID one leaves a single snowman to build
+        assertTrue(board.moveMonster(Direction.RIGHT));
+        assertEquals(SnowballType.MID_SMALL, board.snowballInPosition(1, 2).getType());
+        assertTrue(detector.isLost(board));
+    }
+
+    @Test
+    @DisplayName("The predefined levels are not lost at the start")
+    void testPredefinedLevelsNotLost() {
+        LevelManager levels = new LevelManager();
+        for (BoardModel board = levels.getCurrentLevel(); board != null; board = levels.loadNextLevel()) {
+            assertFalse(new DeadlockDetector(board).isLost(board));
+        }
+    }
+}
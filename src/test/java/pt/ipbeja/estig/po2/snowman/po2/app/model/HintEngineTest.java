@@ -0,0 +1,148 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the HintEngine class.
+ *
+ * These tests check that hints are legal moves, that a player following the hints of a
+ * solved position gets every next hint from the cache, that only final answers are cached
+ * and that a new request cancels the previous one.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class HintEngineTest {
+
+    /**
+     * Builds a 4x5 board without snow where a snowman takes a few moves.
+     */
+    private BoardModel createBoard() {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(1, 1, SnowballType.SMALL));
+        snowballs.add(new Snowball(1, 3, SnowballType.BIG_MID));
+        return new BoardModel(content, new Monster(0, 0), snowballs);
+    }
+
+    @Test
+    @DisplayName("Following the hints completes the level, with every later hint cached")
+    void testFollowHints() throws Exception {
+        BoardModel board = createBoard();
+        try (HintEngine engine = new HintEngine()) {
+            Hint first = engine.requestHint(board).get(5, TimeUnit.SECONDS);
+            assertTrue(first.isSolution());
+            assertFalse(first.isCached());
+
+            int moves = first.getMovesToGoal();
+            for (int i = 0; i < moves; i++) {
+                CompletableFuture<Hint> future = engine.requestHint(board);
+                assertTrue(future.isDone());
+                Hint hint = future.get();
+                assertTrue(hint.isCached());
+                assertEquals(moves - i, hint.getMovesToGoal());
+                assertTrue(board.moveMonster(hint.getDirection()));
+            }
+            assertTrue(board.isLevelComplete());
+            assertNull(engine.requestHint(board).get().getDirection());
+        }
+    }
+
+    @Test
+    @DisplayName("A hint on a hard level arrives within its budget")
+    void testBudget() throws Exception {
+        BoardModel board = new LevelManager().getCurrentLevel();
+        board.moveMonster(Direction.DOWN);
+        try (HintEngine engine = new HintEngine()) {
+            engine.setBudgetMillis(50);
+            Hint hint = engine.requestHint(board).get(5, TimeUnit.SECONDS);
+
+            assertNotNull(hint.getDirection());
+            assertTrue(board.previewMove(hint.getDirection()) != MoveOutcome.BLOCKED);
+        }
+    }
+
+    @Test
+    @DisplayName("A best guess is not cached, so a larger budget searches again")
+    void testGuessNotCached() throws Exception {
+        BoardModel board = new LevelManager().getCurrentLevel();
+        try (HintEngine engine = new HintEngine()) {
+            engine.setBudgetMillis(1);
+            Hint guess = engine.requestHint(board).get(5, TimeUnit.SECONDS);
+            assertFalse(guess.isSolution());
+            assertFalse(guess.isLost());
+            assertEquals(0, engine.getCachedCount());
+
+            engine.setBudgetMillis(60_000);
+            Hint hint = engine.requestHint(board).get(60, TimeUnit.SECONDS);
+            assertFalse(hint.isCached());
+            assertTrue(hint.isSolution());
+            assertEquals(16, hint.getMovesToGoal());
+        }
+    }
+
+    @Test
+    @DisplayName("A lost position is cached as lost")
+    void testLost() throws Exception {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(0, 2, SnowballType.SMALL));
+        snowballs.add(new Snowball(2, 0, SnowballType.MID));
+        snowballs.add(new Snowball(2, 2, SnowballType.BIG));
+        BoardModel board = new BoardModel(content, new Monster(1, 1), snowballs);
+        try (HintEngine engine = new HintEngine()) {
+            Hint hint = engine.requestHint(board).get(5, TimeUnit.SECONDS);
+            assertTrue(hint.isLost());
+            assertNull(hint.getDirection());
+
+            Hint cached = engine.requestHint(board).get();
+            assertTrue(cached.isCached());
+            assertTrue(cached.isLost());
+        }
+    }
+
+    @Test
+    @DisplayName("A new request cancels the previous one")
+    void testCancel() throws Exception {
+        LevelManager levels = new LevelManager();
+        levels.loadNextLevel();
+        levels.loadNextLevel();
+        BoardModel board = levels.getCurrentLevel();
+        try (HintEngine engine = new HintEngine()) {
+            engine.setBudgetMillis(10_000);
+            CompletableFuture<Hint> first = engine.requestHint(board);
+            board.moveMonster(Direction.RIGHT);
+            engine.setBudgetMillis(20);
+            Hint second = engine.requestHint(board).get(5, TimeUnit.SECONDS);
+
+            assertTrue(first.isCancelled());
+            assertNotNull(second.getDirection());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Unit tests for the prefetching of the next level by the LevelManager.
+ *
+ * These tests check that the next board is prepared on the given executor, handed out by
+ * the level transition, and built on the spot when it was not prepared in time.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class LevelManagerTest {
+
+    @Test
+    @DisplayName("The next level is prepared in the background and handed out on transition")
+    void testPrefetch() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            LevelManager levels = new LevelManager();
+            CompletableFuture<BoardModel> next = levels.prefetchNextLevel(executor);
+            assertSame(next, levels.prefetchNextLevel(executor));
+            BoardModel prepared = next.get();
+
+            assertSame(prepared, levels.loadNextLevel());
+            assertEquals(1, levels.getCurrentLevelIndex());
+            assertEquals(23, prepared.getPar());
+
+            // The following level is prepared anew
+            assertNotSame(next, levels.prefetchNextLevel(executor));
+            while (levels.hasNextLevel()) {
+                levels.loadNextLevel();
+            }
+            assertNull(levels.prefetchNextLevel(executor).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("A level that was not prepared in time is built on the spot")
+    void testPrefetchNotReady() {
+        List<Runnable> never = new ArrayList<>();
+        LevelManager levels = new LevelManager();
+        CompletableFuture<BoardModel> next = levels.prefetchNextLevel(never::add);
+
+        BoardModel board = levels.loadNextLevel();
+        assertEquals(1, never.size());
+        assertEquals(23, board.getPar());
+        never.get(0).run();
+        assertNotSame(next.join(), board);
+    }
+}
@@ -0,0 +1,173 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the level pack format, its streaming reader and its index.
+ *
+ * These tests check that levels survive a round trip through the format, that malformed
+ * packs are reported with their line, and that a large pack is indexed and read one level
+ * at a time. The time taken to index it is printed, not asserted.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class LevelPackTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    @DisplayName("Levels are read back exactly as they were written")
+    void testRoundTrip() throws IOException {
+        List<Level> levels = new LevelManager().getLevels();
+        StringWriter text = new StringWriter();
+        LevelPack.write(levels, text);
+
+        try (LevelPackReader reader = new LevelPackReader(new StringReader(text.toString()))) {
+            for (Level level : levels) {
+                Level read = reader.next();
+                assertEquals(level.getLevelNumber(), read.getLevelNumber());
+                assertEquals(level.getCanonicalHash(), read.getCanonicalHash());
+            }
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    @DisplayName("A pack lists its cells, snowballs, monster and snowmen")
+    void testFormat() throws IOException {
+        String pack = """
+                ; A comment
+                Level: 7
+                Snowmen: 2
+                #-+.
+                sM*#
+                """;
+        try (LevelPackReader reader = new LevelPackReader(new StringReader(pack))) {
+            Level level = reader.next();
+            assertEquals(7, level.getLevelNumber());
+            assertEquals(2, level.getRequiredSnowmen());
+            assertEquals(2, level.getRows());
+            assertEquals(4, level.getCols());
+            assertEquals(PositionContent.BLOCK, level.getContent(0, 0));
+            assertEquals(PositionContent.NO_SNOW, level.getContent(0, 1));
+            assertEquals(PositionContent.SNOW, level.getContent(0, 2));
+            assertEquals(PositionContent.NO_SNOW, level.getContent(1, 0));
+            assertEquals(PositionContent.SNOW, level.getContent(1, 1));
+            assertEquals(PositionContent.SNOWMAN, level.getContent(1, 2));
+            assertEquals(0, level.getMonsterStartRow());
+            assertEquals(2, level.getMonsterStartCol());
+            List<Snowball> snowballs = level.getSnowballs();
+            assertEquals(SnowballType.SMALL, snowballs.get(0).getType());
+            assertEquals(SnowballType.MID, snowballs.get(1).getType());
+            assertEquals(1, snowballs.get(1).getCol());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    @DisplayName("Malformed packs are reported with the line of the error")
+    void testErrors() {
+        assertTrue(error("Level: 1\n+..\n..\n").contains("line 3"));
+        assertTrue(error("Level: 1\n+.q\n").contains("Unknown cell 'q'"));
+        assertTrue(error("Level: 1\n...\n").contains("no monster"));
+        assertTrue(error("+..\n").contains("Expected 'Level:'"));
+        assertTrue(error("Level: 1\nLevel: 2\n+\n").contains("no board"));
+    }
+
+    private String error(String pack) {
+        LevelPackReader reader = new LevelPackReader(new StringReader(pack));
+        return assertThrows(IOException.class, () -> {
+            while (reader.next() != null) {
+                // Read to the end
+            }
+        }).getMessage();
+    }
+
+    @Test
+    @DisplayName("A pack of 100000 levels is indexed and read one level at a time")
+    void testIndex() throws IOException {
+        List<Level> predefined = new LevelManager().getLevels();
+        Path file = folder.resolve("large.txt");
+        try (Writer out = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < 100_000; i++) {
+                Level level = predefined.get(i % predefined.size());
+                List<List<PositionContent>> board = new ArrayList<>();
+                for (int row = 0; row < level.getRows(); row++) {
+                    List<PositionContent> cells = new ArrayList<>();
+                    for (int col = 0; col < level.getCols(); col++) {
+                        cells.add(level.getContent(row, col));
+                    }
+                    board.add(cells);
+                }
+                LevelPack.write(List.of(new Level(board, level.getMonsterStartRow(), level.getMonsterStartCol(),
+                        level.getSnowballs(), i + 1)), out);
+            }
+        }
+
+        long start = System.nanoTime();
+        LevelPack pack = LevelPack.open(file);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Indexed " + pack.size() + " levels in " + millis + " ms");
+
+        assertEquals(100_000, pack.size());
+        assertEquals(1, pack.getLevelNumber(0));
+        assertEquals(100_000, pack.getLevelNumber(99_999));
+        assertEquals(54_321, pack.getLevelNumber(54_320));
+        Level level = pack.read(54_320);
+        assertEquals(54_321, level.getLevelNumber());
+        assertEquals(predefined.get(54_320 % predefined.size()).getCanonicalHash(), level.getCanonicalHash());
+    }
+
+    @Test
+    @DisplayName("A level with a malformed number is indexed and reported when read")
+    void testIndexMalformedNumber() throws IOException {
+        Path file = folder.resolve("pack.txt");
+        Files.writeString(file, "Level: 1\n+S.\n\nLevel: -3\n+S.\n\nLevel: 3x\n+S.\nLevel: 4\n+S.\n");
+
+        LevelPack pack = LevelPack.open(file);
+        assertEquals(4, pack.size());
+        assertEquals(1, pack.getLevelNumber(0));
+        assertEquals(LevelPack.NO_NUMBER, pack.getLevelNumber(1));
+        assertEquals(LevelPack.NO_NUMBER, pack.getLevelNumber(2));
+        assertEquals(4, pack.getLevelNumber(3));
+        assertTrue(assertThrows(IOException.class, () -> pack.read(1)).getMessage().contains("line 1"));
+        assertTrue(assertThrows(IOException.class, () -> pack.read(2)).getMessage().contains("Expected a number"));
+        assertEquals(4, pack.read(3).getLevelNumber());
+    }
+
+    @Test
+    @DisplayName("A level manager plays the levels of a pack file")
+    void testLevelManager() throws IOException {
+        Path file = folder.resolve("pack.txt");
+        Files.writeString(file, "Level: 1\n+....\n..S..\n...S.\n.S...\n.....\n\nLevel: 2\n@-s\n-m-\n--b\n");
+
+        LevelManager manager = new LevelManager(file);
+        assertEquals(2, manager.getLevels().size());
+        assertEquals(16, manager.getCurrentLevel().getPar());
+        BoardModel second = manager.loadNextLevel();
+        assertEquals(3, second.getSnowballs().size());
+        assertEquals(-1, second.getPar());
+        assertNull(manager.loadNextLevel());
+
+        Files.writeString(file, "; Nothing here\n");
+        assertThrows(IOException.class, () -> new LevelManager(file));
+    }
+}
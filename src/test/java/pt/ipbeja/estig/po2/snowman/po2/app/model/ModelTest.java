@@ -4,9 +4,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import pt.ipbeja.estig.po2.snowman.app.model.*;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Unit tests for the BoardModel, Monster, and Snowball game logic.
@@ -55,7 +58,7 @@ public class ModelTest {
     @DisplayName("Move the monster to the left (invalid, should stay in place)")
     void testMonsterToTheLeft() {
         // Block position to the left of the monster
-        content.get(0).set(2, PositionContent.BLOCK);
+        board.setPositionContent(0, 2, PositionContent.BLOCK);
 
         System.out.println("Before move:");
         System.out.println("Monster position: (" + monster.getRow() + ", " + monster.getCol() + ")");
@@ -79,7 +82,7 @@ public class ModelTest {
         System.out.println("Initial snowball type: " + snowball.getType());
 
         // Make sure there is snow at the position where the ball will grow, here (0, 1)
-        content.get(0).set(1, PositionContent.SNOW);
+        board.setPositionContent(0, 1, PositionContent.SNOW);
         System.out.println("Set (0,1) to SNOW");
 
         // Move the monster to the left to push the snowball to (0,1)
@@ -124,4 +127,340 @@ public class ModelTest {
 
         assertEquals(PositionContent.SNOWMAN, content, "Deve formar SNOWMAN");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Undo and redo a snowball combination")
+    void testUndoRedoCombination() {
+        board.getSnowballs().add(new Snowball(0, 1, SnowballType.BIG));
+
+        // Push the small ball at (0,2) into the big ball at (0,1)
+        assertTrue(board.moveMonster(Direction.LEFT));
+        assertEquals(1, board.getSnowballs().size());
+        assertEquals(SnowballType.BIG_SMALL, board.snowballInPosition(0, 1).getType());
+        assertEquals(2, monster.getCol());
+
+        assertTrue(board.undo());
+        assertEquals(2, board.getSnowballs().size());
+        assertEquals(SnowballType.SMALL, board.snowballInPosition(0, 2).getType());
+        assertEquals(SnowballType.BIG, board.snowballInPosition(0, 1).getType());
+        assertEquals(3, monster.getCol());
+        assertEquals(PositionContent.SNOW, board.getPositionContent(0, 1));
+
+        assertTrue(board.redo());
+        assertEquals(1, board.getSnowballs().size());
+        assertEquals(SnowballType.BIG_SMALL, board.snowballInPosition(0, 1).getType());
+        assertNull(board.snowballInPosition(0, 2));
+        assertEquals(2, monster.getCol());
+        assertFalse(board.redo());
+    }
+
+    @Test
+    @DisplayName("Seeking to any move matches the state reached move by move")
+    void testSeekMove() {
+        board.getSnowballs().add(new Snowball(2, 2, SnowballType.SMALL));
+        board.getSnowballs().add(new Snowball(3, 1, SnowballType.MID));
+        for (int row = 1; row < 5; row++) {
+            board.setPositionContent(row, 4, PositionContent.SNOW);
+        }
+
+        List<String> states = new ArrayList<>();
+        states.add(describe(board));
+        Random random = new Random(42);
+        while (states.size() <= 150) {
+            if (board.moveMonster(Direction.values()[random.nextInt(4)])) {
+                states.add(describe(board));
+            }
+        }
+        assertEquals(150, board.getMoveCount());
+
+        int[] targets = {0, 149, 37, 38, 5, 150, 64, 63, 96, 1, 120};
+        for (int target : targets) {
+            board.seekMove(target);
+            assertEquals(target, board.getMoveIndex());
+            assertEquals(states.get(target), describe(board), "State after move " + target);
+        }
+
+        // Undo and redo keep working from a seeked position
+        board.seekMove(70);
+        assertTrue(board.undo());
+        assertEquals(states.get(69), describe(board));
+        assertTrue(board.redo());
+        assertTrue(board.redo());
+        assertEquals(states.get(71), describe(board));
+        assertThrows(IndexOutOfBoundsException.class, () -> board.seekMove(151));
+    }
+
+    @Test
+    @DisplayName("History over its memory budget spills to disk and pages back in")
+    void testHistorySpillsToDisk() {
+        board.getSnowballs().add(new Snowball(2, 2, SnowballType.SMALL));
+        board.setHistoryMemoryBudget(2_000);
+
+        List<String> states = new ArrayList<>();
+        states.add(describe(board));
+        Random random = new Random(7);
+        while (states.size() <= 300) {
+            if (board.moveMonster(Direction.values()[random.nextInt(4)])) {
+                states.add(describe(board));
+            }
+        }
+        System.out.println("History in memory: " + board.getHistoryMemoryBytes()
+                + " bytes, on disk: " + board.getHistorySpilledBytes() + " bytes");
+        assertTrue(board.getHistorySpilledBytes() > 0);
+        assertTrue(board.getHistoryMemoryBytes() <= 2_000 + 300 * Long.BYTES);
+
+        // Deep undo pages the spilled moves back in
+        for (int move = 299; move >= 0; move--) {
+            assertTrue(board.undo());
+            assertEquals(states.get(move), describe(board), "State after undo to move " + move);
+        }
+        assertFalse(board.undo());
+
+        board.seekMove(250);
+        assertEquals(states.get(250), describe(board));
+        board.seekMove(10);
+        assertEquals(states.get(10), describe(board));
+
+        // Branching off inside the spilled part drops the later moves
+        while (!board.moveMonster(Direction.values()[random.nextInt(4)])) {
+            // Retry until a move succeeds
+        }
+        assertEquals(11, board.getMoveCount());
+        board.seekMove(3);
+        assertEquals(states.get(3), describe(board));
+    }
+
+    @Test
+    @DisplayName("Move previews match the moves actually played and change nothing")
+    void testPreviewMatchesMove() {
+        assertEquals(MoveOutcome.PUSH_AND_GROW, board.previewMove(Direction.LEFT));
+        assertEquals(MoveOutcome.BLOCKED, board.previewMove(Direction.UP));
+        assertTrue(board.canMove(Direction.DOWN));
+
+        board.getSnowballs().add(new Snowball(2, 2, SnowballType.MID));
+        board.getSnowballs().add(new Snowball(3, 3, SnowballType.BIG));
+        board.getSnowballs().add(new Snowball(4, 1, SnowballType.SMALL));
+        for (int col = 0; col < 5; col++) {
+            board.setPositionContent(2, col, PositionContent.SNOW);
+        }
+
+        Random random = new Random(3);
+        for (int step = 0; step < 400; step++) {
+            String before = describe(board);
+            MoveOutcome[] outcomes = new MoveOutcome[4];
+            for (Direction direction : Direction.values()) {
+                outcomes[direction.ordinal()] = board.previewMove(direction);
+            }
+            assertEquals(before, describe(board), "Previewing must not change the board");
+
+            Direction direction = Direction.values()[random.nextInt(4)];
+            int snowballsBefore = board.getSnowballs().size();
+            boolean moved = board.moveMonster(direction);
+            MoveOutcome outcome = outcomes[direction.ordinal()];
+            assertEquals(outcome.isLegal(), moved, "Outcome " + outcome + " at step " + step);
+            assertEquals(outcome == MoveOutcome.COMBINE ? snowballsBefore - 1
+                    : outcome == MoveOutcome.COMPLETE_SNOWMAN ? snowballsBefore - 2
+                    : snowballsBefore, board.getSnowballs().size());
+            assertEquals(board.legalMoves().size(), Integer.bitCount(board.legalMoveMask()));
+        }
+    }
+
+    @Test
+    @DisplayName("State hash follows the board through moves, undo and seeks, and counts repetitions")
+    void testStateHash() {
+        board.getSnowballs().add(new Snowball(2, 2, SnowballType.SMALL));
+        board.getSnowballs().add(new Snowball(3, 1, SnowballType.MID));
+        for (int row = 1; row < 5; row++) {
+            board.setPositionContent(row, 4, PositionContent.SNOW);
+        }
+        long start = board.stateHash();
+
+        // Walking away and back reaches the same state, so the count goes up
+        assertTrue(board.moveMonster(Direction.DOWN));
+        assertNotEquals(start, board.stateHash());
+        assertTrue(board.moveMonster(Direction.UP));
+        assertEquals(start, board.stateHash());
+        int visits = board.getRepetitionCount();
+        assertTrue(board.moveMonster(Direction.DOWN));
+        assertTrue(board.moveMonster(Direction.UP));
+        assertEquals(visits + 1, board.getRepetitionCount());
+
+        List<String> states = new ArrayList<>();
+        List<Long> hashes = new ArrayList<>();
+        states.add(describe(board));
+        hashes.add(board.stateHash());
+        Random random = new Random(7);
+        while (states.size() <= 120) {
+            if (board.moveMonster(Direction.values()[random.nextInt(4)])) {
+                states.add(describe(board));
+                hashes.add(board.stateHash());
+            }
+        }
+
+        // Equal states have equal hashes, different states (almost surely) different ones
+        for (int i = 0; i < states.size(); i++) {
+            for (int j = i + 1; j < states.size(); j++) {
+                assertEquals(states.get(i).equals(states.get(j)), hashes.get(i).equals(hashes.get(j)));
+            }
+        }
+
+        // The hash is restored exactly by undo, redo and seeks
+        int moves = board.getMoveCount();
+        for (int target : new int[] {moves - 1, 4, moves, 40, 5}) {
+            board.seekMove(target);
+            assertEquals(hashes.get(target - 4), board.stateHash(), "Hash after move " + target);
+        }
+
+        board.resetLevel();
+        assertEquals(1, board.getRepetitionCount());
+        assertEquals(1, board.getDistinctStateCount());
+    }
+
+    @Test
+    @DisplayName("Snowman count follows completions, undo, redo and reset")
+    void testSnowmanCount() {
+        board.getSnowballs().add(new Snowball(0, 1, SnowballType.BIG_MID));
+        board.getSnowballs().add(new Snowball(3, 1, SnowballType.BIG_MID));
+        board.getSnowballs().add(new Snowball(3, 2, SnowballType.SMALL));
+        board.setRequiredSnowmen(2);
+        assertEquals(0, board.getSnowmanCount());
+
+        // Push the small ball at (0,2) onto the big-mid at (0,1)
+        assertTrue(board.moveMonster(Direction.LEFT));
+        assertEquals(PositionContent.SNOWMAN, board.getPositionContent(0, 1));
+        assertEquals(1, board.getSnowmanCount());
+        assertFalse(board.isLevelComplete(), "Two snowmen are required");
+
+        assertTrue(board.undo());
+        assertEquals(0, board.getSnowmanCount());
+        assertTrue(board.redo());
+        assertEquals(1, board.getSnowmanCount());
+
+        // Walk from (0,2) to (3,3) and push the small ball at (3,2) onto the big-mid at (3,1)
+        assertTrue(board.moveMonster(Direction.RIGHT));
+        assertTrue(board.moveMonster(Direction.DOWN));
+        assertTrue(board.moveMonster(Direction.DOWN));
+        assertTrue(board.moveMonster(Direction.DOWN));
+        assertTrue(board.moveMonster(Direction.LEFT));
+        assertEquals(2, board.getSnowmanCount());
+        assertTrue(board.isLevelComplete());
+
+        board.seekMove(0);
+        assertEquals(0, board.getSnowmanCount());
+        board.seekMove(board.getMoveCount());
+        assertTrue(board.isLevelComplete());
+
+        board.resetLevel();
+        assertEquals(0, board.getSnowmanCount());
+        assertFalse(board.isLevelComplete());
+        assertThrows(IllegalArgumentException.class, () -> board.setRequiredSnowmen(0));
+    }
+
+    @Test
+    @DisplayName("Steady-state moves allocate no memory")
+    void testMoveDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        board.getSnowballs().add(new Snowball(2, 2, SnowballType.SMALL));
+        board.getSnowballs().add(new Snowball(3, 1, SnowballType.BIG_MID));
+        board.getSnowballs().add(new Snowball(4, 3, SnowballType.MID));
+        for (int row = 1; row < 5; row++) {
+            board.setPositionContent(row, 4, PositionContent.SNOW);
+        }
+
+        // A fixed script of legal moves, long enough to capture a keyframe and combine snowballs
+        Direction[] directions = Direction.values();
+        Direction[] script = new Direction[48];
+        Random random = new Random(11);
+        for (int i = 0; i < script.length; ) {
+            Direction direction = directions[random.nextInt(4)];
+            if (board.moveMonster(direction)) {
+                script[i++] = direction;
+            }
+        }
+
+        // Warm up the history pools, then replay the script from the start many times
+        for (int round = 0; round < 5; round++) {
+            board.seekMove(0);
+            for (Direction direction : script) {
+                board.moveMonster(direction);
+            }
+        }
+        // A move that allocates does so in every round, while the JIT compiler may add a few
+        // bytes of its own now and then, so the cleanest round is the one that counts
+        long fewest = Long.MAX_VALUE;
+        for (int round = 0; round < 20; round++) {
+            board.seekMove(0);
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (Direction direction : script) {
+                board.moveMonster(direction);
+            }
+            fewest = Math.min(fewest, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+        assertEquals(script.length, board.getMoveCount());
+        assertEquals(0, fewest, "Bytes allocated by " + script.length + " moves");
+    }
+
+    @Test
+    @DisplayName("Click-to-move walks a shortest path around snowballs, avoiding snow")
+    void testWalkTo() {
+        List<Direction> path = board.findPath(0, 0);
+        assertEquals(5, path.size());
+        assertNull(board.findPath(0, 2)); // The snowball's cell
+        assertTrue(board.findPath(0, 3).isEmpty());
+
+        assertEquals(5, board.walkTo(0, 0));
+        assertEquals(0, board.getMonster().getRow());
+        assertEquals(0, board.getMonster().getCol());
+        assertEquals(PositionContent.SNOW, board.getPositionContent(0, 1));
+        assertEquals(SnowballType.SMALL, board.snowballInPosition(0, 2).getType());
+        assertEquals(5, board.getMoveCount());
+
+        // Boards wider than one bitset word
+        List<List<PositionContent>> large = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 10; j++) {
+                row.add(i == 5 && j < 9 ? PositionContent.BLOCK : PositionContent.SNOW);
+            }
+            large.add(row);
+        }
+        BoardModel wide = new BoardModel(large, new Monster(0, 0), new ArrayList<>());
+        assertEquals(27, wide.findPath(9, 0).size()); // Around the wall through (5, 9)
+        assertEquals(27, wide.walkTo(9, 0));
+        assertEquals(9, wide.getMonster().getRow());
+
+        // Stepping back onto the cell without snow next to the target leads through two snow
+        // cells; the walk along the bottom row crosses one
+        String[] layout = {"-...", "-..-", "--.-"};
+        List<List<PositionContent>> cells = new ArrayList<>();
+        for (String line : layout) {
+            List<PositionContent> row = new ArrayList<>();
+            for (char cell : line.toCharArray()) {
+                row.add(cell == '.' ? PositionContent.SNOW : PositionContent.NO_SNOW);
+            }
+            cells.add(row);
+        }
+        BoardModel snowy = new BoardModel(cells, new Monster(0, 0), new ArrayList<>());
+        assertEquals(List.of(Direction.DOWN, Direction.DOWN, Direction.RIGHT, Direction.RIGHT, Direction.RIGHT),
+                snowy.findPath(2, 3));
+    }
+
+    /**
+     * Builds a textual description of the full board state for comparisons.
+     */
+    private static String describe(BoardModel model) {
+        StringBuilder text = new StringBuilder();
+        text.append(model.getMonster().getRow()).append(',').append(model.getMonster().getCol()).append('|');
+        for (int row = 0; row < model.getRows(); row++) {
+            for (int col = 0; col < model.getCols(); col++) {
+                text.append(model.getPositionContent(row, col).ordinal());
+                Snowball snowball = model.snowballInPosition(row, col);
+                text.append(snowball == null ? "." : snowball.getType().name().charAt(0) + "" + snowball.getType().ordinal());
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the ParCalculator batch job and the pars of the predefined levels.
+ *
+ * These tests check that the job finds the optimal move counts, that it only writes the
+ * pars of solved levels, that a second run reuses the cached solutions, and that the stored
+ * pars reach the levels and their boards.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class ParCalculatorTest {
+
+    @TempDir
+    Path folder;
+
+    /**
+     * Builds a 4x5 level without snow with a SMALL snowball and a BIG_MID one.
+     */
+    private Level createLevel(int number, int smallCol) {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(1, smallCol, SnowballType.SMALL));
+        snowballs.add(new Snowball(2, 3, SnowballType.BIG_MID));
+        return new Level(content, 0, 0, snowballs, number);
+    }
+
+    @Test
+    @DisplayName("The batch job finds the optimal move count of every level")
+    void testCompute() throws Exception {
+        List<Level> levels = List.of(createLevel(1, 1), createLevel(2, 3), createLevel(3, 2));
+        Map<Level, SolverResult> results = new ParCalculator(2).compute(levels);
+
+        assertEquals(levels, List.copyOf(results.keySet()));
+        for (Level level : levels) {
+            SolverResult bfs = new Solver(Solver.Strategy.BREADTH_FIRST).solve(level);
+            assertEquals(bfs.getLength(), results.get(level).getLength());
+        }
+
+        Path file = folder.resolve("par.properties");
+        ParCalculator.store(results, file);
+        String stored = Files.readString(file);
+        assertTrue(stored.contains("level.2.par=" + results.get(levels.get(1)).getLength()));
+        assertTrue(stored.contains("level.3.hash=" + Long.toHexString(levels.get(2).getCanonicalHash())));
+    }
+
+    @Test
+    @DisplayName("A second run reads the solutions of unchanged levels from the cache")
+    void testCache() throws Exception {
+        List<Level> levels = List.of(createLevel(1, 1), createLevel(2, 3));
+        try (SolutionCache cache = new SolutionCache(folder.resolve("solutions.bin"), 64)) {
+            ParCalculator calculator = new ParCalculator(2);
+            calculator.setCache(cache);
+            Map<Level, SolverResult> first = calculator.compute(levels);
+            assertEquals(2, cache.size());
+
+            Level edited = createLevel(2, 2);
+            Map<Level, SolverResult> second = calculator.compute(List.of(levels.get(0), edited));
+            SolverResult reused = second.get(levels.get(0));
+            assertEquals(first.get(levels.get(0)).getElapsedMillis(), reused.getElapsedMillis());
+            assertEquals(first.get(levels.get(0)).getMoves(), reused.getMoves());
+            assertEquals(new Solver(Solver.Strategy.BREADTH_FIRST).solve(edited).getLength(),
+                    second.get(edited).getLength());
+            assertEquals(3, cache.size());
+        }
+    }
+
+    @Test
+    @DisplayName("The predefined levels and their boards carry the stored par")
+    void testPredefinedPars() {
+        LevelManager levels = new LevelManager();
+        assertEquals(16, levels.getLevels().get(0).getPar());
+        assertEquals(23, levels.getLevels().get(1).getPar());
+        assertEquals(16, levels.getCurrentLevel().getPar());
+
+        Level level = createLevel(1, 1);
+        assertEquals(-1, level.getPar());
+        assertEquals(-1, level.createBoardModel().getPar());
+        assertEquals(9, level.withPar(9).createBoardModel().getPar());
+        assertEquals(level.getCanonicalHash(), level.withPar(9).getCanonicalHash());
+    }
+}
@@ -0,0 +1,151 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the SolutionCache class.
+ *
+ * These tests check that results survive closing and reopening the cache file, that
+ * editing a level only gives it a new entry, and that levels sharing a number keep
+ * separate entries.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class SolutionCacheTest {
+
+    @TempDir
+    Path folder;
+
+    /**
+     * Builds a 4x5 level without snow with a SMALL snowball and a BIG_MID one.
+     */
+    private Level createLevel(int number, int smallCol) {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(1, smallCol, SnowballType.SMALL));
+        snowballs.add(new Snowball(2, 3, SnowballType.BIG_MID));
+        return new Level(content, 0, 0, snowballs, number);
+    }
+
+    @Test
+    @DisplayName("A stored result is read back after reopening the file")
+    void testPersistence() throws Exception {
+        Path file = folder.resolve("solutions.bin");
+        Level level = createLevel(1, 1);
+        SolverResult solved;
+        try (SolutionCache cache = new SolutionCache(file, 64)) {
+            assertNull(cache.get(level));
+            solved = cache.solve(level, new Solver());
+            assertTrue(solved.isSolved());
+        }
+
+        try (SolutionCache cache = new SolutionCache(file, 64)) {
+            SolverResult cached = cache.get(level);
+            assertNotNull(cached);
+            assertEquals(solved.getMoves(), cached.getMoves());
+            assertEquals(solved.getStrategy(), cached.getStrategy());
+            assertEquals(solved.getStatesExpanded(), cached.getStatesExpanded());
+            assertEquals(solved.getPeakMemoryBytes(), cached.getPeakMemoryBytes());
+
+            BoardModel board = level.createBoardModel();
+            for (Direction direction : cached.getMoves()) {
+                assertTrue(board.moveMonster(direction));
+            }
+            assertTrue(board.isLevelComplete());
+        }
+
+        // A file with another number of slots is cleared
+        try (SolutionCache cache = new SolutionCache(file, 128)) {
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Editing a level gives it a new entry without touching the others")
+    void testInvalidation() throws Exception {
+        Level first = createLevel(1, 1);
+        Level second = createLevel(2, 2);
+        Level edited = createLevel(1, 0);
+        assertNotEquals(first.getCanonicalHash(), edited.getCanonicalHash());
+        assertEquals(first.getCanonicalHash(), createLevel(7, 1).getCanonicalHash());
+
+        try (SolutionCache cache = new SolutionCache(folder.resolve("solutions.bin"), 64)) {
+            Solver solver = new Solver();
+            cache.solve(first, solver);
+            cache.solve(second, solver);
+            assertEquals(2, cache.size());
+
+            assertNull(cache.get(edited));
+            assertTrue(cache.put(edited, solver.solve(edited)));
+            assertNotNull(cache.get(edited));
+            assertNotNull(cache.get(second));
+            assertEquals(3, cache.size());
+
+            cache.invalidate(first);
+            assertNull(cache.get(first));
+            assertNotNull(cache.get(edited));
+            assertEquals(2, cache.size());
+
+            // Searches stopped early are not stored
+            Solver limited = new Solver(Solver.Strategy.BREADTH_FIRST);
+            limited.setMaxStates(1);
+            assertFalse(cache.put(first, limited.solve(first)));
+            assertNull(cache.get(first));
+        }
+    }
+
+    @Test
+    @DisplayName("Levels of different packs with the same number keep their own entries")
+    void testSharedNumbers() throws Exception {
+        Level predefined = createLevel(1, 1);
+        Level packed = createLevel(1, 0);
+
+        try (SolutionCache cache = new SolutionCache(folder.resolve("solutions.bin"), 64)) {
+            Solver solver = new Solver();
+            SolverResult first = cache.solve(predefined, solver);
+            SolverResult second = cache.solve(packed, solver);
+
+            assertEquals(2, cache.size());
+            assertEquals(first.getMoves(), cache.get(predefined).getMoves());
+            assertEquals(second.getMoves(), cache.get(packed).getMoves());
+        }
+    }
+
+    @Test
+    @DisplayName("A solution that may not be the shortest is solved again by an optimal solver")
+    void testOptimalReplacesGreedy() throws Exception {
+        Level level = createLevel(1, 1);
+        try (SolutionCache cache = new SolutionCache(folder.resolve("solutions.bin"), 64)) {
+            cache.solve(level, new Solver(Solver.Strategy.GREEDY_BEST_FIRST));
+            assertEquals(Solver.Strategy.GREEDY_BEST_FIRST, cache.get(level).getStrategy());
+            assertEquals(Solver.Strategy.GREEDY_BEST_FIRST,
+                    cache.solve(level, new Solver(Solver.Strategy.PUSH_MACRO)).getStrategy());
+
+            SolverResult optimal = cache.solve(level, new Solver(Solver.Strategy.A_STAR));
+            assertEquals(Solver.Strategy.A_STAR, optimal.getStrategy());
+            assertEquals(Solver.Strategy.A_STAR, cache.get(level).getStrategy());
+            assertEquals(1, cache.size());
+        }
+    }
+}
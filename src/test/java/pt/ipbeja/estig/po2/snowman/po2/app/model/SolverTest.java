@@ -0,0 +1,314 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the level Solver.
+ *
+ * These tests replay every solution found on a fresh board, to make sure the solver follows
+ * the same rules as the game, and compare the breadth-first and A* strategies, which must
+ * both find shortest solutions.
+ *
+ *  @author Ângelo Dias(24288), Edgar Brito(22895)
+ */
+public class SolverTest {
+
+    /**
+     * Replays a solution on a board and tells whether it completes the level.
+     */
+    private boolean replay(BoardModel board, List<Direction> moves) {
+        for (Direction direction : moves) {
+            assertTrue(board.moveMonster(direction), "Solution move " + direction + " was rejected");
+        }
+        return board.isLevelComplete();
+    }
+
+    /**
+     * Builds a small board with the given snowballs and the monster at (0,0).
+     */
+    private BoardModel createBoard(int rows, int cols, PositionContent fill, List<Snowball> snowballs) {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < cols; j++) {
+                row.add(fill);
+            }
+            content.add(row);
+        }
+        return new BoardModel(content, new Monster(0, 0), snowballs);
+    }
+
+    @Test
+    @DisplayName("Both strategies find the same shortest solution length")
+    void testStrategiesAgree() {
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(1, 1, SnowballType.SMALL));
+        snowballs.add(new Snowball(1, 3, SnowballType.BIG_MID));
+        BoardModel board = createBoard(4, 5, PositionContent.NO_SNOW, snowballs);
+
+        SolverResult bfs = new Solver(Solver.Strategy.BREADTH_FIRST).solve(board);
+        SolverResult aStar = new Solver(Solver.Strategy.A_STAR).solve(board);
+
+        assertTrue(bfs.isSolved());
+        assertTrue(aStar.isSolved());
+        assertEquals(bfs.getLength(), aStar.getLength());
+        assertTrue(aStar.getStatesExpanded() <= bfs.getStatesExpanded());
+        assertTrue(replay(board, aStar.getMoves()));
+    }
+
+    @Test
+    @DisplayName("The parallel search finds a shortest solution on several threads")
+    void testParallelBreadthFirst() {
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(1, 1, SnowballType.SMALL));
+        snowballs.add(new Snowball(2, 3, SnowballType.MID));
+        snowballs.add(new Snowball(3, 1, SnowballType.BIG));
+        BoardModel board = createBoard(5, 5, PositionContent.NO_SNOW, snowballs);
+
+        Solver parallel = new Solver(Solver.Strategy.PARALLEL_BREADTH_FIRST);
+        parallel.setParallelism(4);
+        SolverResult result = parallel.solve(board);
+        SolverResult bfs = new Solver(Solver.Strategy.BREADTH_FIRST).solve(board);
+
+        assertTrue(result.isSolved());
+        assertEquals(bfs.getLength(), result.getLength());
+        assertTrue(result.getStatesPerSecond() > 0);
+        assertTrue(replay(board, result.getMoves()));
+    }
+
+    @Test
+    @DisplayName("The workers of the parallel search stop at the time limit")
+    void testParallelTimeLimit() {
+        LevelManager levels = new LevelManager();
+        levels.loadNextLevel();
+        levels.loadNextLevel();
+        Solver parallel = new Solver(Solver.Strategy.PARALLEL_BREADTH_FIRST);
+        parallel.setParallelism(4);
+        parallel.setTimeLimitMillis(50);
+
+        SolverResult result = parallel.solve(levels.getCurrentLevel());
+
+        assertEquals(SolverResult.Status.TIME_LIMIT_REACHED, result.getStatus());
+        assertFalse(result.isSolved());
+    }
+
+    @Test
+    @DisplayName("A level that cannot be completed is reported as unsolvable")
+    void testUnsolvable() {
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(1, 1, SnowballType.SMALL));
+        BoardModel board = createBoard(3, 3, PositionContent.NO_SNOW, snowballs);
+
+        for (Solver.Strategy strategy : Solver.Strategy.values()) {
+            SolverResult result = new Solver(strategy).solve(board);
+
+            assertEquals(SolverResult.Status.UNSOLVABLE, result.getStatus());
+            assertEquals(-1, result.getLength());
+        }
+    }
+
+    @Test
+    @DisplayName("The state limit stops the search")
+    void testStateLimit() {
+        Solver solver = new Solver(Solver.Strategy.BREADTH_FIRST);
+        solver.setMaxStates(10);
+
+        SolverResult result = solver.solve(new LevelManager().getCurrentLevel());
+
+        assertEquals(SolverResult.Status.LIMIT_REACHED, result.getStatus());
+        assertFalse(result.isSolved());
+    }
+
+    @Test
+    @DisplayName("The first predefined levels are solved optimally")
+    void testPredefinedLevels() {
+        LevelManager levels = new LevelManager();
+        Solver solver = new Solver();
+        int[] optimal = {16, 23};
+        for (int expected : optimal) {
+            BoardModel board = levels.getCurrentLevel();
+            SolverResult result = solver.solve(board);
+            System.out.println("Level " + (levels.getCurrentLevelIndex() + 1) + ": " + result);
+
+            assertTrue(result.isSolved());
+            assertEquals(expected, result.getLength());
+            assertTrue(replay(board, result.getMoves()));
+            levels.loadNextLevel();
+        }
+    }
+
+    @Test
+    @DisplayName("IDA* finds the shortest solutions in a fraction of the memory of A*")
+    void testIdaStar() {
+        LevelManager levels = new LevelManager();
+        Solver solver = new Solver(Solver.Strategy.IDA_STAR);
+        int[] optimal = {16, 23};
+        for (int expected : optimal) {
+            BoardModel board = levels.getCurrentLevel();
+            SolverResult result = solver.solve(board);
+            SolverResult aStar = new Solver(Solver.Strategy.A_STAR).solve(board);
+            System.out.println("Level " + (levels.getCurrentLevelIndex() + 1) + ": " + result);
+
+            assertTrue(result.isSolved());
+            assertEquals(expected, result.getLength());
+            assertTrue(result.getPeakMemoryBytes() < aStar.getPeakMemoryBytes());
+            assertTrue(replay(board, result.getMoves()));
+            levels.loadNextLevel();
+        }
+
+        // A tiny cache only costs time
+        solver.setMaxStates(256);
+        SolverResult small = solver.solve(new LevelManager().getCurrentLevel());
+        assertEquals(16, small.getLength());
+        assertTrue(small.getStatesStored() <= 256);
+        assertTrue(small.getPeakMemoryBytes() < 64 * 1024);
+    }
+
+    @Test
+    @DisplayName("IDA* keeps its table within the memory cap")
+    void testIdaStarTableCap() {
+        Solver solver = new Solver(Solver.Strategy.IDA_STAR);
+        assertEquals(Solver.DEFAULT_TABLE_BYTES, solver.getTableBytes());
+        assertThrows(IllegalArgumentException.class, () -> solver.setTableBytes(0));
+        assertThrows(IllegalArgumentException.class, () -> solver.setTableBytes(2L << 30));
+
+        // 16 KB hold 1024 states; every other state replaces one of them
+        solver.setTableBytes(16 * 1024);
+        BoardModel board = new LevelManager().getCurrentLevel();
+        SolverResult result = solver.solve(board);
+
+        assertEquals(16, result.getLength());
+        assertEquals(1024, result.getStatesStored());
+        assertTrue(result.getPeakMemoryBytes() < 32 * 1024);
+        assertTrue(replay(board, result.getMoves()));
+    }
+
+    /**
+     * Builds a 6x5 level with every piece on the middle column of a board without blocks,
+     * so its left and right halves mirror each other.
+     */
+    private Level createSymmetricLevel() {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(1, 2, SnowballType.SMALL));
+        snowballs.add(new Snowball(3, 2, SnowballType.MID));
+        snowballs.add(new Snowball(4, 2, SnowballType.BIG));
+        return new Level(content, 0, 2, snowballs, 1);
+    }
+
+    @Test
+    @DisplayName("Mirrored states are searched once without changing the solutions")
+    void testSymmetryReduction() {
+        Level level = createSymmetricLevel();
+
+        for (Solver.Strategy strategy : List.of(Solver.Strategy.BREADTH_FIRST, Solver.Strategy.A_STAR,
+                Solver.Strategy.IDA_STAR)) {
+            Solver solver = new Solver(strategy);
+            assertTrue(solver.isSymmetryReduction());
+            SolverResult reduced = solver.solve(level);
+            solver.setSymmetryReduction(false);
+            SolverResult full = solver.solve(level);
+
+            assertTrue(reduced.isSolved());
+            assertEquals(full.getLength(), reduced.getLength());
+            assertTrue(reduced.getStatesStored() < full.getStatesStored());
+            assertTrue(replay(level.createBoardModel(), reduced.getMoves()));
+        }
+    }
+
+    /**
+     * @return true if a thread of the portfolio is still alive.
+     */
+    private boolean portfolioRunning() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("snowman-portfolio"));
+    }
+
+    @Test
+    @DisplayName("The portfolio returns the first solution and stops the other searches")
+    void testPortfolio() throws Exception {
+        LevelManager levels = new LevelManager();
+        BoardModel board = levels.getCurrentLevel();
+        SolverResult result = new Solver(Solver.Strategy.PORTFOLIO).solve(board);
+        System.out.println("Portfolio winner: " + result);
+
+        assertTrue(result.isSolved());
+        assertNotEquals(Solver.Strategy.PORTFOLIO, result.getStrategy());
+        assertFalse(portfolioRunning());
+        assertTrue(replay(board, result.getMoves()));
+
+        // Cancelling the portfolio cancels every contender
+        levels.loadNextLevel();
+        levels.loadNextLevel();
+        Solver solver = new Solver(Solver.Strategy.PORTFOLIO);
+        solver.setMaxStates(Integer.MAX_VALUE);
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            solver.cancel();
+        });
+        canceller.start();
+        SolverResult cancelled = solver.solve(levels.getCurrentLevel());
+        canceller.join();
+
+        assertTrue(cancelled.isSolved() || cancelled.getStatus() == SolverResult.Status.CANCELLED);
+        assertFalse(portfolioRunning());
+    }
+
+    @Test
+    @DisplayName("The contenders of the portfolio get the settings of the portfolio")
+    void testPortfolioSettings() {
+        Level level = createSymmetricLevel();
+        for (boolean symmetryReduction : new boolean[]{true, false}) {
+            Solver portfolio = new Solver(Solver.Strategy.PORTFOLIO);
+            portfolio.setSymmetryReduction(symmetryReduction);
+            SolverResult result = portfolio.solve(level);
+
+            Solver alone = new Solver(result.getStrategy());
+            alone.setSymmetryReduction(symmetryReduction);
+            assertTrue(result.isSolved());
+            assertEquals(alone.solve(level).getStatesStored(), result.getStatesStored());
+        }
+    }
+
+    @Test
+    @DisplayName("The push search solves every predefined level with far fewer states")
+    void testPushMacro() {
+        LevelManager levels = new LevelManager();
+        Solver solver = new Solver(Solver.Strategy.PUSH_MACRO);
+        for (BoardModel board = levels.getCurrentLevel(); board != null; board = levels.loadNextLevel()) {
+            SolverResult result = solver.solve(board);
+            System.out.println("Level " + (levels.getCurrentLevelIndex() + 1) + ": " + result);
+
+            assertTrue(result.isSolved());
+            assertTrue(replay(board, result.getMoves()));
+        }
+
+        BoardModel first = new LevelManager().getCurrentLevel();
+        SolverResult pushes = solver.solve(first);
+        SolverResult steps = new Solver(Solver.Strategy.A_STAR).solve(first);
+        assertEquals(steps.getLength(), pushes.getLength());
+        assertTrue(pushes.getStatesStored() * 10 < steps.getStatesStored());
+    }
+}